@@ -0,0 +1,137 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Writes text and binary values to a file through a FileChannel and a reused buffer.
+ * Text is written in the default charset as PrintStream, binary values in big-endian as DataOutputStream.
+ * Not thread-safe: use from one thread at a time.
+ */
+public class BufferedChannelWriter {
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	private final String name;
+	private FileChannel channel;
+	private final ByteBuffer buffer;
+
+	public BufferedChannelWriter(String name) throws IOException {
+		this(name, DEFAULT_BUFFER_SIZE);
+	}
+
+	@SuppressWarnings("resource")
+	public BufferedChannelWriter(String name, int bufferSize) throws IOException {
+		this.name = name;
+		this.channel = new FileOutputStream(name).getChannel();
+		this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 64));
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	private void ensure(int bytes) throws IOException {
+		if(buffer.remaining() < bytes)
+			drain();
+	}
+
+	// Writes the buffered data to the channel without forcing it to the disk
+	private void drain() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	public BufferedChannelWriter write(CharSequence s) throws IOException {
+		int len = s.length();
+		for(int i=0; i<len; i++) {
+			char c = s.charAt(i);
+			if(c < 0x80) {
+				ensure(1);
+				buffer.put((byte) c);
+			}
+			else {
+				// Rare: encode the rest by the charset
+				write(s.subSequence(i, len).toString().getBytes(Charset.defaultCharset()));
+				break;
+			}
+		}
+		return this;
+	}
+
+	public BufferedChannelWriter write(char c) throws IOException {
+		if(c >= 0x80)
+			return write(String.valueOf(c));
+		ensure(1);
+		buffer.put((byte) c);
+		return this;
+	}
+
+	public BufferedChannelWriter write(byte[] b) throws IOException {
+		return write(b, 0, b.length);
+	}
+
+	public BufferedChannelWriter write(byte[] b, int off, int len) throws IOException {
+		while(len > 0) {
+			ensure(1);
+			int n = Math.min(len, buffer.remaining());
+			buffer.put(b, off, n);
+			off += n;
+			len -= n;
+		}
+		return this;
+	}
+
+	public BufferedChannelWriter newLine() throws IOException {
+		return write(System.lineSeparator());
+	}
+
+	public BufferedChannelWriter writeByte(int v) throws IOException {
+		ensure(1);
+		buffer.put((byte) v);
+		return this;
+	}
+
+	public BufferedChannelWriter writeInt(int v) throws IOException {
+		ensure(4);
+		buffer.putInt(v);
+		return this;
+	}
+
+	public BufferedChannelWriter writeLong(long v) throws IOException {
+		ensure(8);
+		buffer.putLong(v);
+		return this;
+	}
+
+	public BufferedChannelWriter writeDouble(double v) throws IOException {
+		ensure(8);
+		buffer.putDouble(v);
+		return this;
+	}
+
+	public void flush() throws IOException {
+		if(channel == null)
+			return;
+		drain();
+	}
+
+	public void close() throws IOException {
+		if(channel == null)
+			return;
+		drain();
+		channel.close();
+		channel = null;
+	}
+}
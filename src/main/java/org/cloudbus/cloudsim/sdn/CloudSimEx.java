@@ -12,6 +12,7 @@ import java.util.Iterator;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
 
 public class CloudSimEx extends CloudSim {
 	private static long startTime;
@@ -42,12 +43,41 @@ public class CloudSimEx extends CloudSim {
 		return future.size() + deferred.size();
 	}
 	
+	/**
+	 * Number of future events, not counting the events matched by the given predicate
+	 * (e.g. outdated events that will be ignored when they arrive).
+	 */
+	public static int getNumFutureEvents(Predicate ignore) {
+		if(ignore == null)
+			return getNumFutureEvents();
+		
+		int num = 0;
+		Iterator<SimEvent> fit = future.iterator();
+		while(fit.hasNext()) {
+			if(!ignore.match(fit.next()))
+				num++;
+		}
+		fit = deferred.iterator();
+		while(fit.hasNext()) {
+			if(!ignore.match(fit.next()))
+				num++;
+		}
+		return num;
+	}
+	
 	public static boolean hasMoreEvent(int excludeEventTag) {
+		return hasMoreEvent(excludeEventTag, null);
+	}
+	
+	/**
+	 * Whether there is any event other than the given tag and the events matched by the given predicate.
+	 */
+	public static boolean hasMoreEvent(int excludeEventTag, Predicate ignore) {
 		if(future.size() > 0) {
 			Iterator<SimEvent> fit = future.iterator();
 			while(fit.hasNext()) {
 				SimEvent ev = fit.next();
-				if(ev.getTag() != excludeEventTag)
+				if(ev.getTag() != excludeEventTag && (ignore == null || !ignore.match(ev)))
 					return true;
 			}
 		}
@@ -55,7 +85,7 @@ public class CloudSimEx extends CloudSim {
 			Iterator<SimEvent> fit = deferred.iterator();
 			while(fit.hasNext()) {
 				SimEvent ev = fit.next();
-				if(ev.getTag() != excludeEventTag)
+				if(ev.getTag() != excludeEventTag && (ignore == null || !ignore.match(ev)))
 					return true;
 			}
 		}
@@ -63,11 +93,20 @@ public class CloudSimEx extends CloudSim {
 	}
 	
 	public static double getNextEventTime() {
+		return getNextEventTime(null);
+	}
+	
+	/**
+	 * Time of the earliest future event not matched by the given predicate, or -1 if there is none.
+	 */
+	public static double getNextEventTime(Predicate ignore) {
 		if(future.size() > 0) {
 			Iterator<SimEvent> fit = future.iterator();
-			SimEvent first = fit.next();
-			if(first != null)
-				return first.eventTime();
+			while(fit.hasNext()) {
+				SimEvent ev = fit.next();
+				if(ev != null && (ignore == null || !ignore.match(ev)))
+					return ev.eventTime();
+			}
 		}
 		return -1;
 	}
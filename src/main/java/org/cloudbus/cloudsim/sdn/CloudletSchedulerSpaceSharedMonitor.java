@@ -9,17 +9,21 @@
 package org.cloudbus.cloudsim.sdn;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.CloudletSchedulerSpaceShared;
 import org.cloudbus.cloudsim.Consts;
 import org.cloudbus.cloudsim.ResCloudlet;
+import org.cloudbus.cloudsim.core.CloudSim;
 
 public class CloudletSchedulerSpaceSharedMonitor extends CloudletSchedulerSpaceShared implements CloudletSchedulerMonitor {
 	// For monitoring
 	private double prevMonitoredTime = 0;
 	private double timeoutLimit = Double.POSITIVE_INFINITY;
+	private DeadlineQueue<Cloudlet> timeoutQueue = new DeadlineQueue<Cloudlet>();
 	
 	public CloudletSchedulerSpaceSharedMonitor(double timeOut) {
 		super();
@@ -30,9 +34,28 @@ public class CloudletSchedulerSpaceSharedMonitor extends CloudletSchedulerSpaceS
 	public double updateVmProcessing(double currentTime, List<Double> mipsShare) {
 		double ret = super.updateVmProcessing(currentTime, mipsShare);
 		processTimeout(currentTime);
+		
+		// Make sure the VM is updated when the next cloudlet times out.
+		double nextTimeout = timeoutQueue.peekDeadline();
+		if(ret > 0 && nextTimeout < ret)
+			ret = nextTimeout;
+		return ret;
+	}
+	
+	@Override
+	public double cloudletSubmit(Cloudlet cloudlet, double fileTransferTime) {
+		double ret = super.cloudletSubmit(cloudlet, fileTransferTime);
+		if(timeoutLimit > 0 && Double.isFinite(timeoutLimit))
+			timeoutQueue.add(cloudlet, CloudSim.clock() + timeoutLimit);
 		return ret;
 	}
 	
+	@Override
+	public void cloudletFinish(ResCloudlet rcl) {
+		timeoutQueue.remove(rcl.getCloudlet());
+		super.cloudletFinish(rcl);
+	}
+	
 	@Override
 	public List<Cloudlet> getFailedCloudlet() {
 		List<Cloudlet> failed = new ArrayList<Cloudlet>();
@@ -45,34 +68,35 @@ public class CloudletSchedulerSpaceSharedMonitor extends CloudletSchedulerSpaceS
 
 	protected void processTimeout(double currentTime) {
 		// Check if any cloudlet is timed out.
-		if(timeoutLimit > 0 && Double.isFinite(timeoutLimit)) {
-			double timeout = currentTime - this.timeoutLimit;
-			{
-				List<ResCloudlet> timeoutCloudlet = new ArrayList<ResCloudlet>();
-				for (ResCloudlet rcl : getCloudletExecList()) {
-					if(rcl.getCloudletArrivalTime() < timeout) {
-						rcl.setCloudletStatus(Cloudlet.FAILED);
-						rcl.finalizeCloudlet();
-						timeoutCloudlet.add(rcl);
-						usedPes -= rcl.getNumberOfPes();					
-					}
+		List<Cloudlet> expired = timeoutQueue.pollExpired(currentTime);
+		if(expired.isEmpty())
+			return;
+		
+		Set<Cloudlet> expiredSet = new HashSet<Cloudlet>(expired);
+		{
+			List<ResCloudlet> timeoutCloudlet = new ArrayList<ResCloudlet>();
+			for (ResCloudlet rcl : getCloudletExecList()) {
+				if(expiredSet.contains(rcl.getCloudlet())) {
+					rcl.setCloudletStatus(Cloudlet.FAILED);
+					rcl.finalizeCloudlet();
+					timeoutCloudlet.add(rcl);
+					usedPes -= rcl.getNumberOfPes();					
 				}
-				getCloudletExecList().removeAll(timeoutCloudlet);
-				getCloudletFailedList().addAll(timeoutCloudlet);
 			}
-			{			
-				List<ResCloudlet> timeoutCloudlet = new ArrayList<ResCloudlet>();
-				for (ResCloudlet rcl : getCloudletWaitingList()) {
-					if(rcl.getCloudletArrivalTime() < timeout) {
-						rcl.setCloudletStatus(Cloudlet.FAILED);
-						rcl.finalizeCloudlet();
-						timeoutCloudlet.add(rcl);
-					}
+			getCloudletExecList().removeAll(timeoutCloudlet);
+			getCloudletFailedList().addAll(timeoutCloudlet);
+		}
+		{			
+			List<ResCloudlet> timeoutCloudlet = new ArrayList<ResCloudlet>();
+			for (ResCloudlet rcl : getCloudletWaitingList()) {
+				if(expiredSet.contains(rcl.getCloudlet())) {
+					rcl.setCloudletStatus(Cloudlet.FAILED);
+					rcl.finalizeCloudlet();
+					timeoutCloudlet.add(rcl);
 				}
-				getCloudletWaitingList().removeAll(timeoutCloudlet);
-				getCloudletFailedList().addAll(timeoutCloudlet);
 			}
-			
+			getCloudletWaitingList().removeAll(timeoutCloudlet);
+			getCloudletFailedList().addAll(timeoutCloudlet);
 		}
 	}
 
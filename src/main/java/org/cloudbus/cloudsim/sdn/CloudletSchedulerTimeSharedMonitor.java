@@ -9,15 +9,19 @@
 package org.cloudbus.cloudsim.sdn;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
 import org.cloudbus.cloudsim.Consts;
 import org.cloudbus.cloudsim.ResCloudlet;
+import org.cloudbus.cloudsim.core.CloudSim;
 
 public class CloudletSchedulerTimeSharedMonitor extends CloudletSchedulerTimeShared implements CloudletSchedulerMonitor {
 	private double timeoutLimit = Double.POSITIVE_INFINITY;
+	private DeadlineQueue<Cloudlet> timeoutQueue = new DeadlineQueue<Cloudlet>();
 	// For monitoring
 	private double prevMonitoredTime = 0;
 	private double vmMips = 0;
@@ -78,9 +82,28 @@ public class CloudletSchedulerTimeSharedMonitor extends CloudletSchedulerTimeSha
 	public double updateVmProcessing(double currentTime, List<Double> mipsShare) {
 		double ret = super.updateVmProcessing(currentTime, mipsShare);
 		processTimeout(currentTime);
+		
+		// Make sure the VM is updated when the next cloudlet times out.
+		double nextTimeout = timeoutQueue.peekDeadline();
+		if(ret > 0 && nextTimeout < ret)
+			ret = nextTimeout;
+		return ret;
+	}
+	
+	@Override
+	public double cloudletSubmit(Cloudlet cloudlet, double fileTransferTime) {
+		double ret = super.cloudletSubmit(cloudlet, fileTransferTime);
+		if(timeoutLimit > 0 && Double.isFinite(timeoutLimit))
+			timeoutQueue.add(cloudlet, CloudSim.clock() + timeoutLimit);
 		return ret;
 	}
 	
+	@Override
+	public void cloudletFinish(ResCloudlet rcl) {
+		timeoutQueue.remove(rcl.getCloudlet());
+		super.cloudletFinish(rcl);
+	}
+	
 	@Override
 	public List<Cloudlet> getFailedCloudlet() {
 		List<Cloudlet> failed = new ArrayList<Cloudlet>();
@@ -93,18 +116,19 @@ public class CloudletSchedulerTimeSharedMonitor extends CloudletSchedulerTimeSha
 
 	protected void processTimeout(double currentTime) {
 		// Check if any cloudlet is timed out.
-		if(timeoutLimit > 0 && Double.isFinite(timeoutLimit)) {
-			double timeout = currentTime - this.timeoutLimit;
-			List<ResCloudlet> timeoutCloudlet = new ArrayList<ResCloudlet>();
-			
-			for (ResCloudlet rcl : getCloudletExecList()) {
-				if(rcl.getCloudletArrivalTime() < timeout) {
-					timeoutCloudlet.add(rcl);
-				}
+		List<Cloudlet> expired = timeoutQueue.pollExpired(currentTime);
+		if(expired.isEmpty())
+			return;
+		
+		Set<Cloudlet> expiredSet = new HashSet<Cloudlet>(expired);
+		List<ResCloudlet> timeoutCloudlet = new ArrayList<ResCloudlet>();
+		
+		for (ResCloudlet rcl : getCloudletExecList()) {
+			if(expiredSet.contains(rcl.getCloudlet())) {
+				timeoutCloudlet.add(rcl);
 			}
-			getCloudletFailedList().addAll(timeoutCloudlet);
-			getCloudletExecList().removeAll(timeoutCloudlet);			
 		}
-		
+		getCloudletFailedList().addAll(timeoutCloudlet);
+		getCloudletExecList().removeAll(timeoutCloudlet);
 	}	
 }
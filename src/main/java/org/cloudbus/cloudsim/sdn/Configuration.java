@@ -119,6 +119,32 @@ public class Configuration {
 	
 	public static final double TIME_OUT = 10; //Double.POSITIVE_INFINITY; // 
 	
+	public static boolean PACKET_SCHEDULER_FLUID_FLOW = false;	// Share channel BW equally among packets as a fluid flow (PacketSchedulerFluidFlow)
+	
+	public static boolean WORKLOAD_PARSER_STREAMING = false;	// Parse workload CSV files without creating Strings (WorkloadParserStreaming)
+	public static boolean WORKLOAD_PREFETCH = false;	// Read workloads ahead in a background thread (WorkloadPrefetcher), uses the streaming parser for CSV files
+	public static double WORKLOAD_PREFETCH_WINDOW = 10;	// Simulation time (sec) covered by the workloads scheduled at once when prefetching
+	
+	public static boolean WORKLOAD_RESULT_ASYNC = true;	// Write workload results in a background thread (WorkloadResultWriterThread)
+	public static String WORKLOAD_RESULT_FORMAT = "csv";	// Workload result sink: "csv", "binary" (columnar, WorkloadResultSinkBinary) or "none" (statistics only)
+	
+	public static boolean LOG_ENABLE = true;	// Write log files (LogWriter). Each log can be disabled by LogWriter.setEnabled()
+	public static boolean LOG_ASYNC = true;	// Format and write log files in a background thread
+	public static int LOG_BUFFER_SIZE = 4096;	// Number of log entries kept before they are handed over to be written
+	public static int LOG_FILE_BUFFER_SIZE = 1 << 16;	// Bytes buffered per log file
+	public static boolean MONITOR_HISTORY_ALWAYS = true;	// Keep utilization history of all entities. If false, only when overbooking/migration or SFC auto-scaling needs it (MonitoringSettings)
+	public static boolean MONITOR_LOG_LINK = true;	// link_utilization_up/down.csv
+	public static boolean MONITOR_LOG_HOST = true;	// host_utilization.csv, host_energy.csv
+	public static boolean MONITOR_LOG_SWITCH = true;	// sw_energy.csv
+	public static boolean MONITOR_LOG_VM = true;	// vm_utilization.csv, vm_bw_utilization.csv, vm_OBR_mips/bw.csv
+	public static int MONITOR_LOG_SAMPLING = 1;	// Log only 1 in N entities of each type (by ID or address)
+	public static boolean MONITOR_TRACE_BINARY = false;	// Write monitoring logs as columnar binary traces (*.mtr, MonitoringTraceWriter) instead of CSV
+	public static boolean MONITOR_TRACE_FLOAT_VALUES = true;	// Store monitored values as float in binary traces (half the size), otherwise double
+	
+	public static boolean ROUTING_SHORTEST_PATH = false;	// Build physical routing tables with BFS/ECMP for any topology (PhysicalTopologyShortestPath)
+	
+	public static int MIGRATION_PLANNING_THREADS = 0;	// Threads to evaluate migration candidates (MigrationCandidateEvaluator). 0: number of processors, 1: serial
+	
 	public static boolean ENABLE_SFC = true;
 	
 	public static boolean SFC_LATENCY_AWARE_ENABLE;
@@ -133,6 +159,7 @@ public class Configuration {
 	public static boolean DEBUG_RESULT_WRITE_DETAIL = true;
 	public static boolean DEBUG_PRINT_DETAIL_SIZE_TIME = true;
 	public static boolean DEBUG_CHECK_OVER_TIME_REQUESTS = false;
+	public static boolean DEBUG_PRINT_TOPOLOGY = true;	// Print routing tables of all nodes after building them
 
 	//*/	
 }
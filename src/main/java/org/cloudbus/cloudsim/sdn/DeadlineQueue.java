@@ -0,0 +1,111 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Queue of items (transmissions, cloudlets) ordered by their timeout deadline (arrival time + timeout).
+ * Finding expired items costs only the number of expired items, instead of scanning all items in progress.
+ * Items completed before the deadline should be removed with remove().
+ *
+ * @param <T> type of items
+ */
+public class DeadlineQueue<T> {
+	private static class Entry<T> implements Comparable<Entry<T>> {
+		final T item;
+		final double deadline;
+		final long seq;
+		boolean removed = false;
+
+		Entry(T item, double deadline, long seq) {
+			this.item = item;
+			this.deadline = deadline;
+			this.seq = seq;
+		}
+
+		@Override
+		public int compareTo(Entry<T> o) {
+			int c = Double.compare(deadline, o.deadline);
+			if(c != 0)
+				return c;
+			return Long.compare(seq, o.seq);
+		}
+	}
+
+	private PriorityQueue<Entry<T>> queue = new PriorityQueue<Entry<T>>();
+	private Map<T, Entry<T>> entries = new HashMap<T, Entry<T>>();
+	private long seq = 0;
+
+	public void add(T item, double deadline) {
+		Entry<T> e = new Entry<T>(item, deadline, seq++);
+		Entry<T> old = entries.put(item, e);
+		if(old != null)
+			old.removed = true;
+		queue.add(e);
+	}
+
+	public boolean remove(T item) {
+		Entry<T> e = entries.remove(item);
+		if(e == null)
+			return false;
+
+		e.removed = true;
+		if(queue.size() > 2 * entries.size() + 16) {
+			// Drop removed entries when they outnumber the remaining ones.
+			queue = new PriorityQueue<Entry<T>>(entries.values());
+		}
+		return true;
+	}
+
+	/**
+	 * @return the earliest deadline, or POSITIVE_INFINITY if no item is waiting.
+	 */
+	public double peekDeadline() {
+		skipRemoved();
+		if(queue.isEmpty())
+			return Double.POSITIVE_INFINITY;
+		return queue.peek().deadline;
+	}
+
+	/**
+	 * Removes and returns the items whose deadline is at or before the given time, in deadline order.
+	 */
+	public List<T> pollExpired(double time) {
+		if(peekDeadline() > time)
+			return Collections.emptyList();
+
+		List<T> expired = new ArrayList<T>();
+		while(!queue.isEmpty() && queue.peek().deadline <= time) {
+			Entry<T> e = queue.poll();
+			entries.remove(e.item);
+			expired.add(e.item);
+			skipRemoved();
+		}
+		return expired;
+	}
+
+	private void skipRemoved() {
+		while(!queue.isEmpty() && queue.peek().removed)
+			queue.poll();
+	}
+
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+}
@@ -9,58 +9,342 @@
 package org.cloudbus.cloudsim.sdn;
 
 import java.io.IOException;
-import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
 
+import org.cloudbus.cloudsim.sdn.monitor.MonitoringTraceWriter;
+
+/**
+ * Writes log files in the working directory.
+ *
+ * Log entries are kept in a batch of primitive values in the simulation thread, without creating Strings.
+ * Full batches are formatted and written by a background flusher thread (Configuration.LOG_ASYNC)
+ * through a buffered FileChannel per file (BufferedChannelWriter).
+ * All the logs are flushed by flushAll(), called when the simulation ends (NetworkOperatingSystem.shutdownEntity()).
+ * A shutdown hook also calls it when the JVM exits, in case the simulation did not end normally.
+ * With Configuration.MONITOR_TRACE_BINARY, log() entries are written in a columnar binary trace (MonitoringTraceWriter).
+ */
 public class LogWriter {
-	private PrintStream out = null;
+	private static final byte ENTRY_TEXT = 0;		// print(s)
+	private static final byte ENTRY_LINE = 1;		// printLine(s)
+	private static final byte ENTRY_VALUE = 2;		// log(name, time, value)
+
+	private static final int QUEUE_CAPACITY = 64;
 
 	private static HashMap<String,LogWriter> map = new HashMap<String,LogWriter>();
-	
-	private LogWriter(String name) {
-		out = openfile(name);
+	private static Set<String> disabled = new HashSet<String>();
+	private static Flusher flusher = null;
+
+	private final String fileName;
+	private BufferedChannelWriter out = null;	// Used by the flusher thread only, when asynchronous
+	private MonitoringTraceWriter trace = null;	// Instead of out, for a binary trace
+	private boolean enabled;
+	private Batch batch;
+
+	private LogWriter(String fileName, boolean enabled) {
+		this.fileName = fileName;
+		this.enabled = enabled;
+		if(enabled)
+			open();
 	}
-	
-	public static LogWriter getLogger(String name) {
-		String exName = Configuration.workingDirectory+Configuration.experimentName+name;
+
+	public static synchronized LogWriter getLogger(String name) {
+		String exName = getFileName(name);
 		LogWriter writer = map.get(exName);
 		if(writer != null)
 			return writer;
-		
-		System.out.println("Creating logger..:" +exName);
-		writer = new LogWriter(exName);
+
+		boolean enabled = Configuration.LOG_ENABLE && !disabled.contains(name);
+		writer = new LogWriter(exName, enabled);
 		map.put(exName, writer);
 		return writer;
 	}
 
-	public void print(String s) {
-		if(out == null)
-			System.err.println("WorkloadResultWriter: "+s);
+	/** Path of the log file for the name, in the working directory and prefixed by the experiment name. */
+	public static String getFileName(String name) {
+		return Configuration.workingDirectory+Configuration.experimentName+name;
+	}
+
+	/**
+	 * Enables or disables the logger of the name (e.g. "vm_utilization.csv"). A disabled logger ignores all entries.
+	 * Disabling before the first getLogger() also prevents creating the file.
+	 */
+	public static synchronized void setEnabled(String name, boolean enable) {
+		if(enable)
+			disabled.remove(name);
 		else
-			out.print(s);
+			disabled.add(name);
+
+		LogWriter writer = map.get(getFileName(name));
+		if(writer != null)
+			writer.setEnabled(enable);
+	}
+
+	private synchronized void setEnabled(boolean enable) {
+		if(enable && !isOpen())
+			open();
+		enabled = enable && isOpen();
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	private boolean isOpen() {
+		return (out != null || trace != null);
 	}
-	
+
+	private void open() {
+		try {
+			if(Configuration.MONITOR_TRACE_BINARY) {
+				String traceName = MonitoringTraceWriter.getTraceFileName(fileName);
+				System.out.println("Creating logger..:" +traceName);
+				trace = new MonitoringTraceWriter(traceName, Configuration.MONITOR_TRACE_FLOAT_VALUES, Configuration.LOG_FILE_BUFFER_SIZE);
+			}
+			else {
+				System.out.println("Creating logger..:" +fileName);
+				out = new BufferedChannelWriter(fileName, Configuration.LOG_FILE_BUFFER_SIZE);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			enabled = false;
+			return;
+		}
+		synchronized(LogWriter.class) {
+			if(flusher == null) {
+				flusher = new Flusher();
+				flusher.start();
+				Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+					@Override
+					public void run() {
+						flushAll();
+					}
+				}, "LogWriter-shutdown"));
+			}
+		}
+	}
+
+	/**
+	 * Logs a line "name,time,value", same as printLine(name+","+time+","+value).
+	 * The name is converted by toString() when written in the flusher thread, so it must not change afterwards.
+	 */
+	public synchronized void log(Object name, double time, double value) {
+		if(!enabled)
+			return;
+		nextBatch().add(ENTRY_VALUE, name, time, value);
+		checkFull();
+	}
+
+	public synchronized void print(String s) {
+		if(!enabled)
+			return;
+		checkText();
+		nextBatch().add(ENTRY_TEXT, s, 0, 0);
+		checkFull();
+	}
+
 	public void printLine() {
-		if(out == null)
-			System.err.println("");
+		printLine("");
+	}
+
+	public synchronized void printLine(String s) {
+		if(!enabled)
+			return;
+		checkText();
+		nextBatch().add(ENTRY_LINE, s, 0, 0);
+		checkFull();
+	}
+
+	private void checkText() {
+		if(trace != null)
+			throw new UnsupportedOperationException("LogWriter: only log() can be used with a monitoring trace:"+fileName);
+	}
+
+	private Batch nextBatch() {
+		if(batch == null)
+			batch = new Batch(this, Configuration.LOG_BUFFER_SIZE);
+		return batch;
+	}
+
+	private void checkFull() {
+		if(batch.size == batch.kinds.length)
+			submit();
+	}
+
+	// Hands over the current batch to be written
+	private synchronized void submit() {
+		if(batch == null || batch.size == 0)
+			return;
+		Batch b = batch;
+		batch = null;
+
+		if(Configuration.LOG_ASYNC)
+			flusher.enqueue(b);
 		else
-			out.println();
+			b.write();
+	}
+
+	/**
+	 * Writes all the logged entries to the files.
+	 */
+	public static void flushAll() {
+		List<LogWriter> writers;
+		Flusher f;
+		synchronized(LogWriter.class) {
+			writers = new ArrayList<LogWriter>(map.values());
+			f = flusher;
+		}
+		for(LogWriter writer:writers)
+			writer.submit();
+
+		if(!Configuration.LOG_ASYNC) {
+			for(LogWriter writer:writers)
+				writer.flushSync();
+		}
+		else if(f != null) {
+			f.flush(writers);
+		}
 	}
-	
-	public void printLine(String s) {
-		out.println(s);
+
+	private synchronized void flushSync() {
+		flushFile();
 	}
-		
-	private PrintStream openfile(String name) {
-		PrintStream out = null;
+
+	private void flushFile() {
 		try {
-			out = new PrintStream(name);
+			if(out != null)
+				out.flush();
+			if(trace != null)
+				trace.flush();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
-		return out;
 	}
-	
+
+	// Entries of a log in arrays. Formatted and written by the flusher thread.
+	private static class Batch {
+		final LogWriter owner;
+		final byte[] kinds;
+		final Object[] texts;
+		final double[] times;
+		final double[] values;
+		int size = 0;
+
+		Batch(LogWriter owner, int capacity) {
+			capacity = Math.max(capacity, 1);
+			this.owner = owner;
+			kinds = new byte[capacity];
+			texts = new Object[capacity];
+			times = new double[capacity];
+			values = new double[capacity];
+		}
+
+		void add(byte kind, Object text, double time, double value) {
+			kinds[size] = kind;
+			texts[size] = text;
+			times[size] = time;
+			values[size] = value;
+			size++;
+		}
+
+		void write() {
+			if(owner.trace != null)
+				writeTo(owner.trace);
+			else if(owner.out != null)
+				writeTo(owner.out);
+		}
+
+		private void writeTo(MonitoringTraceWriter trace) {
+			try {
+				for(int i=0; i<size; i++)
+					trace.add(String.valueOf(texts[i]), times[i], values[i]);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		private void writeTo(BufferedChannelWriter out) {
+			StringBuilder sb = new StringBuilder(64);
+			try {
+				for(int i=0; i<size; i++) {
+					sb.setLength(0);
+					sb.append(texts[i]);
+					if(kinds[i] == ENTRY_VALUE)
+						sb.append(',').append(times[i]).append(',').append(values[i]);
+					out.write(sb);
+					if(kinds[i] != ENTRY_TEXT)
+						out.newLine();
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	// Background thread writing batches of all the logs in the order they are submitted
+	private static class Flusher implements Runnable {
+		private final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(QUEUE_CAPACITY);
+
+		void start() {
+			Thread thread = new Thread(this, "LogWriter-flusher");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		void enqueue(Object o) {
+			try {
+				queue.put(o);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("LogWriter: interrupted while writing logs", e);
+			}
+		}
+
+		// Waits until the submitted batches are written, and flushes the files.
+		void flush(List<LogWriter> writers) {
+			FlushRequest request = new FlushRequest(writers);
+			enqueue(request);
+			request.done.acquireUninterruptibly();
+		}
+
+		@Override
+		public void run() {
+			while(true) {
+				Object o;
+				try {
+					o = queue.take();
+				} catch (InterruptedException e) {
+					return;
+				}
+
+				if(o instanceof Batch) {
+					((Batch) o).write();
+				}
+				else {
+					FlushRequest request = (FlushRequest) o;
+					for(LogWriter writer:request.writers)
+						writer.flushFile();
+					request.done.release();
+				}
+			}
+		}
+	}
+
+	private static class FlushRequest {
+		final List<LogWriter> writers;
+		final Semaphore done = new Semaphore(0);
+
+		FlushRequest(List<LogWriter> writers) {
+			this.writers = writers;
+		}
+	}
+
 	 public static String getExtension(String fullPath) {
 	    int dot = fullPath.lastIndexOf(".");
 	    return fullPath.substring(dot + 1);
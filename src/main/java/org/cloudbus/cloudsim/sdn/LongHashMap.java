@@ -0,0 +1,228 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Hash map with primitive long keys using open addressing (linear probing).
+ * No boxing or entry objects are created on get/put/remove.
+ * Null values are not allowed; an empty slot is marked by a null value.
+ *
+ * @param <V> type of values
+ */
+public class LongHashMap<V> {
+	private static final float LOAD_FACTOR = 0.5f;
+
+	private long[] keys;
+	private Object[] values;
+	private int size = 0;
+	private int mask;
+	private int modCount = 0;
+
+	public LongHashMap() {
+		this(16);
+	}
+
+	public LongHashMap(int expectedSize) {
+		int capacity = 16;
+		while(capacity * LOAD_FACTOR < expectedSize)
+			capacity <<= 1;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+
+	private static int hash(long key) {
+		// Mix bits (from MurmurHash3 finalizer), as packed keys differ mostly in a few bits.
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	private int indexOf(long key) {
+		int idx = hash(key) & mask;
+		while(values[idx] != null) {
+			if(keys[idx] == key)
+				return idx;
+			idx = (idx + 1) & mask;
+		}
+		return -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		int idx = indexOf(key);
+		if(idx < 0)
+			return null;
+		return (V) values[idx];
+	}
+
+	public boolean containsKey(long key) {
+		return indexOf(key) >= 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		if(value == null)
+			throw new IllegalArgumentException("LongHashMap does not allow null values");
+
+		int idx = hash(key) & mask;
+		while(values[idx] != null) {
+			if(keys[idx] == key) {
+				V old = (V) values[idx];
+				values[idx] = value;
+				return old;
+			}
+			idx = (idx + 1) & mask;
+		}
+
+		keys[idx] = key;
+		values[idx] = value;
+		size++;
+		modCount++;
+
+		if(size > values.length * LOAD_FACTOR)
+			rehash(values.length << 1);
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		int idx = indexOf(key);
+		if(idx < 0)
+			return null;
+
+		V old = (V) values[idx];
+
+		// Backward shift deletion: move up the following entries of the same probe sequence.
+		int hole = idx;
+		int next = (hole + 1) & mask;
+		while(values[next] != null) {
+			int home = hash(keys[next]) & mask;
+			// Move the entry if its home slot is not in (hole, next] (cyclic)
+			if(((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		values[hole] = null;
+
+		size--;
+		modCount++;
+		return old;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(capacity);
+
+		for(int i=0; i<oldValues.length; i++) {
+			if(oldValues[i] == null)
+				continue;
+
+			int idx = hash(oldKeys[i]) & mask;
+			while(values[idx] != null)
+				idx = (idx + 1) & mask;
+			keys[idx] = oldKeys[i];
+			values[idx] = oldValues[i];
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		for(int i=0; i<values.length; i++)
+			values[i] = null;
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * @return a copy of the keys in this map.
+	 */
+	public long[] keys() {
+		long[] result = new long[size];
+		int n = 0;
+		for(int i=0; i<values.length; i++) {
+			if(values[i] != null)
+				result[n++] = keys[i];
+		}
+		return result;
+	}
+
+	/**
+	 * @return a read-only view of the values in this map.
+	 */
+	public Collection<V> values() {
+		return new AbstractCollection<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return new ValueIterator();
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	private class ValueIterator implements Iterator<V> {
+		private int next = 0;
+		private final int expectedModCount = modCount;
+
+		ValueIterator() {
+			advance();
+		}
+
+		private void advance() {
+			while(next < values.length && values[next] == null)
+				next++;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < values.length;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public V next() {
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if(next >= values.length)
+				throw new NoSuchElementException();
+
+			V value = (V) values[next++];
+			advance();
+			return value;
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package org.cloudbus.cloudsim.sdn;
 
+import java.util.Collection;
 import java.util.LinkedList;
 
 import org.cloudbus.cloudsim.sdn.workload.Transmission;
@@ -41,10 +42,25 @@ public interface PacketScheduler {
 	public int getInTransmissionNum();
 	
 	public void setTimeOut(double timeoutSecond);
+	
+	/**
+	 * @return the absolute time when the earliest transmission in progress times out, or POSITIVE_INFINITY if none.
+	 */
+	public double nextTimeoutTime();
 	public LinkedList<Transmission> getTimedOutTransmission();
 	public void resetTimedOutTransmission();
 
 	public LinkedList<Transmission> getCompletedTransmission();
 	public void resetCompletedTransmission();
 	
+	public boolean hasCompletedTransmission();
+	public boolean hasTimedOutTransmission();
+	
+	/**
+	 * Moves completed (or timed out) transmissions to the given collection without creating a new list,
+	 * and clears them from this scheduler.
+	 */
+	public void drainCompletedTransmission(Collection<Transmission> out);
+	public void drainTimedOutTransmission(Collection<Transmission> out);
+	
 }
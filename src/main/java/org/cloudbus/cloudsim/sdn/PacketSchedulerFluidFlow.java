@@ -0,0 +1,293 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
+import org.cloudbus.cloudsim.sdn.workload.Transmission;
+
+/**
+ * Network packet scheduler implementing space shared approach (processor sharing) as a fluid flow.
+ * Bandwidth is shared equally by the transmissions as in PacketSchedulerSpaceShared,
+ * but transmissions are not updated one by one.
+ * The scheduler keeps a virtual time, which is the amount of bytes sent by each transmission so far,
+ * and every transmission is ordered by its finish tag (virtual time at arrival + size).
+ * Advancing time only increases the virtual time, and completed transmissions are taken
+ * from the head of the queue. The virtual time restarts from 0 whenever no transmission is left.
+ */
+public class PacketSchedulerFluidFlow implements PacketScheduler {
+	private static class Entry implements Comparable<Entry> {
+		final Transmission transmission;
+		final double finishTag;
+		final long seq;
+		boolean removed = false;
+
+		Entry(Transmission transmission, double finishTag, long seq) {
+			this.transmission = transmission;
+			this.finishTag = finishTag;
+			this.seq = seq;
+		}
+
+		@Override
+		public int compareTo(Entry o) {
+			int c = Double.compare(finishTag, o.finishTag);
+			if(c != 0)
+				return c;
+			return Long.compare(seq, o.seq);
+		}
+	}
+
+	// Less than a half byte remaining is regarded as completed, as processed bytes are rounded in other schedulers.
+	private static final double COMPLETION_THRESHOLD = 0.5;
+
+	protected Channel channel;
+
+	// Ordered by finish tag. Removed transmissions are skipped lazily.
+	private PriorityQueue<Entry> finishQueue = new PriorityQueue<Entry>();
+	private HashMap<Transmission, Entry> inTransmission = new HashMap<Transmission, Entry>();
+	private long seq = 0;
+
+	protected ArrayList<Transmission> completed = new ArrayList<Transmission>();	// Reused after being drained
+	protected ArrayList<Transmission> timeoutTransmission = new ArrayList<Transmission>();
+
+	private double virtualTime = 0;	// Bytes sent by each transmission
+	private double unprocessedBytes = 0;	// Fraction of bytes not yet reported for monitoring
+	protected double previousTime;
+
+	protected double timeoutLimit = Double.POSITIVE_INFINITY;	// INFINITE = Never timeout
+	protected DeadlineQueue<Transmission> timeoutQueue = new DeadlineQueue<Transmission>();
+
+	public PacketSchedulerFluidFlow(Channel ch) {
+		this.channel = ch;
+	}
+
+	private double getAllocatedBandwidthPerTransmission() {
+		if(inTransmission.size() == 0) {
+			return channel.getAllocatedBandwidth();
+		}
+
+		return channel.getAllocatedBandwidth()/inTransmission.size();
+	}
+
+	// Advances the virtual time to the current time, without removing completed transmissions.
+	private double advanceVirtualTime() {
+		double currentTime = CloudSim.clock();
+		double timeSpent = currentTime - this.previousTime;
+		if(timeSpent <= 0 || inTransmission.isEmpty())
+			return 0;
+
+		double processedTotal = timeSpent * channel.getAllocatedBandwidth();
+		virtualTime += processedTotal / inTransmission.size();
+		previousTime = currentTime;
+		return processedTotal;
+	}
+
+	@Override
+	public long updatePacketProcessing() {
+		unprocessedBytes += advanceVirtualTime();
+		long processedTotal = (long) unprocessedBytes;
+		unprocessedBytes -= processedTotal;
+
+		// Remove finished transmissions from the head
+		while(!finishQueue.isEmpty()) {
+			Entry e = finishQueue.peek();
+			if(!e.removed && e.finishTag - virtualTime >= COMPLETION_THRESHOLD)
+				break;
+
+			finishQueue.poll();
+			if(e.removed)
+				continue;
+
+			e.transmission.addCompletedLength(e.transmission.getSize());
+			inTransmission.remove(e.transmission);
+			timeoutQueue.remove(e.transmission);
+			completed.add(e.transmission);
+		}
+
+		removeTimeoutTransmissions();
+		compactQueue();
+		resetVirtualTimeIfIdle();
+
+		return processedTotal;
+	}
+
+	private void removeTimeoutTransmissions() {
+		// Transmissions started before (current time - timeout). Cannot complete.
+		for(Transmission tr:timeoutQueue.pollExpired(CloudSim.clock())) {
+			Entry e = inTransmission.remove(tr);
+			e.removed = true;
+			updateTransmissionLength(e);
+			timeoutTransmission.add(tr);
+		}
+	}
+
+	private void compactQueue() {
+		// Drop removed entries when they outnumber the active ones.
+		if(finishQueue.size() > 2 * inTransmission.size() + 16) {
+			finishQueue = new PriorityQueue<Entry>(inTransmission.values());
+		}
+	}
+
+	// Restarts the virtual time from 0 when no transmission is left, so that it does not grow
+	// for the whole life of the channel and finish tags keep their precision in long runs.
+	private void resetVirtualTimeIfIdle() {
+		if(inTransmission.isEmpty()) {
+			virtualTime = 0;
+			finishQueue.clear();	// Only removed entries are left
+		}
+	}
+
+	private double getRemainingLength(Entry e) {
+		double remaining = e.finishTag - virtualTime;
+		if(remaining < 0)
+			return 0;
+		return remaining;
+	}
+
+	private void updateTransmissionLength(Entry e) {
+		long completedLength = e.transmission.getSize() - Math.round(getRemainingLength(e));
+		if(completedLength > 0)
+			e.transmission.addCompletedLength(completedLength);
+	}
+
+	@Override
+	public double addTransmission(Transmission transmission) {
+		// Bandwidth per transmission changes from now on
+		unprocessedBytes += advanceVirtualTime();
+		if(this.inTransmission.isEmpty())
+			previousTime = CloudSim.clock();
+
+		Entry e = new Entry(transmission, virtualTime + transmission.getSize(), seq++);
+		inTransmission.put(transmission, e);
+		finishQueue.add(e);
+		if(this.timeoutLimit != Double.POSITIVE_INFINITY)
+			timeoutQueue.add(transmission, CloudSim.clock() + this.timeoutLimit);
+
+		return estimateFinishTime(transmission);
+	}
+
+	@Override
+	public void removeTransmission(Transmission transmission) {
+		unprocessedBytes += advanceVirtualTime();
+		Entry e = inTransmission.remove(transmission);
+		timeoutQueue.remove(transmission);
+		if(e != null) {
+			e.removed = true;
+			updateTransmissionLength(e);
+		}
+		resetVirtualTimeIfIdle();
+	}
+
+	@Override
+	public double nextFinishTime() {
+		Entry head = null;
+		while(!finishQueue.isEmpty()) {
+			head = finishQueue.peek();
+			if(!head.removed)
+				break;
+			finishQueue.poll();
+			head = null;
+		}
+
+		if(head == null)
+			return Double.POSITIVE_INFINITY;
+
+		double delay = estimateFinishTime(head);
+		if(delay == Double.POSITIVE_INFINITY) {
+			return delay;
+		}
+		else if(delay < CloudSim.getMinTimeBetweenEvents()) {
+			return CloudSim.getMinTimeBetweenEvents();
+		}
+		return delay;
+	}
+
+	@Override
+	public double estimateFinishTime(Transmission t) {
+		Entry e = inTransmission.get(t);
+		if(e == null)
+			return 0;
+		return estimateFinishTime(e);
+	}
+
+	private double estimateFinishTime(Entry e) {
+		double bw = getAllocatedBandwidthPerTransmission();
+		if(bw == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		// Virtual time might not be advanced to the current time yet.
+		double sent = (CloudSim.clock() - previousTime) * bw;
+		double remaining = getRemainingLength(e) - sent;
+		if(remaining < 0)
+			remaining = 0;
+		return remaining / bw;
+	}
+
+	@Override
+	public int getInTransmissionNum() {
+		return inTransmission.size();
+	}
+
+	@Override
+	public void setTimeOut(double timeoutSecond) {
+		timeoutLimit = timeoutSecond;
+	}
+
+	@Override
+	public double nextTimeoutTime() {
+		return timeoutQueue.peekDeadline();
+	}
+
+	@Override
+	public LinkedList<Transmission> getTimedOutTransmission() {
+		return new LinkedList<Transmission>(timeoutTransmission);
+	}
+
+	@Override
+	public void resetTimedOutTransmission() {
+		timeoutTransmission.clear();
+	}
+
+	@Override
+	public LinkedList<Transmission> getCompletedTransmission() {
+		return new LinkedList<Transmission>(completed);
+	}
+
+	@Override
+	public void resetCompletedTransmission() {
+		completed.clear();
+	}
+
+	@Override
+	public boolean hasCompletedTransmission() {
+		return !completed.isEmpty();
+	}
+
+	@Override
+	public boolean hasTimedOutTransmission() {
+		return !timeoutTransmission.isEmpty();
+	}
+
+	@Override
+	public void drainCompletedTransmission(Collection<Transmission> out) {
+		PacketSchedulerSpaceShared.drain(completed, out);
+	}
+
+	@Override
+	public void drainTimedOutTransmission(Collection<Transmission> out) {
+		PacketSchedulerSpaceShared.drain(timeoutTransmission, out);
+	}
+}
@@ -1,8 +1,13 @@
 package org.cloudbus.cloudsim.sdn;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
@@ -17,19 +22,20 @@ import org.cloudbus.cloudsim.sdn.workload.Transmission;
  */
 public class PacketSchedulerSpaceShared implements PacketScheduler {
 	protected LinkedList<Transmission> inTransmission;
-	protected LinkedList<Transmission> completed;
-	protected LinkedList<Transmission> timeoutTransmission;
+	protected ArrayList<Transmission> completed;	// Reused after being drained
+	protected ArrayList<Transmission> timeoutTransmission;
 	protected double previousTime;
 	
 	protected double timeoutLimit = Double.POSITIVE_INFINITY;	// INFINITE = Never timeout
+	protected DeadlineQueue<Transmission> timeoutQueue = new DeadlineQueue<Transmission>();
 	
 	protected Channel channel;
 	
 	public PacketSchedulerSpaceShared(Channel ch) {
 		this.channel = ch;
 		this.inTransmission = new LinkedList<Transmission>();
-		this.completed = new LinkedList<Transmission>();		
-		this.timeoutTransmission = new LinkedList<Transmission>();
+		this.completed = new ArrayList<Transmission>();		
+		this.timeoutTransmission = new ArrayList<Transmission>();
 	}
 
 	
@@ -42,31 +48,30 @@ public class PacketSchedulerSpaceShared implements PacketScheduler {
 		double currentTime = CloudSim.clock();
 		double timeSpent = currentTime - this.previousTime;//NetworkOperatingSystem.round(currentTime - this.previousTime);
 		
-		if(timeSpent <= 0 || this.getInTransmissionNum() == 0)
+		if(timeSpent <= 0 || this.getInTransmissionNum() == 0) {
+			processTimeoutTransmissions();
 			return 0;	// Nothing changed
+		}
 
 		//update the amount of transmission 
 		long processedThisRound =  Math.round(timeSpent * getAllocatedBandwidthPerTransmission());
 		long processedTotal = processedThisRound * inTransmission.size();
 		
 		//update transmission table; remove finished transmission
-		List<Transmission> completedTransmissions = new ArrayList<Transmission>();
-		for(Transmission transmission: inTransmission){
+		Iterator<Transmission> iter = inTransmission.iterator();
+		while(iter.hasNext()) {
+			Transmission transmission = iter.next();
 			transmission.addCompletedLength(processedThisRound);
 			
 			if (transmission.isCompleted()){
-				completedTransmissions.add(transmission);
-				//this.completed.add(transmission);
+				this.completed.add(transmission);
+				timeoutQueue.remove(transmission);
+				iter.remove();
 			}	
 		}
-		
-		this.completed.addAll(completedTransmissions);
-		this.inTransmission.removeAll(completedTransmissions);
 		previousTime=currentTime;
 
-		List<Transmission> timeoutTransmission = getTimeoutTransmissions();
-		this.timeoutTransmission.addAll(timeoutTransmission);
-		this.inTransmission.removeAll(timeoutTransmission);
+		processTimeoutTransmissions();
 		
 		//Log.printLine(CloudSim.clock() + ": Channel.updatePacketProcessing() ("+this.toString()+"):Time spent:"+timeSpent+
 		//		", BW/host:"+getAllocatedBandwidthPerTransmission()+", Processed:"+processedThisRound);
@@ -84,6 +89,8 @@ public class PacketSchedulerSpaceShared implements PacketScheduler {
 			previousTime=CloudSim.clock();
 		
 		this.inTransmission.add(transmission);
+		if(this.timeoutLimit != Double.POSITIVE_INFINITY)
+			timeoutQueue.add(transmission, CloudSim.clock() + this.timeoutLimit);
 		double eft = estimateFinishTime(transmission);
 
 		return eft;
@@ -97,6 +104,7 @@ public class PacketSchedulerSpaceShared implements PacketScheduler {
 	@Override
 	public void removeTransmission(Transmission transmission){
 		inTransmission.remove(transmission);
+		timeoutQueue.remove(transmission);
 	}
 
 	/**
@@ -117,7 +125,17 @@ public class PacketSchedulerSpaceShared implements PacketScheduler {
 
 	@Override
 	public void resetCompletedTransmission() {
-		completed = new LinkedList<Transmission>();
+		completed.clear();
+	}
+	
+	@Override
+	public boolean hasCompletedTransmission() {
+		return !completed.isEmpty();
+	}
+	
+	@Override
+	public void drainCompletedTransmission(Collection<Transmission> out) {
+		drain(completed, out);
 	}
 
 	@Override
@@ -127,7 +145,23 @@ public class PacketSchedulerSpaceShared implements PacketScheduler {
 
 	@Override
 	public void resetTimedOutTransmission() {
-		timeoutTransmission = new LinkedList<Transmission>();
+		timeoutTransmission.clear();
+	}
+	
+	@Override
+	public boolean hasTimedOutTransmission() {
+		return !timeoutTransmission.isEmpty();
+	}
+	
+	@Override
+	public void drainTimedOutTransmission(Collection<Transmission> out) {
+		drain(timeoutTransmission, out);
+	}
+	
+	protected static void drain(ArrayList<Transmission> from, Collection<Transmission> out) {
+		for(int i=0; i<from.size(); i++)
+			out.add(from.get(i));
+		from.clear();
 	}
 
 	@Override
@@ -146,21 +180,31 @@ public class PacketSchedulerSpaceShared implements PacketScheduler {
 	}
 
 	
-	protected List<Transmission> getTimeoutTransmissions() {
-		List<Transmission> timeoutTransmissions = new ArrayList<Transmission>();
-		if(this.timeoutLimit != Double.POSITIVE_INFINITY) {
-			double currentTime = CloudSim.clock();
-			double startTimeLimit = currentTime - this.timeoutLimit;
-			
-			for(Transmission tr:inTransmission) {
-				if(tr.getPacket().getStartTime() < startTimeLimit) {
-					// This Tr is started before (current time - timeout)
-					// Cannot complete.
-					timeoutTransmissions.add(tr);
-				}
-			}
+	protected void processTimeoutTransmissions() {
+		List<Transmission> timeoutTransmission = getTimeoutTransmissions();
+		if(timeoutTransmission.isEmpty())
+			return;
+		
+		this.timeoutTransmission.addAll(timeoutTransmission);
+		
+		// Drop the expired transmissions in one pass, stopping once all of them are found
+		Set<Transmission> expired = Collections.newSetFromMap(new IdentityHashMap<Transmission, Boolean>(timeoutTransmission.size()));
+		expired.addAll(timeoutTransmission);
+		Iterator<Transmission> iter = inTransmission.iterator();
+		while(iter.hasNext() && !expired.isEmpty()) {
+			if(expired.remove(iter.next()))
+				iter.remove();
 		}
-		return timeoutTransmissions;
+	}
+	
+	// Transmissions started before (current time - timeout), which cannot complete.
+	protected List<Transmission> getTimeoutTransmissions() {
+		return timeoutQueue.pollExpired(CloudSim.clock());
+	}
+	
+	@Override
+	public double nextTimeoutTime() {
+		return timeoutQueue.peekDeadline();
 	}
 
 	// The earliest finish time among all transmissions in this channel 
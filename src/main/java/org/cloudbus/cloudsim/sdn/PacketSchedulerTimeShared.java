@@ -1,7 +1,5 @@
 package org.cloudbus.cloudsim.sdn;
 
-import java.util.List;
-
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
 import org.cloudbus.cloudsim.sdn.workload.Transmission;
@@ -24,8 +22,10 @@ public class PacketSchedulerTimeShared extends PacketSchedulerSpaceShared {
 		double currentTime = CloudSim.clock();
 		double timeSpent = currentTime - this.previousTime;//NetworkOperatingSystem.round(currentTime - this.previousTime);
 		
-		if(timeSpent <= 0 || this.getInTransmissionNum() == 0)
+		if(timeSpent <= 0 || this.getInTransmissionNum() == 0) {
+			processTimeoutTransmissions();
 			return 0;	// Nothing changed
+		}
 
 		//update the amount of transmission 
 		long processedThisRound =  Math.round(timeSpent * channel.getAllocatedBandwidth());
@@ -37,6 +37,7 @@ public class PacketSchedulerTimeShared extends PacketSchedulerSpaceShared {
 		if (transmission.isCompleted()){
 			this.completed.add(transmission);
 			this.inTransmission.remove(transmission);
+			timeoutQueue.remove(transmission);
 		}
 		
 		previousTime = currentTime;
@@ -44,9 +45,7 @@ public class PacketSchedulerTimeShared extends PacketSchedulerSpaceShared {
 		//Log.printLine(CloudSim.clock() + ": Channel.updatePacketProcessing() ("+this.toString()+"):Time spent:"+timeSpent+
 		//		", BW/host:"+channel.getAllocatedBandwidth()+", Processed:"+processedThisRound);
 		
-		List<Transmission> timeoutTransmission = getTimeoutTransmissions();
-		this.timeoutTransmission.addAll(timeoutTransmission);
-		this.inTransmission.removeAll(timeoutTransmission);
+		processTimeoutTransmissions();
 		
 		return processedThisRound;
 	}
@@ -23,6 +23,8 @@ import org.cloudbus.cloudsim.core.SimEvent;
 import org.cloudbus.cloudsim.sdn.nos.NetworkOperatingSystem;
 import org.cloudbus.cloudsim.sdn.parsers.VirtualTopologyParser;
 import org.cloudbus.cloudsim.sdn.parsers.WorkloadParser;
+import org.cloudbus.cloudsim.sdn.parsers.WorkloadParserBinary;
+import org.cloudbus.cloudsim.sdn.parsers.WorkloadParserStreaming;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.SDNDatacenter;
 import org.cloudbus.cloudsim.sdn.sfc.ServiceFunction;
 import org.cloudbus.cloudsim.sdn.sfc.ServiceFunctionChainPolicy;
@@ -73,6 +75,11 @@ public class SDNBroker extends SimEntity {
 				Log.printLine(CloudSim.clock() + ": " + getName() + ": Shuttingdown.. VM:" + vm.getId());
 			}
 		}
+		
+		// Workloads after the end of simulation are not read
+		for(WorkloadParser wp:workloadId.keySet()) {
+			wp.close();
+		}
 	}
 	public void printResult() {
 		int numWorkloads=0, numWorkloadsCPU=0, numWorkloadsNetwork =0, 
@@ -88,6 +95,7 @@ public class SDNBroker extends SimEntity {
 		for(WorkloadParser wp:workloadId.keySet()) {
 			WorkloadResultWriter wrw = wp.getResultWriter(); 
 			wrw.printStatistics();
+			wrw.close();
 			
 			numWorkloads += wrw.getWorklaodNum();
 			numTimeout +=  wrw.getTimeoutNum();
@@ -289,8 +297,19 @@ public class SDNBroker extends SimEntity {
 	}
 	
 	private WorkloadParser startWorkloadParser(String workloadFile) {
-		WorkloadParser workParser = new WorkloadParser(workloadFile, this.getId(), new UtilizationModelFull(), 
-				NetworkOperatingSystem.getVmNameToIdMap(), NetworkOperatingSystem.getFlowNameToIdMap());
+		WorkloadParser workParser;
+		if(WorkloadParserBinary.isBinaryWorkload(workloadFile))
+			workParser = new WorkloadParserBinary(workloadFile, this.getId(), new UtilizationModelFull(), 
+					NetworkOperatingSystem.getVmNameToIdMap(), NetworkOperatingSystem.getFlowNameToIdMap());
+		else if(Configuration.WORKLOAD_PARSER_STREAMING || Configuration.WORKLOAD_PREFETCH)
+			workParser = new WorkloadParserStreaming(workloadFile, this.getId(), new UtilizationModelFull(), 
+					NetworkOperatingSystem.getVmNameToIdMap(), NetworkOperatingSystem.getFlowNameToIdMap());
+		else
+			workParser = new WorkloadParser(workloadFile, this.getId(), new UtilizationModelFull(), 
+					NetworkOperatingSystem.getVmNameToIdMap(), NetworkOperatingSystem.getFlowNameToIdMap());
+		
+		if(Configuration.WORKLOAD_PREFETCH)
+			workParser.enablePrefetching();
 		
 		//System.err.println("SDNBroker.startWorkloadParser : DEBUGGGGGGGGGGG REMOVE here!");
 		workParser.forceStartTime(experimentStartTime);
@@ -0,0 +1,53 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.monitor;
+
+import org.cloudbus.cloudsim.sdn.Configuration;
+
+/**
+ * Decides what is monitored at every Configuration.monitoringTimeInterval.
+ *
+ * Utilization history (MonitoringValues) is kept if Configuration.MONITOR_HISTORY_ALWAYS is set,
+ * or if a policy needs it (overbooking / migration, SFC auto-scaling), see requireHistory().
+ * Monitoring logs are written per entity type (Configuration.MONITOR_LOG_*) for 1 in
+ * Configuration.MONITOR_LOG_SAMPLING entities. An entity type neither logged nor kept in history
+ * is not visited at all. Energy consumption is accounted regardless of these settings.
+ */
+public class MonitoringSettings {
+	private static boolean historyRequired = false;
+
+	/** Called by a NOS whose policies read the utilization history. */
+	public static void requireHistory() {
+		historyRequired = true;
+	}
+
+	/** Called when a simulation starts, before the policies require history again. */
+	public static void reset() {
+		historyRequired = false;
+	}
+
+	public static boolean isHistoryEnabled() {
+		return Configuration.MONITOR_HISTORY_ALWAYS || historyRequired;
+	}
+
+	/** Whether the entity is logged, in a log family enabled by logFamily. */
+	public static boolean isLogged(boolean logFamily, int entityId) {
+		if(!logFamily || !Configuration.LOG_ENABLE)
+			return false;
+		int sampling = Configuration.MONITOR_LOG_SAMPLING;
+		return (sampling <= 1 || Math.floorMod(entityId, sampling) == 0);
+	}
+
+	public static boolean isLinkMonitored() {
+		return isHistoryEnabled() || (Configuration.MONITOR_LOG_LINK && Configuration.LOG_ENABLE);
+	}
+
+	public static boolean isVmMonitored() {
+		return isHistoryEnabled() || (Configuration.MONITOR_LOG_VM && Configuration.LOG_ENABLE);
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.monitor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a monitoring trace written by MonitoringTraceWriter and converts it back to "name,time,value" CSV lines.
+ * Float values are printed as Float.toString(), so they may have fewer digits than the original text.
+ *
+ * Usage: MonitoringTraceExporter input.mtr [output.csv]
+ */
+public class MonitoringTraceExporter {
+	/** Receives the samples of a trace in the written order. */
+	public interface SampleHandler {
+		public void sample(String name, double time, double value) throws IOException;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if(args.length < 1) {
+			System.err.println("Usage: MonitoringTraceExporter input"+MonitoringTraceWriter.FILE_EXTENSION+" [output.csv]");
+			return;
+		}
+
+		String output = (args.length > 1) ? args[1] : getCsvFileName(args[0]);
+		long num = exportCsv(args[0], output);
+		System.out.println("Exported "+num+" samples: "+args[0]+" -> "+output);
+	}
+
+	public static String getCsvFileName(String traceFile) {
+		int indexDot = traceFile.lastIndexOf('.');
+		if(indexDot > traceFile.lastIndexOf('/'))
+			traceFile = traceFile.substring(0, indexDot);
+		return traceFile + ".csv";
+	}
+
+	/**
+	 * Converts the trace into CSV.
+	 * @return the number of samples
+	 */
+	public static long exportCsv(String traceFile, String csvFile) throws IOException {
+		try (final Writer out = new BufferedWriter(new FileWriter(csvFile))) {
+			final String lineSeparator = System.lineSeparator();
+			final boolean[] floatValues = new boolean[1];
+			final StringBuilder sb = new StringBuilder(64);
+			return read(traceFile, floatValues, new SampleHandler() {
+				@Override
+				public void sample(String name, double time, double value) throws IOException {
+					sb.setLength(0);
+					sb.append(name).append(',').append(time).append(',');
+					if(floatValues[0])
+						sb.append((float) value);
+					else
+						sb.append(value);
+					sb.append(lineSeparator);
+					out.append(sb);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Reads all the samples of the trace.
+	 * @param floatValues set to true (at index 0) before the first sample if values are stored as float
+	 * @return the number of samples
+	 */
+	public static long read(String traceFile, boolean[] floatValues, SampleHandler handler) throws IOException {
+		long num = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(traceFile), 1 << 16))) {
+			if(in.readInt() != MonitoringTraceWriter.MAGIC)
+				throw new IllegalArgumentException("Not a monitoring trace file:"+traceFile);
+			int version = in.readInt();
+			if(version != MonitoringTraceWriter.VERSION)
+				throw new IllegalArgumentException("Unsupported monitoring trace version "+version+":"+traceFile);
+			boolean isFloat = (in.readByte() == MonitoringTraceWriter.VALUE_FLOAT);
+			if(floatValues != null)
+				floatValues[0] = isFloat;
+
+			List<String> names = new ArrayList<String>();
+			int[] ids = new int[MonitoringTraceWriter.BLOCK_SIZE];
+			double[] times = new double[MonitoringTraceWriter.BLOCK_SIZE];
+
+			while(true) {
+				int type;
+				try {
+					type = in.readByte();
+				} catch (EOFException e) {
+					break;	// End of file between records
+				}
+
+				if(type == MonitoringTraceWriter.RECORD_NAME) {
+					byte[] b = new byte[in.readInt()];
+					in.readFully(b);
+					names.add(new String(b, StandardCharsets.UTF_8));
+				}
+				else if(type == MonitoringTraceWriter.RECORD_BLOCK) {
+					int n = in.readInt();
+					if(n > ids.length) {
+						ids = new int[n];
+						times = new double[n];
+					}
+					for(int i=0; i<n; i++)
+						ids[i] = readVarint(in);
+
+					int numRuns = in.readInt();
+					int pos = 0;
+					for(int r=0; r<numRuns; r++) {
+						double time = in.readDouble();
+						int count = readVarint(in);
+						for(int i=0; i<count; i++)
+							times[pos++] = time;
+					}
+					if(pos != n)
+						throw new IllegalArgumentException("Corrupted monitoring trace (time runs):"+traceFile);
+
+					for(int i=0; i<n; i++) {
+						double value = isFloat ? in.readFloat() : in.readDouble();
+						handler.sample(names.get(ids[i]), times[i], value);
+					}
+					num += n;
+				}
+				else {
+					throw new IllegalArgumentException("Corrupted monitoring trace (record type "+type+"):"+traceFile);
+				}
+			}
+		}
+		return num;
+	}
+
+	private static int readVarint(DataInputStream in) throws IOException {
+		int v = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.readUnsignedByte();
+			v |= (b & 0x7F) << shift;
+			shift += 7;
+		} while((b & 0x80) != 0);
+		return v;
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.monitor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.sdn.BufferedChannelWriter;
+
+/**
+ * Writes monitoring samples (name, time, value) of one metric in a columnar binary trace,
+ * instead of "name,time,value" text lines. Use MonitoringTraceExporter to convert it back to CSV.
+ *
+ * File format (big-endian) : int MAGIC, int VERSION, byte valueType (VALUE_FLOAT or VALUE_DOUBLE),
+ *   then records until the end of file.
+ *   Name record  : byte RECORD_NAME, int length, byte[] UTF-8 name. The n-th name record defines the entity id n.
+ *   Block record : byte RECORD_BLOCK, int numSamples (up to BLOCK_SIZE),
+ *                  varint[] entity id of each sample,
+ *                  int numRuns, (double time, varint numSamples)[] runs of samples with the same time,
+ *                  float[] or double[] value of each sample.
+ * Names are written before the first block using them.
+ * Samples of one monitoring round share the time, so a round of thousands of entities takes a single run.
+ */
+public class MonitoringTraceWriter {
+	public static final String FILE_EXTENSION = ".mtr";
+	public static final int MAGIC = 0x43534D54;	// "CSMT"
+	public static final int VERSION = 1;
+	public static final byte VALUE_FLOAT = 0;
+	public static final byte VALUE_DOUBLE = 1;
+	public static final byte RECORD_NAME = 'N';
+	public static final byte RECORD_BLOCK = 'B';
+	public static final int BLOCK_SIZE = 8192;
+
+	private final BufferedChannelWriter out;
+	private final boolean floatValues;
+	private final Map<String, Integer> entityIds = new HashMap<String, Integer>();
+
+	private int num = 0;
+	private final int[] ids = new int[BLOCK_SIZE];
+	private final double[] times = new double[BLOCK_SIZE];
+	private final double[] values = new double[BLOCK_SIZE];
+
+	public MonitoringTraceWriter(String fileName, boolean floatValues, int bufferSize) throws IOException {
+		this.floatValues = floatValues;
+		out = new BufferedChannelWriter(fileName, bufferSize);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeByte(floatValues ? VALUE_FLOAT : VALUE_DOUBLE);
+	}
+
+	/** Replaces the extension of a log file name (e.g. host_utilization.csv) with FILE_EXTENSION. */
+	public static String getTraceFileName(String fileName) {
+		int indexDot = fileName.lastIndexOf('.');
+		if(indexDot > fileName.lastIndexOf('/'))
+			fileName = fileName.substring(0, indexDot);
+		return fileName + FILE_EXTENSION;
+	}
+
+	public void add(String name, double time, double value) throws IOException {
+		Integer id = entityIds.get(name);
+		if(id == null) {
+			id = entityIds.size();
+			entityIds.put(name, id);
+			writeName(name);
+		}
+
+		ids[num] = id;
+		times[num] = time;
+		values[num] = value;
+		num++;
+		if(num == BLOCK_SIZE)
+			writeBlock();
+	}
+
+	private void writeName(String name) throws IOException {
+		byte[] b = name.getBytes(StandardCharsets.UTF_8);
+		out.writeByte(RECORD_NAME);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	private void writeBlock() throws IOException {
+		if(num == 0)
+			return;
+
+		out.writeByte(RECORD_BLOCK);
+		out.writeInt(num);
+		for(int i=0; i<num; i++)
+			writeVarint(ids[i]);
+
+		int numRuns = 1;
+		for(int i=1; i<num; i++) {
+			if(!sameTime(times[i], times[i-1]))
+				numRuns++;
+		}
+		out.writeInt(numRuns);
+		int runStart = 0;
+		for(int i=1; i<=num; i++) {
+			if(i == num || !sameTime(times[i], times[i-1])) {
+				out.writeDouble(times[runStart]);
+				writeVarint(i - runStart);
+				runStart = i;
+			}
+		}
+
+		for(int i=0; i<num; i++) {
+			if(floatValues)
+				out.writeInt(Float.floatToRawIntBits((float) values[i]));
+			else
+				out.writeDouble(values[i]);
+		}
+		num = 0;
+	}
+
+	private static boolean sameTime(double a, double b) {
+		return Double.doubleToRawLongBits(a) == Double.doubleToRawLongBits(b);
+	}
+
+	private void writeVarint(int v) throws IOException {
+		while((v & ~0x7F) != 0) {
+			out.writeByte((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		out.writeByte(v);
+	}
+
+	/** Writes the samples so far as a block, possibly smaller than BLOCK_SIZE. */
+	public void flush() throws IOException {
+		writeBlock();
+		out.flush();
+	}
+
+	public void close() throws IOException {
+		writeBlock();
+		out.close();
+	}
+}
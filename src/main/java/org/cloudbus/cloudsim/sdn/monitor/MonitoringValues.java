@@ -13,6 +13,15 @@ import java.util.List;
 
 import org.cloudbus.cloudsim.sdn.Configuration;
 
+/**
+ * History of a monitoring metric. Value i applies from timestamp i-1 to timestamp i
+ * (the first value from time 0).
+ *
+ * Points are kept in a ring buffer of primitive arrays, so outdated points are removed without shifting.
+ * A running sum of value * duration is kept for each point, so that window queries binary-search the
+ * window bounds and take the area from the running sums instead of scanning all the points.
+ * If timestamps are added out of order, negative, or with non-finite values, queries fall back to scanning.
+ */
 public class MonitoringValues {
 	public enum ValueType {
 		Utilization_Percentage,
@@ -20,61 +29,103 @@ public class MonitoringValues {
 		General_Float,
 		Time_Second,
 	}
-	
+
+	private static final int INITIAL_CAPACITY = 16;
+
 	private ValueType valueType;
 
-	/**
-	 * The values of the monitoring metric
-	 */
-	private ArrayList<Double> values;
-	/**
-	 * The timestamps of the monitoring metric
-	 */
-	private ArrayList<Double> timestamps;
-	
+	// Ring buffer: logical index i is at (head + i) & (capacity - 1)
+	private double[] timestamps;
+	private double[] values;
+	private double[] areas;	// Running sum of value * (timestamp - previous timestamp), including the point
+	private int head = 0;
+	private int size = 0;
+
+	private boolean scanOnly = false;	// Points not suitable for the running sums were added
+	private long version = 0;	// Incremented whenever the points change
+
 	private double maxDurationToKeep;
 
 	/**
 	 * The constuctor of the class.
-	 * 
-	 * @param value
-	 *            the monitoring value
-	 * @param timestamp
-	 *            the timestamps
+	 *
+	 * @param type
+	 *            the type of the monitoring values
+	 * @param maxDurationToKeep
+	 *            the duration of the history to keep
 	 */
 	public MonitoringValues(ValueType type, double maxDurationToKeep) {
-		values = new ArrayList<Double>();
-		timestamps = new ArrayList<Double>();
+		timestamps = new double[INITIAL_CAPACITY];
+		values = new double[INITIAL_CAPACITY];
+		areas = new double[INITIAL_CAPACITY];
 		this.valueType = type;
 		this.maxDurationToKeep = maxDurationToKeep;
 	}
-	
+
 	public MonitoringValues(ValueType type) {
 		this(type, Configuration.migrationTimeInterval*2);
 	}
-	
+
+	private int index(int i) {
+		return (head + i) & (timestamps.length - 1);
+	}
+
+	private double time(int i) {
+		return timestamps[index(i)];
+	}
+
+	private double value(int i) {
+		return values[index(i)];
+	}
+
+	private double area(int i) {
+		return areas[index(i)];
+	}
+
 	private void removeOutdatedPoints(double currentTime) {
 		double timeToRemove = currentTime - this.maxDurationToKeep;
-		
-		while(timestamps.size() > 1) {
-			double nextTime = timestamps.get(1);
+
+		while(size > 1) {
+			double nextTime = time(1);
 			if(nextTime < timeToRemove) {
-				timestamps.remove(0);
-				values.remove(0);
+				head = index(1);
+				size--;
 			}
 			else {
 				break;
 			}
 		}
 	}
-	
+
+	private void grow() {
+		int capacity = timestamps.length;
+		double[] newTimestamps = new double[capacity * 2];
+		double[] newValues = new double[capacity * 2];
+		double[] newAreas = new double[capacity * 2];
+		for(int i=0; i<size; i++) {
+			int j = index(i);
+			newTimestamps[i] = timestamps[j];
+			newValues[i] = values[j];
+			newAreas[i] = areas[j];
+		}
+		timestamps = newTimestamps;
+		values = newValues;
+		areas = newAreas;
+		head = 0;
+	}
+
 	public int getNumberOfPoints() {
-		return values.size();
+		return size;
+	}
+
+	/** Changes whenever points are added or replaced, to detect outdated results computed from the history. */
+	public long getVersion() {
+		return version;
 	}
 
 	/**
 	 * Add new value and timestamp to the variables.
-	 * 
+	 *
 	 * @param value
 	 *            the monitoring value
 	 * @param timestamp
@@ -82,37 +133,139 @@ public class MonitoringValues {
 	 */
 	public void add(double value, double timestamp) {
 		removeOutdatedPoints(timestamp);
-		
-		if(values.size() >= 1 && values.get(values.size()-1) == value)
+
+		if(size >= 1 && value(size-1) == value)
 		{
 			// Remove the last one (= duplicate)
-			values.remove(values.size()-1);
-			timestamps.remove(timestamps.size()-1);
+			size--;
+		}
+
+		if(size == timestamps.length)
+			grow();
+
+		double prevTime = (size > 0) ? time(size-1) : 0;
+		double prevArea = (size > 0) ? area(size-1) : 0;
+		if(timestamp < prevTime || timestamp < 0 || Double.isNaN(timestamp) || Double.isInfinite(value) || Double.isNaN(value))
+			scanOnly = true;
+
+		int j = index(size);
+		timestamps[j] = timestamp;
+		values[j] = value;
+		areas[j] = prevArea + value * (timestamp - prevTime);
+		size++;
+		version++;
+	}
+
+	private void reset(List<Double> newTimestamps, List<Double> newValues) {
+		int n = Math.min(newTimestamps.size(), newValues.size());
+		head = 0;
+		size = 0;
+		scanOnly = false;
+		while(timestamps.length < n)
+			grow();
+
+		double prevTime = 0, prevArea = 0;
+		for(int i=0; i<n; i++) {
+			double t = newTimestamps.get(i);
+			double v = newValues.get(i);
+			if(t < prevTime || t < 0 || Double.isNaN(t) || Double.isInfinite(v) || Double.isNaN(v))
+				scanOnly = true;
+			timestamps[i] = t;
+			values[i] = v;
+			areas[i] = prevArea + v * (t - prevTime);
+			prevTime = t;
+			prevArea = areas[i];
 		}
-		
-//		if(value > 1.5) {
-//			System.err.println("Too high value!");
-//		}
-		values.add(value);
-		timestamps.add(timestamp);
+		size = n;
+		version++;
 	}
-	
 
 	/**
 	 * Get the values.
-	 * 
-	 * @return the value arrayList.
+	 *
+	 * @return a copy of the values.
 	 */
 	public List<Double> getValues() {
-		return values;
+		List<Double> list = new ArrayList<Double>(size);
+		for(int i=0; i<size; i++)
+			list.add(value(i));
+		return list;
+	}
+
+	// Number of points with timestamp < t (lower == true) or <= t (lower == false)
+	private int countBefore(double t, boolean lower) {
+		int lo = 0, hi = size;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			double m = time(mid);
+			if(lower ? (m < t) : (m <= t))
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	// Sum of value * duration of points from..to (inclusive). The first point applies from time 0.
+	private double areaBetween(int from, int to) {
+		if(from > to)
+			return 0;
+		if(from == 0)
+			return value(0) * time(0) + (area(to) - area(0));
+		return area(to) - area(from-1);
+	}
+
+	// Integral of the values from time a to b (a < b <= the last timestamp)
+	private double areaWindow(double a, double b) {
+		int i = countBefore(a, false);	// Point applying just after a
+		int j = countBefore(b, true);	// Point applying at b
+		if(i == j)
+			return value(i) * (b - a);
+		return value(i) * (time(i) - a) + areaBetween(i+1, j-1) + value(j) * (b - time(j-1));
 	}
 
 	public double [] getValuePoints(double startTime, double endTime, double interval) {
+		if(scanOnly)
+			return getValuePointsScan(startTime, endTime, interval);
+
+		startTime = startTime > 0 ? startTime : 0;
+
+		int numPoints = (int) Math.ceil((endTime-startTime)/interval);
+		if(numPoints == 0) return null;
+
+		double [] points = new double[numPoints];
+		double startInterval = startTime;
+		double endInterval = startTime + interval;
+		int j=0;
+		double lastTime = (size > 0) ? time(size-1) : 0;
+
+		do {
+			// Calculate the average values between start and end time
+			endInterval =  endInterval > endTime ? endTime : endInterval;
+			double average = 0;
+
+			if(size > 0 && lastTime > startInterval) {
+				double t = endInterval < lastTime ? endInterval : lastTime;
+				double totalDuration = t - startInterval;
+				if(totalDuration != 0)
+					average = areaWindow(startInterval, t) / totalDuration;
+			}
+
+			points[j++] = average;
+			startInterval = endInterval;
+			endInterval += interval;
+		}
+		while(endInterval <= endTime);
+
+		return points;
+	}
+
+	private double [] getValuePointsScan(double startTime, double endTime, double interval) {
 		startTime = startTime > 0 ? startTime : 0;
-		
+
 		int numPoints = (int) Math.ceil((endTime-startTime)/interval);
 		if(numPoints == 0) return null;
-		
+
 		double [] points = new double[numPoints];
 		double startInterval = startTime;
 		double endInterval = startTime + interval;
@@ -124,15 +277,15 @@ public class MonitoringValues {
 			double sum = 0;
 			double totalDuration = 0;
 			double t_prev = startInterval;
-			double average = 0; 
-			
-			while(i < timestamps.size()) {
-				double t = timestamps.get(i);
+			double average = 0;
+
+			while(i < size) {
+				double t = time(i);
 				if(t > startInterval) {
 					if(t > endInterval) {
 						t = endInterval;
 					}
-					double v = values.get(i);
+					double v = value(i);
 					sum += v * (t-t_prev);
 					totalDuration += (t-t_prev);
 					t_prev = t;
@@ -145,71 +298,125 @@ public class MonitoringValues {
 			if(totalDuration != 0) {
 				average = sum / totalDuration;
 			}
-			
+
 			points[j++] = average;
 			startInterval = endInterval;
 			endInterval += interval;
 		}
 		while(endInterval <= endTime);
-		
+
 		return points;
 	}
-	
+
 
 	/**
 	 * Get the timestamps
-	 * 
-	 * @return the timestamps arrayList.
+	 *
+	 * @return a copy of the timestamps.
 	 */
 	public List<Double> getTimestamps() {
-		return timestamps;
+		List<Double> list = new ArrayList<Double>(size);
+		for(int i=0; i<size; i++)
+			list.add(time(i));
+		return list;
 	}
 
 	/**
 	 * Set the values.
-	 * 
+	 *
 	 * @param values
 	 *            the value arrayList.
 	 */
 	public void setValues(ArrayList<Double> values) {
-		this.values = values;
+		reset(getTimestamps(), values);
 	}
 
 	/**
 	 * Set the timestamps
-	 * 
+	 *
 	 * @param timestamps
 	 *            the timestamps arrayList.
 	 */
 	public void setTimestamps(ArrayList<Double> timestamps) {
-		this.timestamps = timestamps;
+		reset(timestamps, getValues());
 	}
 
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
-		for(int i=0; i<timestamps.size(); i++) {
+		for(int i=0; i<size; i++) {
 			if(valueType == ValueType.Utilization_Percentage)
-				sb.append(String.format("%.0f:%.2f%%\n", timestamps.get(i), values.get(i)*100));
+				sb.append(String.format("%.0f:%.2f%%\n", time(i), value(i)*100));
 			else if(valueType == ValueType.DataRate_BytesPerSecond) {
-				sb.append(String.format("%.0f:%.2f KBytesPerSeconds\n", timestamps.get(i), values.get(i)/1000));
+				sb.append(String.format("%.0f:%.2f KBytesPerSeconds\n", time(i), value(i)/1000));
 			}
 			else {
-				sb.append(String.format("%.0f:%.2f\n", timestamps.get(i), values.get(i)));
+				sb.append(String.format("%.0f:%.2f\n", time(i), value(i)));
 			}
-			
+
 		}
 		return sb.toString();
 	}
-	
+
 	public double getAverageValue(double startTime, double endTime) {
+		if(scanOnly)
+			return getAverageValueScan(startTime, endTime);
+		if(size == 0 || !(endTime > 0))
+			return 0;
+
+		// The same points as the scan: the last point starting before endTime (L),
+		// back to the first one starting at or before startTime (F).
+		int last = Math.min(countBefore(endTime, true), size-1);
+		int upto = countBefore(startTime, false);
+		int first = (upto >= 1 || startTime >= 0) ? Math.min(upto, last) : -1;
+
+		double sum = 0;
+		double totalDuration = 0;
+
+		if(last > first) {
+			// The last point, up to endTime
+			double t_prev = (last > 0) ? time(last-1) : 0;
+			double t = time(last) > endTime ? endTime : time(last);
+			sum += value(last) * (t - t_prev);
+			totalDuration += (t - t_prev);
+
+			// Points entirely in the window
+			int from = first + 1;
+			int to = last - 1;
+			if(from <= to) {
+				sum += areaBetween(from, to);
+				totalDuration += time(to) - (from > 0 ? time(from-1) : 0);
+			}
+		}
+		if(first >= 0) {
+			double t_prev = (first > 0) ? time(first-1) : 0;
+			double t = time(first);
+			if(t > endTime) {
+				t = endTime;
+			}
+			if(t_prev < startTime) {
+				t = startTime;
+			}
+			sum += value(first) * (t - t_prev);
+			totalDuration += (t - t_prev);
+		}
+
+		double average = 0;
+		if(totalDuration != 0) {
+			average = sum / totalDuration;
+		}
+
+		return average;
+	}
+
+	private double getAverageValueScan(double startTime, double endTime) {
 		// Calculate the average values between start and end time
 		double sum = 0;
 		double totalDuration = 0;
 
-		for(int i=timestamps.size()-1; i>=0; i--)
+		for(int i=size-1; i>=0; i--)
 		{
-			double t = timestamps.get(i);
-			double t_prev =  i > 0 ? timestamps.get(i-1) : 0;
+			double t = time(i);
+			double t_prev =  i > 0 ? time(i-1) : 0;
 
 			if(t_prev < endTime)
 			{
@@ -219,7 +426,7 @@ public class MonitoringValues {
 				if(t_prev < startTime) {
 					t = startTime;
 				}
-				double v = values.get(i);
+				double v = value(i);
 				sum += v * (t-t_prev);
 				totalDuration += (t-t_prev);
 
@@ -229,29 +436,35 @@ public class MonitoringValues {
 				}
 			}
 		}
-		
-		double average = 0; 
+
+		double average = 0;
 		if(totalDuration != 0) {
 			average = sum / totalDuration;
 		}
-		
+
 		return average;
 	}
-	
+
 	/**
 	 * Calculate the percentile of the overutilized time (Percentile of the time that utilization level was above the threshold)
-	 * 
-	 * @param value
-	 *            the monitoring value
-	 * @param timestamp
+	 *
+	 * @param startTime
+	 *            start of the window
+	 * @param endTime
+	 *            end of the window
+	 * @param overutilizedThreshold
+	 *            values above the threshold are overutilized
 	 */
 	public double getOverUtilizedPercentile(double startTime, double endTime, double overutilizedThreshold) {
 		double overutilizedDuration = 0;
 		double totalDuration = 0;
 
-		for(int i=0; i<timestamps.size(); i++) {
-			double t = timestamps.get(i);
-			double t_prev =  i-1 >= 0 ? timestamps.get(i-1) : 0;
+		// Points before the window are skipped by a binary search
+		int start = scanOnly ? 0 : countBefore(startTime, false);
+
+		for(int i=start; i<size; i++) {
+			double t = time(i);
+			double t_prev =  i-1 >= 0 ? time(i-1) : 0;
 			if(t > startTime) {
 				if(t_prev < startTime) {
 					t_prev = startTime;
@@ -259,23 +472,23 @@ public class MonitoringValues {
 				if(t > endTime) {
 					t = endTime;
 				}
-				double v = values.get(i);
+				double v = value(i);
 				if(v > overutilizedThreshold) {
 					overutilizedDuration += (t-t_prev);
 				}
 				totalDuration += (t-t_prev);
-				
+
 				if(t >= endTime) {
 					break;
 				}
 			}
 		}
-		
-		double percentile = 0; 
+
+		double percentile = 0;
 		if(totalDuration != 0) {
 			percentile = overutilizedDuration / totalDuration;
 		}
-		
+
 		return percentile;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,142 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn.nos;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
+
+/**
+ * Indexed min-heap of channels keyed by the absolute simulation time
+ * at which each channel has to be processed next (projected completion time).
+ * A channel is re-keyed only when its bandwidth or its set of transmissions changes,
+ * so that finding the next event and the channels due at that time does not scan all channels.
+ */
+public class ChannelFinishTimeIndex {
+	private Channel[] heap = new Channel[16];
+	private double[] times = new double[16];
+	private int size = 0;
+
+	// Channel -> position in the heap
+	private Map<Channel, Integer> positions = new HashMap<Channel, Integer>();
+
+	public void update(Channel ch, double time) {
+		Integer pos = positions.get(ch);
+		if(pos == null) {
+			if(size == heap.length) {
+				heap = Arrays.copyOf(heap, size*2);
+				times = Arrays.copyOf(times, size*2);
+			}
+			set(size, ch, time);
+			siftUp(size++);
+			return;
+		}
+
+		double oldTime = times[pos];
+		times[pos] = time;
+		if(time < oldTime)
+			siftUp(pos);
+		else
+			siftDown(pos);
+	}
+
+	public boolean remove(Channel ch) {
+		Integer pos = positions.remove(ch);
+		if(pos == null)
+			return false;
+
+		size--;
+		if(pos != size) {
+			double oldTime = times[pos];
+			set(pos, heap[size], times[size]);
+			if(times[pos] < oldTime)
+				siftUp(pos);
+			else
+				siftDown(pos);
+		}
+		heap[size] = null;
+		return true;
+	}
+
+	public boolean contains(Channel ch) {
+		return positions.containsKey(ch);
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the earliest scheduled time, or POSITIVE_INFINITY if no channel is scheduled.
+	 */
+	public double peekTime() {
+		if(size == 0)
+			return Double.POSITIVE_INFINITY;
+		return times[0];
+	}
+
+	/**
+	 * Removes all channels scheduled at or before the given time, and adds them to the given list.
+	 * Each channel is returned at most once, even if it is re-keyed by the caller afterwards.
+	 */
+	public void pollDue(double time, List<Channel> due) {
+		while(size > 0 && times[0] <= time) {
+			Channel ch = heap[0];
+			remove(ch);
+			due.add(ch);
+		}
+	}
+
+	private void set(int pos, Channel ch, double time) {
+		heap[pos] = ch;
+		times[pos] = time;
+		positions.put(ch, pos);
+	}
+
+	private void swap(int a, int b) {
+		Channel ch = heap[a];
+		double time = times[a];
+		set(a, heap[b], times[b]);
+		set(b, ch, time);
+	}
+
+	private void siftUp(int pos) {
+		while(pos > 0) {
+			int parent = (pos-1)/2;
+			if(times[parent] <= times[pos])
+				break;
+			swap(pos, parent);
+			pos = parent;
+		}
+	}
+
+	private void siftDown(int pos) {
+		while(true) {
+			int left = pos*2+1;
+			if(left >= size)
+				break;
+
+			int smallest = left;
+			if(left+1 < size && times[left+1] < times[left])
+				smallest = left+1;
+
+			if(times[pos] <= times[smallest])
+				break;
+			swap(pos, smallest);
+			pos = smallest;
+		}
+	}
+}
@@ -1,18 +1,26 @@
 package org.cloudbus.cloudsim.sdn.nos;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.sdn.LongHashMap;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.Link;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.Node;
-import org.cloudbus.cloudsim.sdn.physicalcomponents.SDNHost;
+import org.cloudbus.cloudsim.sdn.policies.bwallocation.BandwidthAllocationPolicy;
+import org.cloudbus.cloudsim.sdn.policies.bwallocation.BandwidthAllocationPolicyPerLinkShare;
 import org.cloudbus.cloudsim.sdn.sfc.ServiceFunctionForwarder;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.FlowKey;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.FlowPath;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.SDNVm;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.VirtualNetworkMapper;
+import org.cloudbus.cloudsim.sdn.workload.Transmission;
 
 public class ChannelManager {
 	protected NetworkOperatingSystem nos = null;
@@ -20,9 +28,24 @@ public class ChannelManager {
 	protected ServiceFunctionForwarder sfcForwarder = null;
 	
 	// Processing requests
-	protected HashMap<String, Channel> channelTable = new HashMap<String, Channel>();	// getKey(fromVM, toVM, flowID) -> Channel
+	protected LongHashMap<Channel> channelTable = new LongHashMap<Channel>();	// getChannelKey(fromVM, toVM, flowID) -> Channel
 	protected List<Channel> tempRemovedChannels = new LinkedList<Channel>();
 	
+	// Channels with active transmissions, ordered by the time they have to be processed next
+	protected ChannelFinishTimeIndex finishTimeIndex = new ChannelFinishTimeIndex();
+	protected long totalNumPackets = 0;
+	
+	// Links whose channels or bandwidth requests have changed since the last adjustment
+	protected Set<Link> changedLinks = new LinkedHashSet<Link>();
+	
+	// Buffers reused by every packet processing event, to avoid allocations per event
+	private final ArrayList<Channel> dueChannels = new ArrayList<Channel>();
+	private final ArrayList<Channel> completeChannels = new ArrayList<Channel>();
+	private final ArrayList<Transmission> arrivedPackets = new ArrayList<Transmission>();
+	private final ArrayList<Transmission> failedPackets = new ArrayList<Transmission>();
+	
+	protected BandwidthAllocationPolicy bwAllocationPolicy = new BandwidthAllocationPolicyPerLinkShare();
+	
 	public ChannelManager(NetworkOperatingSystem nos, VirtualNetworkMapper vnMapper,
 			ServiceFunctionForwarder sfcForwarder) {
 		this.nos = nos;
@@ -30,17 +53,17 @@ public class ChannelManager {
 		this.sfcForwarder = sfcForwarder;
 	}
 	
+	public void setBandwidthAllocationPolicy(BandwidthAllocationPolicy bwAllocationPolicy) {
+		this.bwAllocationPolicy = bwAllocationPolicy;
+	}
+	
 	public Channel createChannel(int src, int dst, int flowId, Node srcNode) {
 		// For dynamic routing, rebuild forwarding table (select which link to use).
 		vnMapper.updateDynamicForwardingTableRec(srcNode, src, dst, flowId, false);
 		
-		List<Node> nodes = new ArrayList<Node>();
-		List<Link> links = new ArrayList<Link>();
-		
-		Node origin = srcNode;
-		Node dest = origin.getVMRoute(src, dst, flowId);
+		FlowPath path = vnMapper.getPath(src, dst, flowId, srcNode);
 		
-		if(dest==null) {
+		if(path==null) {
 			throw new IllegalArgumentException("createChannel(): dest is null, cannot create channel! " +
 					NetworkOperatingSystem.findVmGlobal(src)+"->" + 
 					NetworkOperatingSystem.findVmGlobal(dst)+"|"+flowId);
@@ -54,29 +77,16 @@ public class ChannelManager {
 				throw new RuntimeException("reqBW cannot be zero for dedicated channels!!"+flowId);
 		}
 		
-		nodes.add(origin);
+		List<Node> nodes = new ArrayList<Node>(path.getNodes());
+		List<Link> links = new ArrayList<Link>(path.getLinks());
 		
 		// Find the lowest available bandwidth along the link.
-		while(true) {
-			Link link = origin.getLinkTo(dest);
-			if(link == null)
-				throw new IllegalArgumentException("Link is NULL for srcNode:"+origin+" -> dstNode:"+dest);
-			
-			//Log.printLine(CloudSim.clock() + ": createChannel() :(" +getKey(src,dst,flowId)+"): "+link);
-			
-			links.add(link);
-			nodes.add(dest);
-			
-			if(lowestBw > link.getFreeBandwidth(origin)) {
-				lowestBw = link.getFreeBandwidth(origin);
+		for(int i=0; i<links.size(); i++) {
+			double freeBw = links.get(i).getFreeBandwidth(nodes.get(i));
+			if(lowestBw > freeBw) {
+				lowestBw = freeBw;
 			}
-		
-			if(dest instanceof SDNHost)
-				break;
-			
-			origin = dest;
-			dest = origin.getVMRoute(src, dst, flowId);
-		} 
+		}
 		
 		// If currently free bandwidth is less than required one.
 		if(flowId != -1 && lowestBw < reqBw) {
@@ -97,23 +107,19 @@ public class ChannelManager {
 			
 			this.channelTable.put(getChannelKey(src, dst, chId), ch);
 			ch.initialize();
+			changedLinks.addAll(ch.getLinks());
 			
-			ch.adjustDedicatedBandwidthAlongLink();
-			ch.adjustSharedBandwidthAlongLink();
+			adjustDedicatedBandwidth(ch);
+			bwAllocationPolicy.allocateSharedBandwidth(Collections.singletonList(ch), this);
 			
 			nos.sendAdjustAllChannelEvent();		
 	//		allChannels.add(ch);
 		}
 
 	public Channel findChannel(int from, int to, int channelId) {
-		// check if there is a pre-configured channel for this application
-		Channel channel=channelTable.get(getChannelKey(from, to, channelId));
-	
-		if (channel == null) {
-			//there is no channel for specific flow, find the default channel for this link
-			channel=channelTable.get(getChannelKey(from,to));
-		}
-		return channel;
+		// check if there is a pre-configured channel for this application.
+		// Default channels are stored with channelId -1, so a single lookup covers both.
+		return channelTable.get(getChannelKey(from, to, channelId));
 	}
 	
 	public List<Channel> findAllChannels(int vmId) {
@@ -129,19 +135,24 @@ public class ChannelManager {
 		return allChannels;
 	}
 
-	private void updateChannel() {
-		List<String> removeCh = new ArrayList<String>();  
-		for(String key:this.channelTable.keySet()) {
-			Channel ch = this.channelTable.get(key);
+	public void addTransmission(Channel ch, Transmission transmission) {
+		// Bring the channel up to date before the transmission set changes
+		updateChannelProcessing(ch);
+		
+		ch.addTransmission(transmission);
+		totalNumPackets++;
+		
+		updateFinishTime(ch);
+	}
+
+	private void updateChannel(List<Channel> channels) {
+		// Only the channels that have just completed transmissions can become empty.
+		for(Channel ch:channels) {
 			if(ch.getActiveTransmissionNum() == 0) {
 				// No more job in channel. Delete
-				removeCh.add(key);
+				removeChannel(getChannelKey(ch.getSrcId(), ch.getDstId(), ch.getChId()));
 			}
 		}
-		
-		for(String key:removeCh) {
-			removeChannel(key);
-		}
 	}
 	
 	public Channel removeChannel(int srcVm, int dstVm, int flowId) {
@@ -150,10 +161,13 @@ public class ChannelManager {
 		return removeChannel(getChannelKey(srcVm, dstVm, flowId));
 	}
 	
-	private Channel removeChannel(String key) {
+	private Channel removeChannel(long key) {
 		//System.err.println("NOS.removeChannel:"+key);
 		Channel ch = this.channelTable.remove(key);
 		ch.terminate();
+		changedLinks.addAll(ch.getLinks());
+		finishTimeIndex.remove(ch);
+		totalNumPackets -= ch.getActiveTransmissionNum();
 		nos.sendAdjustAllChannelEvent();
 		tempRemovedChannels.add(ch);
 		return ch;
@@ -167,94 +181,205 @@ public class ChannelManager {
 		Channel ch = this.channelTable.get(getChannelKey(src, dst, flowId));
 		if(ch != null) {
 			ch.updateRequestedBandwidth(newBandwidth);
+			changedLinks.addAll(ch.getLinks());
 			return true;
 		}
 		
 		return false;
 	}
 	
+	public void updateChannelRoute(Channel ch, List<Node> nodes, List<Link> links) {
+		changedLinks.addAll(ch.getLinks());
+		ch.updateRoute(nodes, links);
+		changedLinks.addAll(ch.getLinks());
+	}
+	
+	/**
+	 * Re-calculates the bandwidth of the channels passing through the links changed since the last adjustment.
+	 * Channels not sharing any changed link keep their bandwidth, as nothing they depend on has changed.
+	 */
 	public void adjustAllChannel() {
-		for(Channel ch:this.channelTable.values()) {
-			if(ch.adjustDedicatedBandwidthAlongLink()) {
-				// Channel BW is changed. send event.
+		if(changedLinks.isEmpty())
+			return;
+		
+		Set<Link> links = changedLinks;
+		changedLinks = new LinkedHashSet<Link>();
+		
+		// Dedicated channels depend on the requested bandwidth of other dedicated channels on the same links.
+		for(Channel ch:findChannelsOnLinks(links)) {
+			if(adjustDedicatedBandwidth(ch)) {
+				// Free bandwidth for shared channels is changed along this channel.
+				links.addAll(ch.getLinks());
 			}
 		}
 		
-		for(Channel ch:this.channelTable.values()) {
-			if(ch.adjustSharedBandwidthAlongLink()) {
-				// Channel BW is changed. send event.
-			}
+		// Shared channels depend on the free bandwidth left by dedicated channels.
+		bwAllocationPolicy.allocateSharedBandwidth(findChannelsOnLinks(links), this);
+	}
+	
+	private Set<Channel> findChannelsOnLinks(Collection<Link> links) {
+		Set<Channel> channels = new LinkedHashSet<Channel>();
+		for(Link link:links) {
+			addOwnChannels(link.getChannels(link.getLowOrder()), channels);
+			addOwnChannels(link.getChannels(link.getHighOrder()), channels);
 		}
+		return channels;
 	}
 	
-	public double nextFinishTime() {
-		double earliestEft = Double.POSITIVE_INFINITY;
-		for(Channel ch:channelTable.values()){
-			
-			double eft = ch.nextFinishTime();
-			if (eft<earliestEft){
-				earliestEft=eft;
-			}
+	private void addOwnChannels(Collection<Channel> linkChannels, Set<Channel> channels) {
+		// A link can carry channels managed by other NOS. Adjust only the channels of this manager.
+		for(Channel ch:linkChannels) {
+			if(isManagedChannel(ch))
+				channels.add(ch);
+		}
+	}
+	
+	public boolean isManagedChannel(Channel ch) {
+		return channelTable.get(getChannelKey(ch.getSrcId(), ch.getDstId(), ch.getChId())) == ch;
+	}
+	
+	private boolean adjustDedicatedBandwidth(Channel ch) {
+		int numPackets = ch.getActiveTransmissionNum();
+		if(ch.adjustDedicatedBandwidthAlongLink()) {
+			// Channel BW is changed. Re-schedule its finish time.
+			totalNumPackets -= numPackets - ch.getActiveTransmissionNum();
+			updateFinishTime(ch);
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Sets the bandwidth of a shared channel, as calculated by BandwidthAllocationPolicy.
+	 */
+	public void changeSharedBandwidth(Channel ch, double bw) {
+		if(bw <= 0) {
+			throw new RuntimeException("Allocated bandwidth negative!!" + ch + ", bw="+bw);
 		}
 		
-		if(earliestEft == Double.POSITIVE_INFINITY) {
+		if(ch.getAllocatedBandwidth() != bw) {
+			int numPackets = ch.getActiveTransmissionNum();
+			ch.changeBandwidth(bw);
+			// Channel BW is changed. Re-schedule its finish time.
+			totalNumPackets -= numPackets - ch.getActiveTransmissionNum();
+			updateFinishTime(ch);
+		}
+	}
+	
+	private boolean updateChannelProcessing(Channel ch) {
+		int numPackets = ch.getActiveTransmissionNum();
+		boolean isCompleted = ch.updatePacketProcessing();
+		totalNumPackets -= numPackets - ch.getActiveTransmissionNum();
+		return isCompleted;
+	}
+	
+	private void updateFinishTime(Channel ch) {
+		if(ch.hasUndeliveredTransmission()) {
+			// Completed transmissions are waiting to be delivered. Process in the next round.
+			finishTimeIndex.update(ch, CloudSim.clock());
+		}
+		else if(ch.getActiveTransmissionNum() == 0) {
+			finishTimeIndex.remove(ch);
+		}
+		else {
+			// Wake up at the next completion, or at the next timeout if earlier, so that a timeout is never missed.
+			double finishTime = CloudSim.clock() + ch.nextFinishTime();
+			finishTimeIndex.update(ch, Math.min(finishTime, ch.nextTimeoutTime()));
+		}
+	}
+	
+	/**
+	 * Moves the arrived packets of the channel to a buffer reused by every call.
+	 * The returned list is valid until the next call.
+	 */
+	public List<Transmission> drainArrivedPackets(Channel ch) {
+		arrivedPackets.clear();
+		ch.drainArrivedPackets(arrivedPackets);
+		return arrivedPackets;
+	}
+	
+	/**
+	 * Moves the failed (timed out) packets of the channel to a buffer reused by every call.
+	 * The returned list is valid until the next call.
+	 */
+	public List<Transmission> drainFailedPackets(Channel ch) {
+		failedPackets.clear();
+		ch.drainFailedPackets(failedPackets);
+		return failedPackets;
+	}
+	
+	public double nextFinishTime() {
+		if(finishTimeIndex.isEmpty()) {
 			throw new IllegalArgumentException("NOS.nextFinishTime(): next finish time is infinite!");
 		}
-		return earliestEft;
 		
+		double earliestEft = finishTimeIndex.peekTime() - CloudSim.clock();
+		if(earliestEft < 0)
+			earliestEft = 0;
+		return earliestEft;
 	}
 	
+	/**
+	 * Processes only the channels whose projected finish time has come.
+	 * @return true if any channel still has transmissions to process.
+	 */
 	public boolean updatePacketProcessing() {
-		boolean needSendEvent = false;
-		
-		LinkedList<Channel> completeChannels = new LinkedList<Channel>();
-		
-		// Check every channel
-		for(Channel ch:channelTable.values()){
-			boolean isCompleted = ch.updatePacketProcessing();
+		// Channels projected to finish within the minimum time between events are treated as due.
+		dueChannels.clear();
+		finishTimeIndex.pollDue(CloudSim.clock() + CloudSim.getMinTimeBetweenEvents(), dueChannels);
+		return updatePacketProcessing(dueChannels);
+	}
+	
+	/**
+	 * Processes every channel regardless of its finish time, e.g. before monitoring
+	 * so that the processed bytes of all channels are accounted up to now.
+	 * @return true if any channel still has transmissions to process.
+	 */
+	public boolean updateAllPacketProcessing() {
+		dueChannels.clear();
+		for(Channel ch:channelTable.values())
+			dueChannels.add(ch);
+		return updatePacketProcessing(dueChannels);
+	}
+	
+	private boolean updatePacketProcessing(List<Channel> channels) {
+		completeChannels.clear();
+		for(Channel ch:channels){
+			boolean isCompleted = updateChannelProcessing(ch);
 			
 			if(isCompleted) {
 				completeChannels.add(ch);
-				
-				if(ch.getActiveTransmissionNum() != 0)
-				{
-					// There are more transmissions even after completing these transmissions.
-					needSendEvent = true;
-				}
-
-			} else {
-				// Something is not completed. Need to send an event. 
-				needSendEvent = true;
 			}
 		}
 		
 		if(completeChannels.size() != 0) {
 			nos.processCompletePackets(completeChannels);
-			updateChannel();
+			updateChannel(completeChannels);
 		}
-
-		return needSendEvent;
+		
+		// Re-schedule the processed channels. Removed (empty) channels are dropped from the index.
+		for(Channel ch:channels) {
+			updateFinishTime(ch);
+		}
+		
+		return !finishTimeIndex.isEmpty();
 	}
 	
 	public long getTotalNumPackets() {
-		long numPackets=0;
-		for(Channel ch:channelTable.values()) {
-			numPackets += ch.getActiveTransmissionNum();
-		}
-		
-		return numPackets;
+		return totalNumPackets;
 	}
 	
 	public long getTotalChannelNum() {
 		return channelTable.size();
 	}
-
-	public static String getChannelKey(int origin, int destination) {
-		return origin+"-"+destination;
-	}
 	
-	public static String getChannelKey(int origin, int destination, int appId) {
-		return getChannelKey(origin,destination)+"-"+appId;
+	// True if any channel has transmissions to be processed later
+	public boolean hasScheduledChannel() {
+		return !finishTimeIndex.isEmpty();
+	}
+
+	public static long getChannelKey(int origin, int destination, int appId) {
+		return FlowKey.pack(origin, destination, appId);
 	}
 
 	public void updateMonitor(double monitoringTimeUnit) {
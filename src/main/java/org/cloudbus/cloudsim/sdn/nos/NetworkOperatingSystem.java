@@ -11,11 +11,9 @@ package org.cloudbus.cloudsim.sdn.nos;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import org.cloudbus.cloudsim.Datacenter;
 import org.cloudbus.cloudsim.Host;
@@ -26,20 +24,24 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
-import org.cloudbus.cloudsim.core.predicates.PredicateType;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
 import org.cloudbus.cloudsim.sdn.CloudSimEx;
 import org.cloudbus.cloudsim.sdn.CloudSimTagsSDN;
 import org.cloudbus.cloudsim.sdn.Configuration;
 import org.cloudbus.cloudsim.sdn.LogWriter;
 import org.cloudbus.cloudsim.sdn.Packet;
+import org.cloudbus.cloudsim.sdn.monitor.MonitoringSettings;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.Link;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.Node;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.PhysicalTopology;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.PhysicalTopologyInterCloud;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.PhysicalTopologyShortestPath;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.SDNDatacenter;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.SDNHost;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.switches.Switch;
+import org.cloudbus.cloudsim.sdn.policies.bwallocation.BandwidthAllocationPolicy;
 import org.cloudbus.cloudsim.sdn.policies.selectlink.LinkSelectionPolicy;
+import org.cloudbus.cloudsim.sdn.policies.vmallocation.VmAllocationPolicyEx;
 import org.cloudbus.cloudsim.sdn.policies.vmallocation.overbooking.OverbookingVmAllocationPolicy;
 import org.cloudbus.cloudsim.sdn.sfc.ServiceFunction;
 import org.cloudbus.cloudsim.sdn.sfc.ServiceFunctionAutoScaler;
@@ -47,6 +49,7 @@ import org.cloudbus.cloudsim.sdn.sfc.ServiceFunctionChainPolicy;
 import org.cloudbus.cloudsim.sdn.sfc.ServiceFunctionForwarder;
 import org.cloudbus.cloudsim.sdn.sfc.ServiceFunctionForwarderLatencyAware;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.FlowConfig;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.FlowPath;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.SDNVm;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.VirtualNetworkMapper;
@@ -98,6 +101,22 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	private double lastAdjustAllChannelTime = -1;
 	private double nextEventTime = -1;
 	
+	// Re-armable timer for SDN_INTERNAL_PACKET_PROCESS. Instead of cancelling the scheduled event,
+	// re-arming increases the generation, and the outdated event is ignored when it arrives.
+	private long packetProcessTimerGeneration = 0;
+	
+	// Outdated SDN_INTERNAL_PACKET_PROCESS events waiting in the queue. Not counted as pending events by monitoring,
+	// so that monitoring stops and skips ahead as if they had been cancelled.
+	private static final Predicate stalePacketProcessTimer = new Predicate() {
+		@Override
+		public boolean match(SimEvent ev) {
+			if(ev.getTag() != CloudSimTagsSDN.SDN_INTERNAL_PACKET_PROCESS)
+				return false;
+			SimEntity dst = CloudSim.getEntity(ev.getDestination());
+			return (dst instanceof NetworkOperatingSystem) && !((NetworkOperatingSystem) dst).isCurrentPacketProcessTimer(ev);
+		}
+	};
+	
 	/**
 	 * 1. map VMs and middleboxes to hosts, add the new vm/mb to the vmHostTable, advise host, advise dc
 	 * 2. set channels and bws
@@ -119,12 +138,19 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		
 		this.sfcScaler = new ServiceFunctionAutoScaler(this, sfcForwarder);
 		
-		this.topology = new PhysicalTopologyInterCloud();
+		if(Configuration.ROUTING_SHORTEST_PATH)
+			this.topology = new PhysicalTopologyShortestPath();
+		else
+			this.topology = new PhysicalTopologyInterCloud();
 	}
 	
 	public void setLinkSelectionPolicy(LinkSelectionPolicy linkSelectionPolicy) {
 		vnMapper.setLinkSelectionPolicy(linkSelectionPolicy);
 	}
+	
+	public void setBandwidthAllocationPolicy(BandwidthAllocationPolicy bwAllocationPolicy) {
+		channelManager.setBandwidthAllocationPolicy(bwAllocationPolicy);
+	}
 
 	public void configurePhysicalTopology(Collection<SDNHost> hosts, Collection<Switch> switches, Collection<Link> links) {
 		for(SDNHost sdnHost: hosts) {
@@ -144,12 +170,14 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 
 	@Override
 	public void startEntity() {
+		MonitoringSettings.reset();	// Not to inherit the previous simulation in the same JVM
 		send(this.getId(), Configuration.monitoringTimeInterval, CloudSimTagsSDN.MONITOR_UPDATE_UTILIZATION);
 	}
 
 	@Override
 	public void shutdownEntity() {
-		
+		// Complete the log files when the simulation ends, not only when the JVM exits
+		LogWriter.flushAll();
 	}
 	
 	@Override
@@ -161,7 +189,8 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 				processInternalAdjustChannels();
 				break;				
 			case CloudSimTagsSDN.SDN_INTERNAL_PACKET_PROCESS: 
-				processInternalPacketProcessing(); 
+				if(isCurrentPacketProcessTimer(ev))
+					processInternalPacketProcessing(); 
 				break;
 			case CloudSimTags.VM_CREATE_ACK:
 				processVmCreateAck(ev);
@@ -175,7 +204,13 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 			case CloudSimTagsSDN.MONITOR_UPDATE_UTILIZATION:
 				if(this.datacenter != null)
 					this.datacenter.processUpdateProcessing();
-				channelManager.updatePacketProcessing();
+				channelManager.updateAllPacketProcessing();
+				
+				if(!monitoringStarted) {
+					if(isMonitoringHistoryNeeded())
+						MonitoringSettings.requireHistory();
+					monitoringStarted = true;
+				}
 				
 				this.updateBWMonitor(Configuration.monitoringTimeInterval);
 				this.updateHostMonitor(Configuration.monitoringTimeInterval);
@@ -190,9 +225,9 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 				}
 				this.updateVmMonitor(CloudSim.clock());
 				
-				if(CloudSimEx.hasMoreEvent(CloudSimTagsSDN.MONITOR_UPDATE_UTILIZATION)) {
+				if(CloudSimEx.hasMoreEvent(CloudSimTagsSDN.MONITOR_UPDATE_UTILIZATION, stalePacketProcessTimer)) {
 					double nextMonitorDelay = Configuration.monitoringTimeInterval;
-					double nextEventDelay = CloudSimEx.getNextEventTime() - CloudSim.clock();
+					double nextEventDelay = CloudSimEx.getNextEventTime(stalePacketProcessTimer) - CloudSim.clock();
 					
 					// If there's no event between now and the next monitoring time, skip monitoring until the next event time. 
 					if(nextEventDelay > nextMonitorDelay) {
@@ -202,7 +237,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 					long numPackets = channelManager.getTotalNumPackets();
 					
 					System.err.println(CloudSim.clock() + ": Elasped time="+ CloudSimEx.getElapsedTimeString()+", "
-					+CloudSimEx.getNumFutureEvents()+" more events,"+" # packets="+numPackets+", next monitoring in "+nextMonitorDelay);
+					+CloudSimEx.getNumFutureEvents(stalePacketProcessTimer)+" more events,"+" # packets="+numPackets+", next monitoring in "+nextMonitorDelay);
 					send(this.getId(), nextMonitorDelay, CloudSimTagsSDN.MONITOR_UPDATE_UTILIZATION);
 				}
 				break;
@@ -239,6 +274,9 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	public void processVmMigrate(Vm vm, SDNHost oldHost, SDNHost newHost) {
 		// Find the virtual route associated with the migrated VM
 		// VM is already migrated to the new host
+		// Cached routes from or to the migrated VM start or end at the old host.
+		vnMapper.invalidateAllPaths();
+		
 		for(FlowConfig flow:this.flowMapVmId2Flow.get(vm.getId())) {
 			SDNHost sender = findHost(flow.getSrcId());	// Sender will be the new host after migrated
 			if(flow.getSrcId() == vm.getId())
@@ -274,6 +312,8 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	
 	protected void processInternalAdjustChannels() {
 		channelManager.adjustAllChannel();
+		// Bandwidth changes move the finish time of the adjusted channels.
+		sendInternalEvent();
 	}
 
 	public boolean startDeployApplicatoin() {
@@ -328,7 +368,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 			channelManager.addChannel(src, dst, flowId, channel);
 		}
 		
-		channel.addTransmission(new Transmission(pkt));
+		channelManager.addTransmission(channel, new Transmission(pkt));
 //		Log.printLine(CloudSim.clock() + ": " + getName() + ".addPacketToChannel ("+channel
 //				+"): Transmission added:" + 
 //				NetworkOperatingSystem.getVmName(src) + "->"+
@@ -341,7 +381,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 
 	public void processCompletePackets(List<Channel> channels){
 		for(Channel ch:channels) {
-			for (Transmission tr:ch.getArrivedPackets()){
+			for (Transmission tr:channelManager.drainArrivedPackets(ch)){
 				Packet pkt = tr.getPacket();
 				int vmId = pkt.getDestination(); 
 				Datacenter dc = SDNDatacenter.findDatacenterGlobal(vmId);
@@ -350,7 +390,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 				sendPacketCompleteEvent(dc, pkt, ch.getTotalLatency());
 			}
 			
-			for (Transmission tr:ch.getFailedPackets()){
+			for (Transmission tr:channelManager.drainFailedPackets(ch)){
 				Packet pkt = tr.getPacket();
 				sendPacketFailedEvent(this.datacenter, pkt, ch.getTotalLatency());
 			}
@@ -373,7 +413,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	}
 
 	private void sendInternalEvent() {
-		if(channelManager.getTotalChannelNum() != 0) {
+		if(channelManager.getTotalChannelNum() != 0 && channelManager.hasScheduledChannel()) {
 			if(nextEventTime == CloudSim.clock() + CloudSim.getMinTimeBetweenEvents())
 				return;
 			
@@ -391,12 +431,17 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 			{
 				//Log.printLine(CloudSim.clock() + ": " + getName() + ".sendInternalEvent(): next event time changed! old="+ nextEventTime+", new="+(CloudSim.clock()+delay));
 				
-				CloudSim.cancelAll(getId(), new PredicateType(CloudSimTagsSDN.SDN_INTERNAL_PACKET_PROCESS));
-				send(this.getId(), delay, CloudSimTagsSDN.SDN_INTERNAL_PACKET_PROCESS);
+				packetProcessTimerGeneration++;
+				send(this.getId(), delay, CloudSimTagsSDN.SDN_INTERNAL_PACKET_PROCESS, packetProcessTimerGeneration);
 				nextEventTime = CloudSim.clock()+delay;
 			}
 		}
 	}
+	
+	private boolean isCurrentPacketProcessTimer(SimEvent ev) {
+		Object generation = ev.getData();
+		return (generation instanceof Long) && (Long)generation == packetProcessTimerGeneration;
+	}
 
 	public void updateChannelBandwidth(int src, int dst, int flowId, long newBandwidth) {
 		if(channelManager.updateChannelBandwidth(src, dst, flowId, newBandwidth)) {
@@ -419,7 +464,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 					ch.getChId(), sender, nodes, links);
 			
 			// update with the new nodes and links
-			ch.updateRoute(nodes, links);			
+			channelManager.updateChannelRoute(ch, nodes, links);
 		}
 	}
 
@@ -647,16 +692,33 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	}
 
 	// for monitoring
+	private boolean monitoringStarted = false;
+	
+	// Utilization history is read by overbooking / migration policies and SFC auto-scaling.
+	protected boolean isMonitoringHistoryNeeded() {
+		if(datacenter != null) {
+			VmAllocationPolicy vmAllocationPolicy = datacenter.getVmAllocationPolicy();
+			if(vmAllocationPolicy instanceof OverbookingVmAllocationPolicy)
+				return true;
+			if(vmAllocationPolicy instanceof VmAllocationPolicyEx
+					&& ((VmAllocationPolicyEx) vmAllocationPolicy).getVmMigrationPolicy() != null)
+				return true;
+		}
+		return (Configuration.ENABLE_SFC && Configuration.SFC_AUTOSCALE_ENABLE);
+	}
+	
 	private void updateBWMonitor(double monitoringTimeUnit) {
-		double highest=0;
-		// Update utilization of all links
-		Set<Link> links = new HashSet<Link>(this.topology.getAllLinks());
-		for(Link l:links) {
-			double util = l.updateMonitor(CloudSim.clock(), monitoringTimeUnit);
-			if(util > highest) highest=util;
+		if(MonitoringSettings.isLinkMonitored()) {
+			double highest=0;
+			// Update utilization of all links (getAllLinks() returns a new set)
+			for(Link l:this.topology.getAllLinks()) {
+				double util = l.updateMonitor(CloudSim.clock(), monitoringTimeUnit);
+				if(util > highest) highest=util;
+			}
+			//System.err.println(CloudSim.clock()+": Highest utilization of Links = "+highest);
 		}
-		//System.err.println(CloudSim.clock()+": Highest utilization of Links = "+highest);
 		
+		// Channels are always updated for SFC monitoring
 		channelManager.updateMonitor(monitoringTimeUnit);
 	}
 
@@ -674,20 +736,22 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	}
 	
 	private void updateVmMonitor(double logTime) {
-		if(datacenter == null)
+		if(datacenter == null || !Configuration.MONITOR_LOG_VM || !Configuration.LOG_ENABLE)
 			return;
 		
 		VmAllocationPolicy vmAlloc = datacenter.getVmAllocationPolicy();
 		if(vmAlloc instanceof OverbookingVmAllocationPolicy) {
 			for(Vm v: this.vmMapId2Vm.values()) {
 				SDNVm vm = (SDNVm)v;
+				if(!MonitoringSettings.isLogged(Configuration.MONITOR_LOG_VM, vm.getId()))
+					continue;
 				double mipsOBR = ((OverbookingVmAllocationPolicy)vmAlloc).getCurrentOverbookingRatioMips((SDNVm) vm);
 				LogWriter log = LogWriter.getLogger("vm_OBR_mips.csv");
-				log.printLine(vm.getName()+","+logTime+","+mipsOBR);
+				log.log(vm.getName(), logTime, mipsOBR);
 				
 				double bwOBR =  ((OverbookingVmAllocationPolicy)vmAlloc).getCurrentOverbookingRatioBw((SDNVm) vm);
 				log = LogWriter.getLogger("vm_OBR_bw.csv");
-				log.printLine(vm.getName()+","+logTime+","+bwOBR);
+				log.log(vm.getName(), logTime, bwOBR);
 			}
 		}
 	}
@@ -697,18 +761,15 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	}
 
 	public double calculateLatency(int srcVmId, int dstVmId, int flowId) {
-		List<Node> nodes = new ArrayList<Node>();
-		List<Link> links = new ArrayList<Link>();
 		Node srcHost = findHost(srcVmId);
-		vnMapper.buildNodesLinks(srcVmId, dstVmId, flowId, srcHost, nodes, links);
-		
-		double latency = 0;
-		// Calculate the latency of the links.
-		for(Link l:links) {
-			latency += l.getLatencyInSeconds(); 
+		FlowPath path = vnMapper.getPath(srcVmId, dstVmId, flowId, srcHost);
+		if(path == null) {
+			System.err.println("calculateLatency() Cannot find dest!");
+			return 0;
 		}
-
-		return latency;
+		
+		// Sum of the latency of the links, calculated once per route.
+		return path.getLatency();
 	}
 
 	/*
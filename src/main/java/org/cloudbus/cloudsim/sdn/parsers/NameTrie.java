@@ -0,0 +1,87 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.parsers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Read-only trie mapping names (VM names, flow names) to IDs, looked up directly from UTF-8 bytes.
+ * Nodes are stored in arrays with first-child / next-sibling links, so a lookup creates no objects.
+ */
+public class NameTrie {
+	public static final int NOT_FOUND = -1;
+
+	private byte[] label = new byte[64];
+	private int[] firstChild = new int[64];
+	private int[] nextSibling = new int[64];
+	private int[] value = new int[64];
+	private int size = 1;	// Node 0 is the root
+
+	public NameTrie(Map<String, Integer> names) {
+		Arrays.fill(firstChild, -1);
+		Arrays.fill(nextSibling, -1);
+		Arrays.fill(value, NOT_FOUND);
+
+		for(Map.Entry<String, Integer> e:names.entrySet()) {
+			if(e.getValue() == null || e.getValue() < 0)
+				throw new IllegalArgumentException("NameTrie: invalid ID for "+e.getKey()+":"+e.getValue());
+			put(e.getKey().getBytes(StandardCharsets.UTF_8), e.getValue());
+		}
+	}
+
+	private void put(byte[] name, int id) {
+		int node = 0;
+		for(byte b:name) {
+			int child = findChild(node, b);
+			if(child < 0)
+				child = addChild(node, b);
+			node = child;
+		}
+		value[node] = id;
+	}
+
+	private int findChild(int node, byte b) {
+		int child = firstChild[node];
+		while(child >= 0 && label[child] != b)
+			child = nextSibling[child];
+		return child;
+	}
+
+	private int addChild(int node, byte b) {
+		if(size == label.length) {
+			int capacity = size * 2;
+			label = Arrays.copyOf(label, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			nextSibling = Arrays.copyOf(nextSibling, capacity);
+			value = Arrays.copyOf(value, capacity);
+			Arrays.fill(firstChild, size, capacity, -1);
+			Arrays.fill(nextSibling, size, capacity, -1);
+			Arrays.fill(value, size, capacity, NOT_FOUND);
+		}
+
+		int child = size++;
+		label[child] = b;
+		nextSibling[child] = firstChild[node];
+		firstChild[node] = child;
+		return child;
+	}
+
+	/**
+	 * @return ID of the name in buf[start, end), or NOT_FOUND
+	 */
+	public int get(byte[] buf, int start, int end) {
+		int node = 0;
+		for(int i=start; i<end && node >= 0; i++)
+			node = findChild(node, buf[i]);
+		if(node < 0)
+			return NOT_FOUND;
+		return value[node];
+	}
+}
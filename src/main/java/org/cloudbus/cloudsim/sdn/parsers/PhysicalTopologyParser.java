@@ -25,6 +25,7 @@ import org.cloudbus.cloudsim.sdn.nos.NetworkOperatingSystem;
 import org.cloudbus.cloudsim.sdn.nos.NetworkOperatingSystemSimple;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.Link;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.Node;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.RoutingTableCompact;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.SDNHost;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.switches.AggregationSwitch;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.switches.CoreSwitch;
@@ -32,6 +33,7 @@ import org.cloudbus.cloudsim.sdn.physicalcomponents.switches.EdgeSwitch;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.switches.GatewaySwitch;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.switches.IntercloudSwitch;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.switches.Switch;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.ForwardingRuleCompact;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
@@ -150,6 +152,11 @@ public class PhysicalTopologyParser {
 		try {
     		JSONObject doc = (JSONObject) JSONValue.parse(new FileReader(this.filename));
     		
+    		// Forwarding table implementation for all nodes in this topology
+    		boolean compactForwarding = "compact".equalsIgnoreCase((String) doc.get("forwarding"));
+    		// Routing table implementation for all nodes in this topology
+    		boolean compactRouting = "compact".equalsIgnoreCase((String) doc.get("routingtable"));
+    		
     		// Get Nodes (Switches and Hosts)
     		JSONArray nodes = (JSONArray) doc.get("nodes");
     		@SuppressWarnings("unchecked")
@@ -183,6 +190,10 @@ public class PhysicalTopologyParser {
 						if(num >1) nodeName2 = nodeName + n;
 						
 						SDNHost sdnHost = hostFactory.createHost(ram, bw, storage, pes, mips, nodeName);
+						if(compactForwarding)
+							sdnHost.setVMRoutingTable(new ForwardingRuleCompact());
+						if(compactRouting)
+							sdnHost.setRoutingTable(new RoutingTableCompact());
 						nameNodeTable.put(nodeName2, sdnHost);
 						//hostId++;
 						
@@ -224,6 +235,11 @@ public class PhysicalTopologyParser {
 						throw new IllegalArgumentException("No switch found!");
 					}
 					
+					if(compactForwarding && nameNodeTable.get(nodeName) != sw)
+						sw.setVMRoutingTable(new ForwardingRuleCompact());
+					if(compactRouting && nameNodeTable.get(nodeName) != sw)
+						sw.setRoutingTable(new RoutingTableCompact());
+					
 					if(sw != null) {
 						nameNodeTable.put(nodeName, sw);
 						this.switches.put(dcName, sw);
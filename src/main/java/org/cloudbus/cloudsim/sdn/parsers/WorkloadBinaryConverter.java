@@ -0,0 +1,124 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.parsers;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts a workload file ([request].csv, read by WorkloadParser) into the binary format
+ * read by WorkloadParserBinary. Convert once and reuse the binary file across many simulation runs.
+ *
+ * Usage: WorkloadBinaryConverter input.csv [output.bin]
+ */
+public class WorkloadBinaryConverter {
+	private Map<String, Integer> vmIndex = new HashMap<String, Integer>();
+	private Map<String, Integer> flowIndex = new HashMap<String, Integer>();
+	private List<String> vmTable = new ArrayList<String>();
+	private List<String> flowTable = new ArrayList<String>();
+
+	public static void main(String[] args) throws IOException {
+		if(args.length < 1) {
+			System.err.println("Usage: WorkloadBinaryConverter input.csv [output"+WorkloadParserBinary.FILE_EXTENSION+"]");
+			return;
+		}
+
+		String output = (args.length > 1) ? args[1] : getBinaryFileName(args[0]);
+		int num = new WorkloadBinaryConverter().convert(args[0], output);
+		System.out.println("Converted "+num+" workloads: "+args[0]+" -> "+output);
+	}
+
+	public static String getBinaryFileName(String csvFile) {
+		int indexDot = csvFile.lastIndexOf('.');
+		if(indexDot > csvFile.lastIndexOf('/'))
+			csvFile = csvFile.substring(0, indexDot);
+		return csvFile + WorkloadParserBinary.FILE_EXTENSION;
+	}
+
+	private static int indexOf(String name, Map<String, Integer> index, List<String> table) {
+		Integer i = index.get(name);
+		if(i == null) {
+			i = table.size();
+			table.add(name);
+			index.put(name, i);
+		}
+		return i;
+	}
+
+	/**
+	 * Converts all the workloads in the CSV file. Values are parsed the same way as WorkloadParser.
+	 * @return the number of converted workloads
+	 */
+	public int convert(String csvFile, String binaryFile) throws IOException {
+		int num = 0;
+		long recordsEnd;
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(csvFile));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(binaryFile)))) {
+			out.writeInt(WorkloadParserBinary.MAGIC);
+			out.writeInt(WorkloadParserBinary.VERSION);
+			out.writeLong(0);	// Offset of the name tables, written at the end
+
+			@SuppressWarnings("unused")
+			String head = reader.readLine();
+
+			String line;
+			int lineNum = 1;
+			while((line = reader.readLine()) != null) {
+				lineNum++;
+				if(line.isEmpty())
+					continue;
+				String[] items = line.split(",");
+				// time, vm, pkt_size, then (cloudlet_len, flow, vm, pkt_size)* cloudlet_len
+				if(items.length < 3 || (items.length > 3 && (items.length - 4) % 4 != 0))
+					throw new IllegalArgumentException("Malformed workload at line "+lineNum+":"+line);
+
+				int numHops = (items.length == 3) ? 0 : (items.length - 4) / 4 + 1;
+
+				out.writeDouble(Double.parseDouble(items[0]));
+				out.writeInt(indexOf(items[1], vmIndex, vmTable));
+				out.writeInt(Integer.parseInt(items[2]));
+				out.writeInt(numHops);
+				for(int i=0; i<numHops; i++) {
+					int f = 3 + i * 4;
+					out.writeLong(Long.parseLong(items[f]));
+					if(i < numHops - 1) {
+						out.writeInt(indexOf(items[f+1], flowIndex, flowTable));
+						out.writeInt(indexOf(items[f+2], vmIndex, vmTable));
+						out.writeLong(Long.parseLong(items[f+3]));
+					}
+				}
+				num++;
+			}
+
+			recordsEnd = out.size();
+
+			out.writeInt(vmTable.size());
+			for(String name:vmTable)
+				out.writeUTF(name);
+			out.writeInt(flowTable.size());
+			for(String name:flowTable)
+				out.writeUTF(name);
+		}
+
+		try (RandomAccessFile raf = new RandomAccessFile(binaryFile, "rw")) {
+			raf.seek(8);
+			raf.writeLong(recordsEnd);
+		}
+		return num;
+	}
+}
@@ -39,24 +39,30 @@ import org.cloudbus.cloudsim.sdn.workload.WorkloadResultWriter;
  */
 
 public class WorkloadParser {
-	private static final int NUM_PARSE_EACHTIME = 200;
+	protected static final int NUM_PARSE_EACHTIME = 200;
 	
-	private double forcedStartTime = -1;
-	private double forcedFinishTime = Double.POSITIVE_INFINITY;
+	protected double forcedStartTime = -1;
+	protected double forcedFinishTime = Double.POSITIVE_INFINITY;
 	
-	private final Map<String, Integer> vmNames;
-	private final Map<String, Integer> flowNames;
-	private String file;
-	private int userId;
+	protected final Map<String, Integer> vmNames;
+	protected final Map<String, Integer> flowNames;
+	protected String file;
+	protected int userId;
 	private UtilizationModel utilizationModel;
 	
-	private List<Workload> parsedWorkloads;
+	protected List<Workload> parsedWorkloads;
 	
 	private WorkloadResultWriter resultWriter = null;
 	
-	private int workloadNum = 0;
+	protected int workloadNum = 0;
 	
 	private BufferedReader bufReader = null;
+	private boolean opened = false;
+	
+	private Request[] requestBuffer = new Request[16];	// Reused by buildRequest()
+	private WorkloadRecord record = null;	// Reused by parseNextRecords()
+	
+	private WorkloadPrefetcher prefetcher = null;
 	
 	public WorkloadParser(String file, int userId, UtilizationModel cloudletUtilModel, 
 			Map<String, Integer> vmNameIdMap, Map<String, Integer> flowNameIdMap) {
@@ -68,7 +74,6 @@ public class WorkloadParser {
 		
 		String result_file = getResultFileName(this.file);
 		resultWriter = new WorkloadResultWriter(result_file);
-		openFile();
 	}
 	
 	public void forceStartTime(double forcedStartTime) {
@@ -81,6 +86,10 @@ public class WorkloadParser {
 	
 	public static String getResultFileName(String fileName) {
 		String result_file = null;
+		if(WorkloadParserBinary.isBinaryWorkload(fileName)) {
+			// Results are written in text
+			fileName = fileName.substring(0, fileName.length() - WorkloadParserBinary.FILE_EXTENSION.length()) + ".csv";
+		}
 		int indexSlash = fileName.lastIndexOf("/");
 		if(indexSlash != -1) {
 			String path_folder = fileName.substring(0, indexSlash+1);
@@ -93,9 +102,43 @@ public class WorkloadParser {
 		return result_file;
 	}
 	
+	/**
+	 * Reads workloads ahead in a background thread. Only for parsers supporting readRecord().
+	 * Must be called before the first parseNextWorkloads().
+	 */
+	public void enablePrefetching() {
+		if(!supportsRecords())
+			throw new UnsupportedOperationException("WorkloadParser: "+getClass().getSimpleName()+" cannot prefetch workloads:"+file);
+		if(opened)
+			throw new IllegalStateException("WorkloadParser: prefetching must be enabled before parsing:"+file);
+		prefetcher = new WorkloadPrefetcher(this, NUM_PARSE_EACHTIME);
+	}
+	
+	/**
+	 * Stops prefetching and closes the workload file, also when the workloads are not read to the end.
+	 */
+	public void close() {
+		if(prefetcher != null)
+			prefetcher.stop();	// Not to read the file while closing it
+		closeFile();
+	}
+	
 	public void parseNextWorkloads() {
+		if(!opened) {
+			// Opened on the first call, after the subclass is fully constructed
+			openFile();
+			opened = true;
+			if(prefetcher != null)
+				prefetcher.start();
+		}
 		this.parsedWorkloads = new ArrayList<Workload>();
-		parseNext(NUM_PARSE_EACHTIME);
+		if(prefetcher != null) {
+			for(WorkloadRecord r:prefetcher.takeBatch())
+				parsedWorkloads.add(toWorkload(r));
+		}
+		else {
+			parseNext(NUM_PARSE_EACHTIME);
+		}
 	}
 	
 	public List<Workload> getParsedWorkloads() {
@@ -108,7 +151,7 @@ public class WorkloadParser {
 	}
 	
 	
-	private int getVmId(String vmName) {
+	protected int getVmId(String vmName) {
 		Integer vmId = this.vmNames.get(vmName);
 		if(vmId == null) {
 			System.err.println("Cannot find VM name:"+vmName);
@@ -117,7 +160,7 @@ public class WorkloadParser {
 		return vmId;
 	}
 
-	private Cloudlet generateCloudlet(long cloudletId, int vmId, int length) {
+	protected Cloudlet generateCloudlet(long cloudletId, int vmId, int length) {
 		int peNum=1;
 		long fileSize = 300;
 		long outputSize = 300;
@@ -173,7 +216,81 @@ public class WorkloadParser {
 		return req;
 	}
 	
-	private void openFile() {
+	/**
+	 * Builds the chain of requests from parsed values, creating requests, cloudlets and packets
+	 * in the same order as parseRequest() so that their IDs are identical.
+	 * Hop i processes cloudletLens[i] at vmIds[i], and then sends pktSizes[i] to vmIds[i+1] via flowIds[i].
+	 * @param numHops number of processing activities
+	 */
+	protected Request buildRequest(int numHops, int[] vmIds, long[] cloudletLens, int[] flowIds, long[] pktSizes) {
+		if(numHops <= 0)
+		{
+			System.err.println("No REQUEST! ERROR");
+			return null;
+		}
+		
+		if(requestBuffer.length < numHops)
+			requestBuffer = new Request[Math.max(numHops, requestBuffer.length * 2)];
+		
+		for(int i=0; i<numHops; i++) {
+			long cloudletLen = cloudletLens[i];
+			cloudletLen*=Configuration.CPU_SIZE_MULTIPLY;
+			
+			Request req = new Request(userId);
+			Cloudlet cl = generateCloudlet(req.getRequestId(), vmIds[i], (int) cloudletLen);
+			req.addActivity(new Processing(cl));
+			requestBuffer[i] = req;
+		}
+		
+		// Packets of the later hops are created first, as in the recursive parseRequest()
+		for(int i=numHops-2; i>=0; i--) {
+			long pktSize = pktSizes[i];
+			pktSize*=Configuration.NETWORK_PACKET_SIZE_MULTIPLY;
+			if(pktSize<0)
+				pktSize=0;
+			
+			Transmission trans = new Transmission(vmIds[i], vmIds[i+1], pktSize, flowIds[i], requestBuffer[i+1]);
+			requestBuffer[i].addActivity(trans);
+		}
+		
+		Request req = requestBuffer[0];
+		Arrays.fill(requestBuffer, 0, numHops, null);
+		return req;
+	}
+	
+	/**
+	 * Whether readRecord() is implemented. Only such parsers can prefetch workloads.
+	 */
+	protected boolean supportsRecords() {
+		return false;
+	}
+	
+	/**
+	 * Reads the next workload, skipping the ones out of the forced start/finish time.
+	 * Only for parsers that resolve names by themselves (supportsRecords()), as it can be called from the prefetching thread.
+	 * @return false at the end of file
+	 */
+	protected boolean readRecord(WorkloadRecord record) {
+		throw new UnsupportedOperationException("WorkloadParser: "+getClass().getSimpleName()+" cannot read workload records");
+	}
+	
+	protected Workload toWorkload(WorkloadRecord r) {
+		Workload tr = new Workload(r.workloadId, this.resultWriter);
+		tr.time = r.time;
+		tr.submitVmId = r.submitVmId;
+		tr.submitPktSize = r.submitPktSize;
+		tr.request = buildRequest(r.numHops, r.vmIds, r.cloudletLens, r.flowIds, r.pktSizes);
+		return tr;
+	}
+	
+	protected void parseNextRecords(int numRequests) {
+		if(record == null)
+			record = new WorkloadRecord();
+		while((parsedWorkloads.size() < numRequests) && readRecord(record))
+			parsedWorkloads.add(toWorkload(record));
+	}
+	
+	protected void openFile() {
 		try {
 			bufReader = new BufferedReader(new FileReader(Configuration.workingDirectory+file));
 		} catch (FileNotFoundException e) {
@@ -188,12 +305,24 @@ public class WorkloadParser {
 		}
 	}
 	
-	private void parseNext(int numRequests) {
+	protected void closeFile() {
+		if(bufReader == null)
+			return;
+		try {
+			bufReader.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		bufReader = null;
+	}
+	
+	protected void parseNext(int numRequests) {
 		String line;
 		
 		try {
-			while (((line = bufReader.readLine()) != null)
-					&& (parsedWorkloads.size() < numRequests) ){
+			// Check the size first, not to drop the line read after the limit is reached.
+			while ((parsedWorkloads.size() < numRequests)
+					&& ((line = bufReader.readLine()) != null) ){
 				//System.out.println("parsing:"+line);
 				Workload tr = new Workload(workloadNum++, this.resultWriter);
 				
@@ -0,0 +1,246 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.parsers;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.UtilizationModel;
+import org.cloudbus.cloudsim.sdn.Configuration;
+
+/**
+ * Parse a binary workload file converted from [request].csv by WorkloadBinaryConverter.
+ * The file is read through memory-mapped windows, without any text parsing.
+ * Supports prefetching (WorkloadParser.enablePrefetching()).
+ *
+ * File format (big endian):
+ *   header  : int MAGIC, int VERSION, long offset of the name tables
+ *   records : double time, int vm, int pkt_size, int num_hops,
+ *             then per hop: long cloudlet_len, and except the last hop: int flow, int vm, long pkt_size
+ *   tables  : int num_vm_names, UTF name..., int num_flow_names, UTF name...
+ *
+ * VMs and flows are stored as indices of the name tables, which are resolved to the current
+ * VM and flow IDs when the file is opened. Thus the file remains valid when the IDs change between runs.
+ */
+public class WorkloadParserBinary extends WorkloadParser {
+	public static final String FILE_EXTENSION = ".bin";
+	public static final int MAGIC = 0x43535744;	// "CSWD"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+
+	private static final long WINDOW_SIZE = 64L << 20;
+
+	private FileChannel channel;
+	private MappedByteBuffer window;
+	private long windowStart;	// File position of the window
+	private long recordsEnd;	// File position of the name tables
+
+	private String[] vmTable;
+	private String[] flowTable;
+	private int[] vmIdTable;	// Table index -> VM ID
+	private int[] flowIdTable;	// Table index -> flow ID, or NameTrie.NOT_FOUND
+
+	public WorkloadParserBinary(String file, int userId, UtilizationModel cloudletUtilModel,
+			Map<String, Integer> vmNameIdMap, Map<String, Integer> flowNameIdMap) {
+		super(file, userId, cloudletUtilModel, vmNameIdMap, flowNameIdMap);
+	}
+
+	public static boolean isBinaryWorkload(String file) {
+		return file.endsWith(FILE_EXTENSION);
+	}
+
+	@Override
+	protected void openFile() {
+		try {
+			@SuppressWarnings("resource")	// Closed with the channel
+			RandomAccessFile raf = new RandomAccessFile(Configuration.workingDirectory+file, "r");
+			channel = raf.getChannel();
+		} catch (IOException e) {
+			e.printStackTrace();
+			channel = null;
+			return;
+		}
+
+		try {
+			map(0, HEADER_SIZE);
+			if(window.remaining() < HEADER_SIZE || window.getInt() != MAGIC)
+				throw new IllegalArgumentException("Not a binary workload file:"+file);
+			int version = window.getInt();
+			if(version != VERSION)
+				throw new IllegalArgumentException("Unsupported binary workload version:"+version+" in "+file);
+			recordsEnd = window.getLong();
+			if(recordsEnd < HEADER_SIZE || recordsEnd > channel.size())
+				throw new IllegalArgumentException("Corrupted binary workload file:"+file);
+
+			readNameTables();
+			map(HEADER_SIZE, 0);
+		} catch (IOException e) {
+			e.printStackTrace();
+			closeFile();
+		} catch (RuntimeException e) {
+			closeFile();
+			throw e;
+		}
+	}
+
+	@Override
+	protected void closeFile() {
+		window = null;
+		if(channel == null)
+			return;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		channel = null;
+	}
+
+	private void readNameTables() throws IOException {
+		channel.position(recordsEnd);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+
+		vmTable = new String[readTableSize(in)];
+		vmIdTable = new int[vmTable.length];
+		for(int i=0; i<vmTable.length; i++) {
+			vmTable[i] = in.readUTF();
+			Integer vmId = this.vmNames.get(vmTable[i]);
+			vmIdTable[i] = (vmId == null) ? -1 : vmId;
+		}
+
+		flowTable = new String[readTableSize(in)];
+		flowIdTable = new int[flowTable.length];
+		for(int i=0; i<flowTable.length; i++) {
+			flowTable[i] = in.readUTF();
+			Integer flowId = this.flowNames.get(flowTable[i]);
+			flowIdTable[i] = (flowId == null) ? NameTrie.NOT_FOUND : flowId;
+		}
+	}
+
+	private int readTableSize(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		if(size < 0)
+			throw new IllegalArgumentException("Corrupted binary workload file:"+file);
+		return size;
+	}
+
+	// Maps the window starting at the given file position, at least minSize bytes if available.
+	private void map(long position, long minSize) throws IOException {
+		long end = (recordsEnd > 0) ? recordsEnd : channel.size();
+		long size = Math.min(Math.max(WINDOW_SIZE, minSize), end - position);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+		windowStart = position;
+	}
+
+	// Makes sure the next bytes are in the window. Returns false at the end of records.
+	private boolean ensure(long bytes) throws IOException {
+		if(window.remaining() >= bytes)
+			return true;
+
+		long position = windowStart + window.position();
+		if(position + bytes > recordsEnd) {
+			if(position < recordsEnd)
+				throw new IllegalArgumentException("Truncated binary workload file:"+file);
+			return false;
+		}
+		map(position, bytes);
+		return true;
+	}
+
+	private int getVmId(int index) {
+		if(index < 0 || index >= vmIdTable.length)
+			throw new IllegalArgumentException("Corrupted binary workload file:"+file+" (VM index "+index+")");
+		int vmId = vmIdTable[index];
+		if(vmId == -1)
+			return getVmId(vmTable[index]);	// Prints the error
+		return vmId;
+	}
+
+	private int getFlowId(int index) {
+		if(index < 0 || index >= flowIdTable.length)
+			throw new IllegalArgumentException("Corrupted binary workload file:"+file+" (flow index "+index+")");
+		int flowId = flowIdTable[index];
+		if(flowId == NameTrie.NOT_FOUND)
+			throw new IllegalArgumentException("No such link name in virtual.json:"+flowTable[index]);
+		return flowId;
+	}
+
+	public static long getRecordSize(int numHops) {
+		if(numHops == 0)
+			return 20;
+		return 20 + numHops * 8L + (numHops - 1) * 16L;	// long: a corrupted numHops must not overflow
+	}
+
+	@Override
+	protected void parseNext(int numRequests) {
+		parseNextRecords(numRequests);
+	}
+
+	@Override
+	protected boolean supportsRecords() {
+		return true;
+	}
+
+	@Override
+	protected boolean readRecord(WorkloadRecord r) {
+		if(channel == null)
+			return false;
+
+		try {
+			while(ensure(getRecordSize(0))) {
+				double time = window.getDouble();
+				int submitVm = window.getInt();
+				int submitPktSize = window.getInt();
+				int numHops = window.getInt();
+				long remaining = recordsEnd - (windowStart + window.position());
+				if(numHops < 0 || getRecordSize(numHops) - getRecordSize(0) > remaining || !ensure(getRecordSize(numHops) - getRecordSize(0)))
+					throw new IllegalArgumentException("Corrupted binary workload file:"+file);
+
+				r.workloadId = workloadNum++;
+				r.time = time;
+				// For debug only
+				if(r.time < this.forcedStartTime || r.time > this.forcedFinishTime) { // Skip Workloads before the set start time
+					window.position(window.position() + (int) (getRecordSize(numHops) - getRecordSize(0)));
+					continue;
+				}
+
+				r.submitVmId = getVmId(submitVm);
+				r.submitPktSize = submitPktSize;
+
+				r.setNumHops(numHops);
+				r.vmIds[0] = r.submitVmId;
+				for(int i=0; i<numHops; i++) {
+					r.cloudletLens[i] = window.getLong();
+					if(i < numHops - 1) {
+						r.flowIds[i] = getFlowId(window.getInt());
+						r.vmIds[i+1] = getVmId(window.getInt());
+						r.pktSizes[i] = window.getLong();
+					}
+				}
+				return true;
+			}
+
+			closeFile();
+		} catch (ClosedByInterruptException e) {
+			// Prefetching stopped (WorkloadPrefetcher.stop())
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (RuntimeException e) {
+			closeFile();	// Corrupted file
+			throw e;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,322 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.parsers;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.UtilizationModel;
+import org.cloudbus.cloudsim.sdn.Configuration;
+
+/**
+ * Parse [request].csv file in the same format as WorkloadParser, without creating Strings.
+ * The file is read through a FileChannel into a reused byte buffer, fields are tokenized in place,
+ * numbers are parsed from the bytes, and VM / flow names are resolved through NameTrie.
+ * Only Workload, Request, Cloudlet and Transmission objects are created per line.
+ * Supports prefetching (WorkloadParser.enablePrefetching()).
+ */
+public class WorkloadParserStreaming extends WorkloadParser {
+	private static final int BUFFER_SIZE = 1 << 20;
+	private static final int MAX_FAST_DIGITS = 15;
+	private static final double[] POW10 = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+			1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private NameTrie vmTrie;
+	private NameTrie flowTrie;
+
+	private FileChannel channel;
+	private ByteBuffer buffer;
+	private byte[] buf;
+	private int pos;	// Start of the unread data in buf
+	private int limit;	// End of the valid data in buf
+	private boolean eof;
+
+	// Current line
+	private int lineStart, lineEnd;
+	private int[] fieldStart = new int[32];
+	private int[] fieldEnd = new int[32];
+
+	public WorkloadParserStreaming(String file, int userId, UtilizationModel cloudletUtilModel,
+			Map<String, Integer> vmNameIdMap, Map<String, Integer> flowNameIdMap) {
+		super(file, userId, cloudletUtilModel, vmNameIdMap, flowNameIdMap);
+		this.vmTrie = new NameTrie(vmNameIdMap);
+		this.flowTrie = new NameTrie(flowNameIdMap);
+	}
+
+	@Override
+	protected void openFile() {
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		buf = buffer.array();
+		pos = limit = 0;
+		eof = false;
+
+		try {
+			channel = new FileInputStream(Configuration.workingDirectory+file).getChannel();
+		} catch (IOException e) {
+			e.printStackTrace();
+			eof = true;
+			return;
+		}
+
+		// Skip the header
+		nextLine();
+	}
+
+	// Fills the buffer with more data, keeping the unread part. Returns false at the end of file.
+	private boolean fill() {
+		if(eof)
+			return false;
+
+		if(pos > 0) {
+			System.arraycopy(buf, pos, buf, 0, limit - pos);
+			limit -= pos;
+			pos = 0;
+		}
+		if(limit == buf.length) {
+			// A line longer than the buffer
+			buf = Arrays.copyOf(buf, buf.length * 2);
+			buffer = ByteBuffer.wrap(buf);
+		}
+
+		try {
+			buffer.limit(buf.length);
+			buffer.position(limit);
+			int read = channel.read(buffer);
+			if(read < 0) {
+				eof = true;
+				channel.close();
+				return false;
+			}
+			limit += read;
+		} catch (ClosedByInterruptException e) {
+			// Prefetching stopped (WorkloadPrefetcher.stop())
+			eof = true;
+			return false;
+		} catch (IOException e) {
+			e.printStackTrace();
+			eof = true;
+			return false;
+		}
+		return true;
+	}
+
+	// Sets lineStart and lineEnd to the next line, without the line break. Returns false at the end of file.
+	private boolean nextLine() {
+		int scan = pos;
+		while(true) {
+			while(scan < limit && buf[scan] != '\n')
+				scan++;
+
+			if(scan < limit) {
+				lineStart = pos;
+				lineEnd = scan;
+				pos = scan + 1;
+				break;
+			}
+
+			int scanned = scan - pos;
+			if(!fill()) {
+				if(pos == limit)
+					return false;
+				// The last line without a line break
+				lineStart = pos;
+				lineEnd = limit;
+				pos = limit;
+				break;
+			}
+			scan = pos + scanned;
+		}
+
+		if(lineEnd > lineStart && buf[lineEnd-1] == '\r')
+			lineEnd--;
+		return true;
+	}
+
+	// Splits the current line by commas. Trailing empty fields are dropped as in String.split().
+	private int splitFields() {
+		int num = 0;
+		int start = lineStart;
+		for(int i=lineStart; i<=lineEnd; i++) {
+			if(i == lineEnd || buf[i] == ',') {
+				if(num == fieldStart.length) {
+					fieldStart = Arrays.copyOf(fieldStart, num * 2);
+					fieldEnd = Arrays.copyOf(fieldEnd, num * 2);
+				}
+				fieldStart[num] = start;
+				fieldEnd[num] = i;
+				num++;
+				start = i + 1;
+			}
+		}
+
+		while(num > 0 && fieldStart[num-1] == fieldEnd[num-1])
+			num--;
+		return num;
+	}
+
+	private String fieldString(int f) {
+		return new String(buf, fieldStart[f], fieldEnd[f] - fieldStart[f], StandardCharsets.UTF_8);
+	}
+
+	private int getVmId(int f) {
+		int vmId = vmTrie.get(buf, fieldStart[f], fieldEnd[f]);
+		if(vmId == NameTrie.NOT_FOUND)
+			return getVmId(fieldString(f));	// Prints the error
+		return vmId;
+	}
+
+	private int getFlowId(int f) {
+		int flowId = flowTrie.get(buf, fieldStart[f], fieldEnd[f]);
+		if(flowId == NameTrie.NOT_FOUND)
+			throw new IllegalArgumentException("No such link name in virtual.json:"+fieldString(f));
+		return flowId;
+	}
+
+	@Override
+	protected void parseNext(int numRequests) {
+		parseNextRecords(numRequests);
+	}
+
+	@Override
+	protected void closeFile() {
+		eof = true;
+		if(channel == null)
+			return;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		channel = null;
+	}
+
+	@Override
+	protected boolean supportsRecords() {
+		return true;
+	}
+
+	@Override
+	protected boolean readRecord(WorkloadRecord r) {
+		while(nextLine()) {
+			if(lineStart == lineEnd)
+				continue;
+
+			int numFields = splitFields();
+			// time, vm, pkt_size, then (cloudlet_len, flow, vm, pkt_size)* cloudlet_len
+			if(numFields < 3 || (numFields > 3 && (numFields - 4) % 4 != 0))
+				throw new IllegalArgumentException("Malformed workload line:"+
+						new String(buf, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+
+			r.workloadId = workloadNum++;
+			r.time = parseDouble(buf, fieldStart[0], fieldEnd[0]);
+			// For debug only
+			if(r.time < this.forcedStartTime || r.time > this.forcedFinishTime) // Skip Workloads before the set start time
+				continue;
+
+			r.submitVmId = getVmId(1);
+			r.submitPktSize = parseInt(buf, fieldStart[2], fieldEnd[2]);
+
+			r.setNumHops((numFields == 3) ? 0 : (numFields - 4) / 4 + 1);
+			r.vmIds[0] = r.submitVmId;
+			for(int i=0; i<r.numHops; i++) {
+				int f = 3 + i * 4;
+				r.cloudletLens[i] = parseLong(buf, fieldStart[f], fieldEnd[f]);
+				if(i < r.numHops - 1) {
+					r.flowIds[i] = getFlowId(f+1);
+					r.vmIds[i+1] = getVmId(f+2);
+					r.pktSizes[i] = parseLong(buf, fieldStart[f+3], fieldEnd[f+3]);
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private static String toAscii(byte[] b, int start, int end) {
+		return new String(b, start, end - start, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Parses a decimal integer from b[start, end). Falls back to Long.parseLong() for anything unusual,
+	 * which also throws the same NumberFormatException as the text parser.
+	 */
+	static long parseLong(byte[] b, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if(i < end && (b[i] == '-' || b[i] == '+')) {
+			negative = (b[i] == '-');
+			i++;
+		}
+		if(i == end)
+			return Long.parseLong(toAscii(b, start, end));
+
+		long result = 0;
+		for(; i<end; i++) {
+			int d = b[i] - '0';
+			if(d < 0 || d > 9 || result > (Long.MAX_VALUE - d) / 10)
+				return Long.parseLong(toAscii(b, start, end));
+			result = result * 10 + d;
+		}
+		return negative ? -result : result;
+	}
+
+	static int parseInt(byte[] b, int start, int end) {
+		long result = parseLong(b, start, end);
+		if(result < Integer.MIN_VALUE || result > Integer.MAX_VALUE)
+			return Integer.parseInt(toAscii(b, start, end));
+		return (int) result;
+	}
+
+	/**
+	 * Parses a plain decimal number from b[start, end).
+	 * With at most 15 digits the mantissa and the power of ten are exact doubles, so a single division
+	 * gives the correctly rounded result, identical to Double.parseDouble().
+	 * Other forms (exponent, more digits, whitespace) fall back to Double.parseDouble().
+	 */
+	static double parseDouble(byte[] b, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if(i < end && (b[i] == '-' || b[i] == '+')) {
+			negative = (b[i] == '-');
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = -1;	// -1 until the decimal point
+		for(; i<end; i++) {
+			int d = b[i] - '0';
+			if(d >= 0 && d <= 9) {
+				mantissa = mantissa * 10 + d;
+				digits++;
+				if(fractionDigits >= 0)
+					fractionDigits++;
+				if(digits > MAX_FAST_DIGITS)
+					return Double.parseDouble(toAscii(b, start, end));
+			}
+			else if(b[i] == '.' && fractionDigits < 0) {
+				fractionDigits = 0;
+			}
+			else {
+				return Double.parseDouble(toAscii(b, start, end));
+			}
+		}
+		if(digits == 0)
+			return Double.parseDouble(toAscii(b, start, end));
+
+		double result = (fractionDigits > 0) ? mantissa / POW10[fractionDigits] : (double) mantissa;
+		return negative ? -result : result;
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.parsers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.cloudbus.cloudsim.sdn.Configuration;
+
+/**
+ * Reads workload records of a WorkloadParser in a background thread, ahead of the simulation.
+ * Records are passed to the simulation thread through a bounded queue, where they are turned into
+ * Workloads and Requests in order (IDs of requests and packets remain deterministic).
+ *
+ * The number of workloads handed out at once adapts to the arrival rate of the trace,
+ * so that each batch covers about Configuration.WORKLOAD_PREFETCH_WINDOW seconds of simulation time.
+ * Batch sizes depend only on the trace, not on the speed of the background thread, so runs are deterministic.
+ */
+public class WorkloadPrefetcher implements Runnable {
+	private static final int PRODUCER_BATCH = 256;	// Records per queue element
+	private static final int QUEUE_CAPACITY = 64;	// Queue elements read ahead
+	private static final int MIN_BATCH = 50;
+	private static final int MAX_BATCH = 20000;
+	private static final double RATE_SMOOTHING = 0.5;
+
+	private static final List<WorkloadRecord> END = new ArrayList<WorkloadRecord>(0);	// Marks the end of file
+
+	private final WorkloadParser parser;
+	private final BlockingQueue<List<WorkloadRecord>> queue = new ArrayBlockingQueue<List<WorkloadRecord>>(QUEUE_CAPACITY);
+	private volatile Throwable error = null;
+	private volatile boolean stopped = false;
+	private Thread thread = null;
+
+	// Simulation thread only
+	private List<WorkloadRecord> current = null;
+	private int currentIndex = 0;
+	private boolean finished = false;
+	private int batchSize;
+	private double arrivalRate = -1;	// Workloads per second
+
+	public WorkloadPrefetcher(WorkloadParser parser, int initialBatchSize) {
+		this.parser = parser;
+		this.batchSize = initialBatchSize;
+	}
+
+	public void start() {
+		thread = new Thread(this, "WorkloadPrefetcher-"+parser.file);
+		thread.setDaemon(true);	// Does not block exiting when the simulation finishes early
+		thread.start();
+	}
+
+	/**
+	 * Stops the background thread and waits until it exits, so that the parser can close the file.
+	 * The thread is interrupted to wake it up when the queue is full.
+	 */
+	public void stop() {
+		stopped = true;
+		if(thread == null)
+			return;
+
+		thread.interrupt();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		thread = null;
+	}
+
+	@Override
+	public void run() {
+		try {
+			List<WorkloadRecord> batch = new ArrayList<WorkloadRecord>(PRODUCER_BATCH);
+			WorkloadRecord r = new WorkloadRecord();
+			while(!stopped && parser.readRecord(r)) {
+				batch.add(r);
+				r = new WorkloadRecord();
+				if(batch.size() == PRODUCER_BATCH) {
+					queue.put(batch);
+					batch = new ArrayList<WorkloadRecord>(PRODUCER_BATCH);
+				}
+			}
+			if(stopped)
+				return;
+			if(!batch.isEmpty())
+				queue.put(batch);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		} catch (Throwable e) {
+			if(stopped)
+				return;	// Nobody reads the records any more
+			error = e;	// Thrown again in the simulation thread
+		}
+
+		try {
+			queue.put(END);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private WorkloadRecord next() {
+		while(!finished && (current == null || currentIndex == current.size())) {
+			try {
+				current = queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("WorkloadPrefetcher: interrupted while reading "+parser.file, e);
+			}
+			currentIndex = 0;
+			if(current == END) {
+				finished = true;
+				current = null;
+				if(error instanceof RuntimeException)
+					throw (RuntimeException) error;
+				else if(error != null)
+					throw new RuntimeException("WorkloadPrefetcher: failed to read "+parser.file, error);
+			}
+		}
+		if(finished)
+			return null;
+		return current.get(currentIndex++);
+	}
+
+	/**
+	 * Returns the next records, waiting only if the background thread has not read them yet.
+	 * @return empty list at the end of file
+	 */
+	public List<WorkloadRecord> takeBatch() {
+		List<WorkloadRecord> records = new ArrayList<WorkloadRecord>(batchSize);
+		WorkloadRecord r;
+		while(records.size() < batchSize && (r = next()) != null)
+			records.add(r);
+
+		adaptBatchSize(records);
+		return records;
+	}
+
+	private void adaptBatchSize(List<WorkloadRecord> records) {
+		if(records.size() < 2)
+			return;
+
+		double span = records.get(records.size()-1).time - records.get(0).time;
+		if(span <= 0)
+			return;
+
+		double rate = (records.size() - 1) / span;
+		if(arrivalRate < 0)
+			arrivalRate = rate;
+		else
+			arrivalRate = RATE_SMOOTHING * rate + (1 - RATE_SMOOTHING) * arrivalRate;
+
+		double size = arrivalRate * Configuration.WORKLOAD_PREFETCH_WINDOW;
+		batchSize = (int) Math.max(MIN_BATCH, Math.min(MAX_BATCH, size));
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.parsers;
+
+import java.util.Arrays;
+
+/**
+ * Values of one workload read from a file, with VM and flow names already resolved to IDs.
+ * Request, Cloudlet and Packet objects are not created yet, because their IDs are assigned
+ * from global counters and must be created in order in the simulation thread (see WorkloadParser.toWorkload()).
+ * Hop i processes cloudletLens[i] at vmIds[i], and then sends pktSizes[i] to vmIds[i+1] via flowIds[i].
+ */
+public class WorkloadRecord {
+	public int workloadId;
+	public double time;
+	public int submitVmId;
+	public int submitPktSize;
+
+	public int numHops;
+	public int[] vmIds = new int[4];
+	public long[] cloudletLens = new long[4];
+	public int[] flowIds = new int[4];
+	public long[] pktSizes = new long[4];
+
+	public void setNumHops(int numHops) {
+		this.numHops = numHops;
+		if(vmIds.length >= numHops)
+			return;
+
+		int capacity = Math.max(numHops, vmIds.length * 2);
+		vmIds = Arrays.copyOf(vmIds, capacity);
+		cloudletLens = Arrays.copyOf(cloudletLens, capacity);
+		flowIds = Arrays.copyOf(flowIds, capacity);
+		pktSizes = Arrays.copyOf(pktSizes, capacity);
+	}
+}
@@ -8,10 +8,13 @@
 
 package org.cloudbus.cloudsim.sdn.physicalcomponents;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
+import org.cloudbus.cloudsim.sdn.Configuration;
 import org.cloudbus.cloudsim.sdn.LogWriter;
+import org.cloudbus.cloudsim.sdn.monitor.MonitoringSettings;
 import org.cloudbus.cloudsim.sdn.monitor.MonitoringValues;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
 
@@ -31,8 +34,8 @@ public class Link {
 	private double downBW;	// high -> low
 	private double latency;	// in milliseconds, need to *0.001 to transform in seconds.
 	
-	private List<Channel> upChannels;
-	private List<Channel> downChannels;
+	private Set<Channel> upChannels;
+	private Set<Channel> downChannels;
 	
 	public Link(Node highOrder, Node lowOrder, double latency, double bw) {
 		this.highOrder = highOrder;
@@ -40,8 +43,8 @@ public class Link {
 		this.upBW = this.downBW = bw;
 		this.latency = latency;
 		
-		this.upChannels = new LinkedList<Channel>();
-		this.downChannels = new LinkedList<Channel>();
+		this.upChannels = new LinkedHashSet<Channel>();
+		this.downChannels = new LinkedHashSet<Channel>();
 	}
 	
 	public Link(Node highOrder, Node lowOrder, double latency, double upBW, double downBW) {
@@ -100,8 +103,16 @@ public class Link {
 		return latency*0.001;
 	}
 	
-	private List<Channel> getChannels(Node from) {
-		List<Channel> channels;
+	/**
+	 * @return read-only view of the channels going from the given node.
+	 * Channels are added and removed only through this link, to keep the bandwidth totals up to date.
+	 */
+	public Set<Channel> getChannels(Node from) {
+		return Collections.unmodifiableSet(getChannelSet(from));
+	}
+	
+	private Set<Channel> getChannelSet(Node from) {
+		Set<Channel> channels;
 		if(isUplink(from)) {
 			channels = this.upChannels;
 		}
@@ -123,24 +134,70 @@ public class Link {
 	}
 	
 	public boolean addChannel(Node from, Channel ch) {
-		getChannels(from).add(ch);
-		updateRequestedBandwidthForDedicatedChannels(from);
-		return true;
+		boolean ret = getChannelSet(from).add(ch);
+		if(ret && ch.getChId() != -1) {
+			// chId == -1 : default channel
+			updateDedicatedChannels(from, ch.getAllocatedBandwidth(), ch.getRequestedBandwidth(), 1);
+		}
+		return ret;
 	}
 	
 	public boolean removeChannel(Node from, Channel ch) {
-		boolean ret = getChannels(from).remove(ch);
-		updateRequestedBandwidthForDedicatedChannels(from);
+		boolean ret = getChannelSet(from).remove(ch);
+		if(ret && ch.getChId() != -1) {
+			updateDedicatedChannels(from, -ch.getAllocatedBandwidth(), -ch.getRequestedBandwidth(), -1);
+		}
 		return ret;
 	}
 	
-	public void updateChannel(Node from, Channel ch) {
-		updateRequestedBandwidthForDedicatedChannels(from);
+	/**
+	 * Reflects the change of allocated or requested bandwidth of a channel already added to this link.
+	 * 
+	 * @param from the node where the channel enters this link
+	 * @param ch the channel whose bandwidth is changed
+	 * @param prevAllocatedBw allocated bandwidth of the channel before the change
+	 * @param prevRequestedBw requested bandwidth of the channel before the change
+	 */
+	public void updateChannel(Node from, Channel ch, double prevAllocatedBw, double prevRequestedBw) {
+		if(ch.getChId() != -1 && getChannelSet(from).contains(ch)) {
+			updateDedicatedChannels(from, ch.getAllocatedBandwidth() - prevAllocatedBw,
+					ch.getRequestedBandwidth() - prevRequestedBw, 0);
+		}
 	}
 	
-	/*
+	// Running totals of 'Dedicated' channels, updated whenever a channel is added, removed, or changed.
 	private double allocatedBandwidthDedicatedUp = 0;
 	private double allocatedBandwidthDedicatedDown = 0;
+	private double requestedBandwidthDedicatedUp = 0;
+	private double requestedBandwidthDedicatedDown = 0;
+	private int dedicatedChannelCountUp = 0;
+	private int dedicatedChannelCountDown = 0;
+	
+	private void updateDedicatedChannels(Node from, double allocatedBwDiff, double requestedBwDiff, int countDiff) {
+		if(isUplink(from)) {
+			dedicatedChannelCountUp += countDiff;
+			if(dedicatedChannelCountUp == 0) {
+				// Reset to avoid accumulating floating point errors
+				allocatedBandwidthDedicatedUp = 0;
+				requestedBandwidthDedicatedUp = 0;
+			}
+			else {
+				allocatedBandwidthDedicatedUp += allocatedBwDiff;
+				requestedBandwidthDedicatedUp += requestedBwDiff;
+			}
+		}
+		else {
+			dedicatedChannelCountDown += countDiff;
+			if(dedicatedChannelCountDown == 0) {
+				allocatedBandwidthDedicatedDown = 0;
+				requestedBandwidthDedicatedDown = 0;
+			}
+			else {
+				allocatedBandwidthDedicatedDown += allocatedBwDiff;
+				requestedBandwidthDedicatedDown += requestedBwDiff;
+			}
+		}
+	}
 	
 	private double getAllocatedBandwidthForDedicatedChannels(Node from) {
 		if(this.isUplink(from))
@@ -148,23 +205,7 @@ public class Link {
 		else
 			return allocatedBandwidthDedicatedDown;
 	}
-	*/
 
-	private double getAllocatedBandwidthForDedicatedChannels(Node from) {
-		
-		double bw=0;
-		for(Channel ch: getChannels(from)) {
-			if(ch.getChId() != -1) {
-				// chId == -1 : default channel
-				bw += ch.getAllocatedBandwidth();
-			}
-		}
-		return bw;
-	}
-
-	private double requestedBandwidthDedicatedUp = 0;
-	private double requestedBandwidthDedicatedDown = 0;
-	
 	private double getRequestedBandwidthForDedicatedChannels(Node from) {
 		if(this.isUplink(from))
 			return requestedBandwidthDedicatedUp;
@@ -172,41 +213,19 @@ public class Link {
 			return requestedBandwidthDedicatedDown;
 	}
 
-	private void updateRequestedBandwidthForDedicatedChannels(Node from) {
-		// Look through all busy channel and sum up the amount of total requested bandwidth.
-		double bw=0;
-		for(Channel ch: getChannels(from)) {
-			if(ch.getChId() != -1) {
-				// chId == -1 : default channel
-				bw += ch.getRequestedBandwidth(); // Only counted for 'Dedicated' channels
-			}
-		}
-		if(isUplink(from)) {
-			requestedBandwidthDedicatedUp = bw;
-		}
-		else{
-			requestedBandwidthDedicatedDown = bw;
-		}
-	}
-
 	public int getChannelCount(Node from) {
-		List<Channel> channels =  getChannels(from);
-		return channels.size();
+		return getChannelSet(from).size();
 	}
 	
 	public int getDedicatedChannelCount(Node from) {
-		int num=0;
-		for(Channel ch: getChannels(from)) {
-			if(ch.getChId() != -1) {
-				// chId == -1 : default channel
-				num ++;
-			}
-		}
-		return num;
+		if(this.isUplink(from))
+			return dedicatedChannelCountUp;
+		else
+			return dedicatedChannelCountDown;
 	}
 	
 	public int getSharedChannelCount(Node from) {
-		int num =  getChannels(from).size() - getDedicatedChannelCount(from);
+		int num =  getChannelCount(from) - getDedicatedChannelCount(from);
 		return num;
 	}
 	
@@ -263,18 +282,25 @@ public class Link {
 	
 	public double updateMonitor(double logTime, double timeUnit) {
 		long capacity = (long) (this.getBw() * timeUnit);
+		boolean history = MonitoringSettings.isHistoryEnabled();
 		double utilization1 = (double)monitoringProcessedBytesPerUnitUp / capacity;
-		mvUp.add(utilization1, logTime);
+		if(history)
+			mvUp.add(utilization1, logTime);
 		monitoringProcessedBytesPerUnitUp = 0;
 		
-		LogWriter log = LogWriter.getLogger("link_utilization_up.csv");
-		log.printLine(this.lowOrder+","+logTime+","+utilization1);
+		if(MonitoringSettings.isLogged(Configuration.MONITOR_LOG_LINK, this.lowOrder.getAddress())) {
+			LogWriter log = LogWriter.getLogger("link_utilization_up.csv");
+			log.log(this.lowOrder, logTime, utilization1);
+		}
 		
 		double utilization2 = (double)monitoringProcessedBytesPerUnitDown / capacity;
-		mvDown.add(utilization2, logTime);
+		if(history)
+			mvDown.add(utilization2, logTime);
 		monitoringProcessedBytesPerUnitDown = 0;
-		LogWriter logDown = LogWriter.getLogger("link_utilization_down.csv");
-		logDown.printLine(this.highOrder+","+logTime+","+utilization2);		
+		if(MonitoringSettings.isLogged(Configuration.MONITOR_LOG_LINK, this.highOrder.getAddress())) {
+			LogWriter logDown = LogWriter.getLogger("link_utilization_down.csv");
+			logDown.log(this.highOrder, logTime, utilization2);
+		}
 		
 		return Double.max(utilization1, utilization2);
 	}
@@ -10,6 +10,8 @@ package org.cloudbus.cloudsim.sdn.physicalcomponents;
 
 import java.util.List;
 
+import org.cloudbus.cloudsim.sdn.virtualcomponents.ForwardingRule;
+
 /**
  * Node represents network node (host or switch)
  *  
@@ -24,6 +26,7 @@ public interface Node {
 	public int getRank();
 	
 	public void clearVMRoutingTable();
+	public void setVMRoutingTable(ForwardingRule forwardingTable);
 	public void addVMRoute(int srcVM, int destVM, int flowId, Node to);
 	public Node getVMRoute(int srcVM, int destVM, int flowId);
 	public void removeVMRoute(int srcVM, int destVM, int flowId);
@@ -33,6 +36,7 @@ public interface Node {
 	public List<Link> getRoute(Node destHost);
 	
 	public RoutingTable getRoutingTable();
+	public void setRoutingTable(RoutingTable routingTable);
 
 	public void addLink(Link l);
 	public Link getLinkTo(Node nextHop);
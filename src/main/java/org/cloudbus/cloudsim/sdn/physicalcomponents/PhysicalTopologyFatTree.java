@@ -10,6 +10,8 @@ package org.cloudbus.cloudsim.sdn.physicalcomponents;
 
 import java.util.Collection;
 
+import org.cloudbus.cloudsim.sdn.Configuration;
+
 
 /**
  * Network connection maps including switches, hosts, and links between them
@@ -23,7 +25,8 @@ public class PhysicalTopologyFatTree extends PhysicalTopology {
 	@Override
 	public void buildDefaultRouting() {
 		buildDefaultRoutingFatTree();
-		printTopology();
+		if(Configuration.DEBUG_PRINT_TOPOLOGY)
+			printTopology();
 	}
 	
 	protected void buildDefaultRoutingFatTree() {
@@ -60,12 +63,13 @@ public class PhysicalTopologyFatTree extends PhysicalTopology {
 		for(Node agg:nodes) {
 			if(agg.getRank() == RANK_AGGR) {	// Rank1 = Agg switch
 				Collection<Link> links = getAdjacentLinks(agg);
+				Collection<Node> children = agg.getRoutingTable().getKnownDestination();
 				for(Link l:links) {
 					if(l.getLowOrder().equals(agg)) {
 						Node core = l.getHighOrder();
 						
 						// Add all children hosts to
-						for(Node destination: agg.getRoutingTable().getKnownDestination()) {
+						for(Node destination: children) {
 							if(destination != null)
 								core.addRoute(destination, l); // Core -> Aggr : for KNOWN HOSTS
 						}
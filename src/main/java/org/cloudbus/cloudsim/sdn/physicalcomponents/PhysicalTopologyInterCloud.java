@@ -13,6 +13,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 
+import org.cloudbus.cloudsim.sdn.Configuration;
+
 
 /**
  * Network connection maps including switches, hosts, and links between them
@@ -28,7 +30,8 @@ public class PhysicalTopologyInterCloud extends PhysicalTopologyFatTree {
 		buildDefaultRoutingFatTree();
 		buildDefaultRoutingGateway();
 		buildDefaultRoutingInterCloud();
-		printTopology();
+		if(Configuration.DEBUG_PRINT_TOPOLOGY)
+			printTopology();
 	}
 	
 	protected void buildDefaultRoutingGateway() {		
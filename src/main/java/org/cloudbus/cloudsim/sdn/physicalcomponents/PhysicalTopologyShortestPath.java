@@ -0,0 +1,156 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn.physicalcomponents;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.sdn.Configuration;
+
+/**
+ * Network connection maps for arbitrary topologies (leaf-spine, Jellyfish, etc.),
+ * which does not depend on the rank of switches.
+ * Each switch has routes to every host through all equal-cost (shortest hop count) next hops.
+ * Hosts attached to the same set of switches share a single multi-source BFS,
+ * so the routing tables are built in one pass per group of hosts, not per host.
+ * Hosts are never used as a transit node.
+ */
+public class PhysicalTopologyShortestPath extends PhysicalTopology {
+
+	@Override
+	public void buildDefaultRouting() {
+		buildDefaultRoutingShortestPath();
+		if(Configuration.DEBUG_PRINT_TOPOLOGY)
+			printTopology();
+	}
+
+	protected void buildDefaultRoutingShortestPath() {
+		// Index nodes and build adjacency arrays
+		Node[] nodes = getAllNodes().toArray(new Node[0]);
+		int n = nodes.length;
+		Map<Node, Integer> index = new IdentityHashMap<Node, Integer>(n);
+		for(int i=0; i<n; i++)
+			index.put(nodes[i], i);
+
+		int[] adjStart = new int[n+1];
+		for(int i=0; i<n; i++)
+			adjStart[i+1] = adjStart[i] + getAdjacentLinks(nodes[i]).size();
+
+		int[] adjNode = new int[adjStart[n]];
+		Link[] adjLink = new Link[adjStart[n]];
+		for(int i=0; i<n; i++) {
+			int pos = adjStart[i];
+			for(Link l:getAdjacentLinks(nodes[i])) {
+				adjNode[pos] = index.get(l.getOtherNode(nodes[i]));
+				adjLink[pos] = l;
+				pos++;
+			}
+		}
+
+		boolean[] isHost = new boolean[n];
+		for(int i=0; i<n; i++)
+			isHost[i] = (nodes[i].getRank() == RANK_HOST);
+
+		// Hosts: default route to all attached switches.
+		// Switches: default route to the upper tier, for destinations outside of this topology.
+		for(int i=0; i<n; i++) {
+			for(int p=adjStart[i]; p<adjStart[i+1]; p++) {
+				int j = adjNode[p];
+				if(isHost[i] && !isHost[j])
+					nodes[i].addRoute(null, adjLink[p]);
+				else if(!isHost[i] && !isHost[j] && nodes[j].getRank() < nodes[i].getRank())
+					nodes[i].addRoute(null, adjLink[p]);
+			}
+		}
+
+		// Group hosts by the set of switches they are attached to
+		Map<List<Integer>, List<Integer>> hostGroups = new HashMap<List<Integer>, List<Integer>>();
+		for(int i=0; i<n; i++) {
+			if(!isHost[i])
+				continue;
+
+			int[] attached = new int[adjStart[i+1] - adjStart[i]];
+			int num = 0;
+			for(int p=adjStart[i]; p<adjStart[i+1]; p++) {
+				if(!isHost[adjNode[p]])
+					attached[num++] = adjNode[p];
+			}
+			if(num == 0)
+				continue;
+
+			attached = Arrays.copyOf(attached, num);
+			Arrays.sort(attached);
+			List<Integer> key = new ArrayList<Integer>(num);
+			for(int a:attached)
+				key.add(a);
+
+			List<Integer> group = hostGroups.get(key);
+			if(group == null) {
+				group = new ArrayList<Integer>();
+				hostGroups.put(key, group);
+			}
+			group.add(i);
+		}
+
+		int[] dist = new int[n];
+		int[] queue = new int[n];
+		for(Map.Entry<List<Integer>, List<Integer>> e:hostGroups.entrySet()) {
+			List<Integer> attached = e.getKey();
+			List<Integer> hosts = e.getValue();
+
+			// Multi-source BFS from the attached switches
+			Arrays.fill(dist, -1);
+			int head = 0, tail = 0;
+			for(int s:attached) {
+				dist[s] = 0;
+				queue[tail++] = s;
+			}
+			while(head < tail) {
+				int cur = queue[head++];
+				for(int p=adjStart[cur]; p<adjStart[cur+1]; p++) {
+					int next = adjNode[p];
+					if(dist[next] == -1 && !isHost[next]) {
+						dist[next] = dist[cur] + 1;
+						queue[tail++] = next;
+					}
+				}
+			}
+
+			// Attached switches deliver directly to the host
+			for(int h:hosts) {
+				for(int p=adjStart[h]; p<adjStart[h+1]; p++) {
+					if(!isHost[adjNode[p]])
+						nodes[adjNode[p]].addRoute(nodes[h], adjLink[p]);
+				}
+			}
+
+			// Other switches forward to every neighbor one hop closer
+			for(int q=0; q<tail; q++) {
+				int cur = queue[q];
+				if(dist[cur] == 0)
+					continue;
+				for(int p=adjStart[cur]; p<adjStart[cur+1]; p++) {
+					int next = adjNode[p];
+					if(!isHost[next] && dist[next] == dist[cur] - 1)
+						addMultipleRoute(nodes[cur], hosts, nodes, adjLink[p]);
+				}
+			}
+		}
+	}
+
+	private static void addMultipleRoute(Node from, Collection<Integer> destinations, Node[] nodes, Link through) {
+		for(int d:destinations)
+			from.addRoute(nodes[d], through);
+	}
+}
@@ -10,6 +10,8 @@ package org.cloudbus.cloudsim.sdn.physicalcomponents;
 
 import java.util.Collection;
 
+import org.cloudbus.cloudsim.sdn.Configuration;
+
 
 /**
  * Network connection maps including switches, hosts, and links between them
@@ -23,7 +25,8 @@ public class PhysicalTopologyTree extends PhysicalTopology {
 	@Override
 	public void buildDefaultRouting() {
 		buildDefaultRoutingTree();
-		printTopology();
+		if(Configuration.DEBUG_PRINT_TOPOLOGY)
+			printTopology();
 	}
 	
 	protected void buildDefaultRoutingTree() {
@@ -49,6 +52,7 @@ public class PhysicalTopologyTree extends PhysicalTopology {
 		for(Node agg:nodes) {
 			if(agg.getRank() == RANK_AGGR) {	// Rank1 = Agg switch
 				Collection<Link> links = getAdjacentLinks(agg);
+				Collection<Node> children = agg.getRoutingTable().getKnownDestination();
 				for(Link l:links) {
 					if(l.getLowOrder().equals(agg)) {
 						// Link is between Edge and Aggregate
@@ -56,7 +60,7 @@ public class PhysicalTopologyTree extends PhysicalTopology {
 						Node core = l.getHighOrder();
 						
 						// Add all children hosts to
-						for(Node destination: agg.getRoutingTable().getKnownDestination()) {
+						for(Node destination: children) {
 							if(destination != null)
 								core.addRoute(destination, l);
 						}
@@ -70,6 +74,7 @@ public class PhysicalTopologyTree extends PhysicalTopology {
 		for(Node edge:nodes) {
 			if(edge.getRank() == RANK_EDGE) {	// Rank2 = Edge switch
 				Collection<Link> links = getAdjacentLinks(edge);
+				Collection<Node> children = edge.getRoutingTable().getKnownDestination();
 				for(Link l:links) {
 					if(l.getLowOrder().equals(edge)) {
 						// Link is between Edge and Aggregate
@@ -77,7 +82,7 @@ public class PhysicalTopologyTree extends PhysicalTopology {
 						Node core = l.getHighOrder();
 						
 						// Add all children hosts to
-						for(Node destination: edge.getRoutingTable().getKnownDestination()) {
+						for(Node destination: children) {
 							if(destination != null)
 								core.addRoute(destination, l);
 						}
@@ -0,0 +1,225 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.physicalcomponents;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Routing table storing a small ECMP group id per destination host.
+ * Destinations with the same next hop links (e.g. all hosts under the same aggregation switch
+ * seen from a core switch) share one interned, read-only list of links.
+ * Destinations are kept in an open addressing table (linear probing on the node address),
+ * so a lookup is an array probe without entry objects or per-destination lists.
+ */
+public class RoutingTableCompact extends RoutingTable {
+	private static final float LOAD_FACTOR = 0.5f;
+	private static final int NO_GROUP = -1;
+
+	private Node[] destinations;	// null = empty slot
+	private int[] groupIds;
+	private int size = 0;
+	private int mask;
+
+	// Interned ECMP groups: group id -> links, links -> group id
+	private ArrayList<List<Link>> groups = new ArrayList<List<Link>>();
+	private HashMap<List<Link>, Integer> groupIndex = new HashMap<List<Link>, Integer>();
+
+	private int defaultGroup = NO_GROUP;
+
+	private Set<Node> knownDestinations = null;	// Built at the first use after the table changes
+
+	public RoutingTableCompact() {
+		allocate(16);
+	}
+
+	private void allocate(int capacity) {
+		destinations = new Node[capacity];
+		groupIds = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	private static int hash(Node node) {
+		int h = node.getAddress() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private int indexOf(Node destHost) {
+		int idx = hash(destHost) & mask;
+		while(destinations[idx] != null) {
+			if(destinations[idx] == destHost)
+				return idx;
+			idx = (idx + 1) & mask;
+		}
+		return -1;
+	}
+
+	private int intern(List<Link> links) {
+		Integer id = groupIndex.get(links);
+		if(id != null)
+			return id;
+
+		List<Link> group = Collections.unmodifiableList(new ArrayList<Link>(links));
+		id = groups.size();
+		groups.add(group);
+		groupIndex.put(group, id);
+		return id;
+	}
+
+	private int getGroupId(Node destHost) {
+		if(destHost == null)
+			return defaultGroup;
+		int idx = indexOf(destHost);
+		if(idx < 0)
+			return NO_GROUP;
+		return groupIds[idx];
+	}
+
+	private void setGroupId(Node destHost, int groupId) {
+		if(destHost == null) {
+			defaultGroup = groupId;
+			return;
+		}
+
+		int idx = hash(destHost) & mask;
+		while(destinations[idx] != null) {
+			if(destinations[idx] == destHost) {
+				groupIds[idx] = groupId;
+				return;
+			}
+			idx = (idx + 1) & mask;
+		}
+
+		destinations[idx] = destHost;
+		groupIds[idx] = groupId;
+		size++;
+		if(size > destinations.length * LOAD_FACTOR)
+			rehash(destinations.length << 1);
+	}
+
+	private void rehash(int capacity) {
+		Node[] oldDestinations = destinations;
+		int[] oldGroupIds = groupIds;
+		allocate(capacity);
+
+		for(int i=0; i<oldDestinations.length; i++) {
+			if(oldDestinations[i] == null)
+				continue;
+
+			int idx = hash(oldDestinations[i]) & mask;
+			while(destinations[idx] != null)
+				idx = (idx + 1) & mask;
+			destinations[idx] = oldDestinations[i];
+			groupIds[idx] = oldGroupIds[i];
+		}
+	}
+
+	@Override
+	public void clear() {
+		knownDestinations = null;
+		Arrays.fill(destinations, null);
+		size = 0;
+		defaultGroup = NO_GROUP;
+		groups.clear();
+		groupIndex.clear();
+	}
+
+	@Override
+	public void addRoute(Node destHost, Link to) {
+		knownDestinations = null;
+		int groupId = getGroupId(destHost);
+		List<Link> links = new ArrayList<Link>();
+		if(groupId != NO_GROUP)
+			links.addAll(groups.get(groupId));
+		links.add(to);
+		setGroupId(destHost, intern(links));
+	}
+
+	@Override
+	public void removeRoute(Node destHost) {
+		knownDestinations = null;
+		if(destHost == null) {
+			defaultGroup = NO_GROUP;
+			return;
+		}
+
+		int idx = indexOf(destHost);
+		if(idx < 0)
+			return;
+
+		// Backward shift deletion: move up the following entries of the same probe sequence.
+		int hole = idx;
+		int next = (hole + 1) & mask;
+		while(destinations[next] != null) {
+			int home = hash(destinations[next]) & mask;
+			if(((next - home) & mask) >= ((next - hole) & mask)) {
+				destinations[hole] = destinations[next];
+				groupIds[hole] = groupIds[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		destinations[hole] = null;
+		size--;
+	}
+
+	@Override
+	public List<Link> getRoute(Node destHost) {
+		int groupId = getGroupId(destHost);
+		if(groupId == NO_GROUP)
+			groupId = defaultGroup; // default route
+		if(groupId == NO_GROUP)
+			return null;
+		return groups.get(groupId);
+	}
+
+	/**
+	 * @return read-only set of the destinations (null for the default route),
+	 * shared by the callers until the table changes.
+	 */
+	@Override
+	public Set<Node> getKnownDestination() {
+		if(knownDestinations == null) {
+			Set<Node> known = new HashSet<Node>(size * 2);
+			for(Node dest:destinations) {
+				if(dest != null)
+					known.add(dest);
+			}
+			if(defaultGroup != NO_GROUP)
+				known.add(null);
+			knownDestinations = Collections.unmodifiableSet(known);
+		}
+		return knownDestinations;
+	}
+
+	/**
+	 * @return the number of distinct next hop link lists in this table.
+	 */
+	public int getGroupNum() {
+		return groups.size();
+	}
+
+	@Override
+	public void printRoutingTable() {
+		for(Node dest:getKnownDestination()) {
+			for(Link l: getRoute(dest)) {
+				System.out.println("dst:"+dest+" : "+l);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "RoutingTableCompact(destinations="+size+", groups="+groups.size()+")";
+	}
+}
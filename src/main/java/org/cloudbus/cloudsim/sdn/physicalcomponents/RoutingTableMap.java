@@ -0,0 +1,78 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2015, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.physicalcomponents;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Routing table storing a list of next hop links per destination host in a HashMap.
+ *  
+ * @author Jungmin Son
+ * @author Rodrigo N. Calheiros
+ * @since CloudSimSDN 1.0
+ */
+public class RoutingTableMap extends RoutingTable {
+	
+	Map<Node, List<Link>> table;
+
+	public RoutingTableMap(){
+		this.table = new HashMap<Node, List<Link>>();
+	}
+	
+	@Override
+	public void clear(){
+		table.clear();
+	}
+	
+	@Override
+	public void addRoute(Node destHost, Link to){
+		// Default route with destHost == null
+		List<Link> links = table.get(destHost);
+		if(links == null)
+		{
+			links = new ArrayList<Link>();
+		}
+		links.add(to);
+		table.put(destHost, links);
+	}
+	
+	@Override
+	public void removeRoute(Node destHost){
+		table.remove(destHost);
+	}
+
+	@Override
+	public List<Link> getRoute(Node destHost) {
+		List<Link> links = table.get(destHost);
+		if(links == null)
+			links = table.get(null); // default route
+		return links;
+	}
+	
+	@Override
+	public Set<Node> getKnownDestination() {
+		return table.keySet();
+	}
+	
+	@Override
+	public void printRoutingTable() {
+		for(Node key:table.keySet()) {
+			for(Link l: table.get(key)) {
+				System.out.println("dst:"+key+" : "+l);
+			}
+		}
+	}
+	
+	public String toString() {
+		return table.toString();
+	}
+}
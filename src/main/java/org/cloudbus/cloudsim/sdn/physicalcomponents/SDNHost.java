@@ -20,12 +20,15 @@ import org.cloudbus.cloudsim.VmScheduler;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.provisioners.BwProvisioner;
 import org.cloudbus.cloudsim.provisioners.RamProvisioner;
+import org.cloudbus.cloudsim.sdn.Configuration;
 import org.cloudbus.cloudsim.sdn.LogWriter;
 import org.cloudbus.cloudsim.sdn.VmSchedulerTimeSharedOverSubscriptionDynamicVM;
+import org.cloudbus.cloudsim.sdn.monitor.MonitoringSettings;
 import org.cloudbus.cloudsim.sdn.monitor.MonitoringValues;
 import org.cloudbus.cloudsim.sdn.monitor.power.PowerUtilizationEnergyModelHostLinear;
 import org.cloudbus.cloudsim.sdn.monitor.power.PowerUtilizationMonitor;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.ForwardingRule;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.ForwardingRuleTable;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.SDNVm;
 
 
@@ -55,8 +58,8 @@ public class SDNHost extends Host implements Node {
 			String name){
 		super(NodeUtil.assignAddress(), ramProvisioner, bwProvisioner, storage,peList,vmScheduler);
 			
-		this.forwardingTable = new ForwardingRule();
-		this.routingTable = new RoutingTable();
+		this.forwardingTable = new ForwardingRuleTable();
+		this.routingTable = new RoutingTableMap();
 		this.name = name;
 	}
 	
@@ -253,6 +256,11 @@ public class SDNHost extends Host implements Node {
 	public void clearVMRoutingTable(){
 		this.forwardingTable.clear();
 	}
+	
+	@Override
+	public void setVMRoutingTable(ForwardingRule forwardingTable){
+		this.forwardingTable = forwardingTable;
+	}
 
 	@Override
 	public void addVMRoute(int src, int dest, int flowId, Node to){
@@ -320,6 +328,11 @@ public class SDNHost extends Host implements Node {
 	public RoutingTable getRoutingTable() {
 		return this.routingTable;
 	}
+	
+	@Override
+	public void setRoutingTable(RoutingTable routingTable) {
+		this.routingTable = routingTable;
+	}
 
 	// For monitor
 	private MonitoringValues mv = new MonitoringValues(MonitoringValues.ValueType.Utilization_Percentage);
@@ -333,19 +346,25 @@ public class SDNHost extends Host implements Node {
 	public void updateMonitor(double logTime, double timeUnit) {
 		long capacity = (long) (this.getTotalMips() *timeUnit);
 		double utilization = (double)monitoringProcessedMIsPerUnit / capacity / Consts.MILLION;
-		mv.add(utilization, logTime);
+		if(MonitoringSettings.isHistoryEnabled())
+			mv.add(utilization, logTime);
 		
 		monitoringProcessedMIsPerUnit = 0;
 		
-		LogWriter log = LogWriter.getLogger("host_utilization.csv");
-		log.printLine(this.getName()+","+logTime+","+utilization);
-		
+		// Energy is always accounted, even if not logged
 		double energy = powerMonitor.addPowerConsumption(logTime, utilization);
-		LogWriter logEnergy = LogWriter.getLogger("host_energy.csv");
-		logEnergy.printLine(this.getName()+","+logTime+","+energy);
+		
+		if(MonitoringSettings.isLogged(Configuration.MONITOR_LOG_HOST, this.getId())) {
+			LogWriter log = LogWriter.getLogger("host_utilization.csv");
+			log.log(this.getName(), logTime, utilization);
+			
+			LogWriter logEnergy = LogWriter.getLogger("host_energy.csv");
+			logEnergy.log(this.getName(), logTime, energy);
+		}
 		
 		// Also update hosting VMs in this machine
-		updateVmMonitor(timeUnit);
+		if(MonitoringSettings.isVmMonitored())
+			updateVmMonitor(timeUnit);
 	}
 
 	private void updateVmMonitor(double timeUnit) {
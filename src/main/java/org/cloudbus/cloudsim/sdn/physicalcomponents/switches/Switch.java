@@ -11,7 +11,9 @@ import java.util.HashMap;
 import java.util.List;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.sdn.Configuration;
 import org.cloudbus.cloudsim.sdn.LogWriter;
+import org.cloudbus.cloudsim.sdn.monitor.MonitoringSettings;
 import org.cloudbus.cloudsim.sdn.monitor.power.PowerUtilizationEnergyModelSwitchActivePort;
 import org.cloudbus.cloudsim.sdn.monitor.power.PowerUtilizationMonitor;
 import org.cloudbus.cloudsim.sdn.nos.NetworkOperatingSystem;
@@ -19,7 +21,9 @@ import org.cloudbus.cloudsim.sdn.physicalcomponents.Link;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.Node;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.NodeUtil;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.RoutingTable;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.RoutingTableMap;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.ForwardingRule;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.ForwardingRuleTable;
 
 
 /**
@@ -52,8 +56,8 @@ public class Switch implements Node{
 		this.bw = bw;
 		this.iops = iops;
 
-		this.forwardingTable = new ForwardingRule();
-		this.routingTable = new RoutingTable();
+		this.forwardingTable = new ForwardingRuleTable();
+		this.routingTable = new RoutingTableMap();
 	}
 	
 
@@ -79,6 +83,11 @@ public class Switch implements Node{
 		this.forwardingTable.clear();
 	}
 	
+	@Override
+	public void setVMRoutingTable(ForwardingRule forwardingTable){
+		this.forwardingTable = forwardingTable;
+	}
+	
 	@Override
 	public void addVMRoute(int src, int dest, int flowId, Node to){
 		this.forwardingTable.addRule(src, dest, flowId, to);
@@ -138,6 +147,11 @@ public class Switch implements Node{
 	public RoutingTable getRoutingTable() {
 		return this.routingTable;
 	}
+	
+	@Override
+	public void setRoutingTable(RoutingTable routingTable) {
+		this.routingTable = routingTable;
+	}
 
 	/*********************************************
 	 * 
@@ -156,8 +170,10 @@ public class Switch implements Node{
 		double totalEnergy = powerMonitor.getTotalEnergyConsumed();
 		double energyPerTimeUnit = totalEnergy - lastTotalEnergy;
 		
-		LogWriter logEnergy = LogWriter.getLogger("sw_energy.csv");
-		logEnergy.printLine(this.getName()+","+logTime+","+energyPerTimeUnit);
+		if(MonitoringSettings.isLogged(Configuration.MONITOR_LOG_SWITCH, this.getAddress())) {
+			LogWriter logEnergy = LogWriter.getLogger("sw_energy.csv");
+			logEnergy.log(this.getName(), logTime, energyPerTimeUnit);
+		}
 		lastTotalEnergy = totalEnergy;
 	}
 	
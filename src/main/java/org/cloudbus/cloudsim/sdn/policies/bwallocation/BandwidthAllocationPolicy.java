@@ -0,0 +1,20 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn.policies.bwallocation;
+
+import java.util.Collection;
+
+import org.cloudbus.cloudsim.sdn.nos.ChannelManager;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
+
+public interface BandwidthAllocationPolicy {
+	// Re-calculates bandwidth of shared (default) channels affected by a change, 
+	// and applies the new bandwidth through ChannelManager.changeSharedBandwidth().
+	public abstract void allocateSharedBandwidth(Collection<Channel> channels, ChannelManager channelManager);
+}
@@ -0,0 +1,167 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn.policies.bwallocation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.cloudbus.cloudsim.sdn.nos.ChannelManager;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.Link;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.Node;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
+
+/**
+ * Max-min fair allocation of shared channels using progressive filling.
+ * All shared channels connected to the changed channels through common links are solved together:
+ * the link direction with the lowest fair share is saturated first, its channels are fixed at that share,
+ * and the bandwidth they use is removed from the other links on their paths.
+ * Bandwidth left by channels bottlenecked elsewhere is thus given to the other channels on the link.
+ *
+ * Channels managed by another ChannelManager are not changed; their current bandwidth is
+ * subtracted from the capacity of the links they use.
+ */
+public class BandwidthAllocationPolicyMaxMinFair implements BandwidthAllocationPolicy {
+
+	// A direction of a link, shared by channels
+	private static class Resource {
+		double remaining;
+		int unfixed = 0;
+		int version = 0;
+		List<Channel> channels = new ArrayList<Channel>();
+	}
+
+	private static class Share implements Comparable<Share> {
+		final double bw;
+		final Resource resource;
+		final int version;
+
+		Share(Resource resource) {
+			this.bw = resource.remaining / resource.unfixed;
+			this.resource = resource;
+			this.version = resource.version;
+		}
+
+		@Override
+		public int compareTo(Share o) {
+			return Double.compare(bw, o.bw);
+		}
+	}
+
+	@Override
+	public void allocateSharedBandwidth(Collection<Channel> channels, ChannelManager channelManager) {
+		// Link -> {Resource from low order node, Resource from high order node}
+		Map<Link, Resource[]> resources = new HashMap<Link, Resource[]>();
+		// Channel -> Resources along the path
+		Map<Channel, List<Resource>> paths = new LinkedHashMap<Channel, List<Resource>>();
+
+		List<Channel> queue = new ArrayList<Channel>();
+		for(Channel ch:channels) {
+			if(ch.getChId() == -1 && !paths.containsKey(ch)) {
+				paths.put(ch, null);
+				queue.add(ch);
+			}
+		}
+
+		// Find all shared channels connected through links, and build link/channel incidence.
+		for(int i=0; i<queue.size(); i++) {
+			Channel ch = queue.get(i);
+			List<Node> nodes = ch.getNodes();
+			List<Link> links = ch.getLinks();
+			List<Resource> path = new ArrayList<Resource>(links.size());
+
+			for(int j=0; j<links.size(); j++) {
+				Resource r = getResource(resources, links.get(j), nodes.get(j), paths, queue, channelManager);
+				r.unfixed++;
+				path.add(r);
+			}
+			paths.put(ch, path);
+		}
+
+		// Progressive filling: saturate the link with the lowest fair share first.
+		PriorityQueue<Share> shares = new PriorityQueue<Share>();
+		for(Resource[] rs:resources.values()) {
+			for(Resource r:rs) {
+				if(r != null && r.unfixed > 0)
+					shares.add(new Share(r));
+			}
+		}
+
+		Map<Channel, Double> allocation = new HashMap<Channel, Double>();
+		while(!shares.isEmpty()) {
+			Share s = shares.poll();
+			Resource bottleneck = s.resource;
+			if(s.version != bottleneck.version || bottleneck.unfixed == 0)
+				continue;	// Outdated
+
+			for(Channel ch:bottleneck.channels) {
+				if(allocation.containsKey(ch))
+					continue;
+
+				allocation.put(ch, s.bw);
+				for(Resource r:paths.get(ch)) {
+					r.remaining -= s.bw;
+					if(r.remaining < 0)
+						r.remaining = 0;
+					r.unfixed--;
+					r.version++;
+					if(r != bottleneck && r.unfixed > 0)
+						shares.add(new Share(r));
+				}
+			}
+		}
+
+		for(Channel ch:paths.keySet()) {
+			Double bw = allocation.get(ch);
+			if(bw == null)
+				bw = Double.POSITIVE_INFINITY;	// No link in the path, same as the lowest bandwidth of no links
+			channelManager.changeSharedBandwidth(ch, bw);
+		}
+	}
+
+	private static Resource getResource(Map<Link, Resource[]> resources, Link link, Node from,
+			Map<Channel, List<Resource>> paths, List<Channel> queue, ChannelManager channelManager) {
+		Resource[] rs = resources.get(link);
+		if(rs == null) {
+			rs = new Resource[2];
+			resources.put(link, rs);
+		}
+
+		int dir = (from == link.getLowOrder()) ? 0 : 1;
+		if(rs[dir] != null)
+			return rs[dir];
+
+		Resource r = new Resource();
+		r.remaining = link.getFreeBandwidth(from);
+		for(Channel other:link.getChannels(from)) {
+			if(other.getChId() != -1)
+				continue;	// Dedicated channels are already excluded from the free bandwidth.
+
+			if(channelManager.isManagedChannel(other)) {
+				r.channels.add(other);
+				if(!paths.containsKey(other)) {
+					paths.put(other, null);
+					queue.add(other);
+				}
+			}
+			else {
+				r.remaining -= other.getAllocatedBandwidth();
+			}
+		}
+		if(r.remaining < 0)
+			r.remaining = 0;
+
+		rs[dir] = r;
+		return r;
+	}
+}
@@ -0,0 +1,31 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn.policies.bwallocation;
+
+import java.util.Collection;
+
+import org.cloudbus.cloudsim.sdn.nos.ChannelManager;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
+
+/**
+ * Each shared channel gets the lowest per-channel share along its links,
+ * where the free bandwidth of a link is divided equally among all shared channels on the link.
+ * Bandwidth not used by channels bottlenecked elsewhere is not redistributed.
+ */
+public class BandwidthAllocationPolicyPerLinkShare implements BandwidthAllocationPolicy {
+	@Override
+	public void allocateSharedBandwidth(Collection<Channel> channels, ChannelManager channelManager) {
+		for(Channel ch:channels) {
+			if(ch.getChId() != -1)
+				continue;
+			
+			channelManager.changeSharedBandwidth(ch, ch.getLowestSharedBandwidth());
+		}
+	}
+}
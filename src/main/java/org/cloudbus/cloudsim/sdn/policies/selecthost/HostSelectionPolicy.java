@@ -23,4 +23,12 @@ public abstract class HostSelectionPolicy {
 	}
 
 	public abstract List<Host> selectHostForVm(SDNVm vm, List<SDNHost> hosts);
+
+	/**
+	 * Hosts to try for the VM among all the hosts of the allocation policy, in the order of preference.
+	 * A policy can check the hosts while iterating, so the caller should stop at the first host that creates the VM.
+	 */
+	public Iterable<Host> selectHostForVm(SDNVm vm) {
+		return selectHostForVm(vm, vmAllocPolicy.<SDNHost>getHostList());
+	}
 }
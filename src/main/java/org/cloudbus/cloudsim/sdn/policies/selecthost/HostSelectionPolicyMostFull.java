@@ -9,10 +9,15 @@
 package org.cloudbus.cloudsim.sdn.policies.selecthost;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.SDNHost;
+import org.cloudbus.cloudsim.sdn.policies.vmallocation.HostCapacityIndex;
 import org.cloudbus.cloudsim.sdn.policies.vmallocation.VmAllocationPolicyEx;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.SDNVm;
 
@@ -22,31 +27,48 @@ public class HostSelectionPolicyMostFull extends HostSelectionPolicy {
 		return getMostFullHostsForVm(vm, hosts, vmAllocPolicy);
 	}
 
+	/**
+	 * Most full hosts first, taken from the host capacity index of the allocation policy
+	 * one by one while iterating.
+	 */
+	@Override
+	public Iterable<Host> selectHostForVm(final SDNVm vm) {
+		final VmAllocationPolicyEx policy = vmAllocPolicy;
+		return new Iterable<Host>() {
+			@Override
+			public Iterator<Host> iterator() {
+				return new MostFullHostIterator(vm, policy);
+			}
+		};
+	}
+
 	public static List<Host> getMostFullHostsForVm(SDNVm vm, List<SDNHost> hosts, VmAllocationPolicyEx vmAllocPolicy) {
 		int numHosts = hosts.size();
 		List<Host> hostCandidates = new ArrayList<Host>();
 
 		// 1. Find/Order the best host for this VM by comparing a metric
-		boolean result = false;
-		
 		// freeReousrces : Weighted-calculated free resource percentage in each host 
-		double[] freeResources = vmAllocPolicy.buildFreeResourceMetric(hosts);
-
-		// Find the most full host, with available resource. 
-		for(int tries = 0; result == false && tries < numHosts; tries++) {
-			// we still trying until we find a host or until we try all of them
-			double lessFree = Double.POSITIVE_INFINITY;
-			int idx = -1;
-
-			// Find the most full host
-			for (int i = 0; i < numHosts; i++) {
-				if (freeResources[i] < lessFree) {
-					lessFree = freeResources[i];
-					idx = i;
-				}
+		final double[] freeResources = vmAllocPolicy.buildFreeResourceMetric(hosts);
+
+		// Order from the most full host. Hosts in the front go first if equal.
+		List<Integer> order = new ArrayList<Integer>(numHosts);
+		for (int i = 0; i < numHosts; i++) {
+			if (freeResources[i] < Double.POSITIVE_INFINITY)
+				order.add(i);
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			public int compare(Integer o1, Integer o2) {
+				double f1 = freeResources[o1];
+				double f2 = freeResources[o2];
+				if (f1 < f2)
+					return -1;
+				if (f1 > f2)
+					return 1;
+				return Integer.compare(o1, o2);
 			}
-			freeResources[idx] = Double.POSITIVE_INFINITY;	// Mark visited
-			
+		});
+
+		for(int idx:order) {
 			SDNHost host = hosts.get(idx);
 			if(vmAllocPolicy.isResourceAllocatable(host, vm)) {
 				hostCandidates.add(host);
@@ -55,4 +77,50 @@ public class HostSelectionPolicyMostFull extends HostSelectionPolicy {
 		
 		return hostCandidates;
 	}
+
+	// Visits hosts in the capacity index, and returns the hosts that can allocate the VM.
+	private static class MostFullHostIterator implements Iterator<Host> {
+		private final SDNVm vm;
+		private final VmAllocationPolicyEx vmAllocPolicy;
+		private final HostCapacityIndex index;
+		private Host nextHost = null;
+		private boolean finished = false;
+
+		MostFullHostIterator(SDNVm vm, VmAllocationPolicyEx vmAllocPolicy) {
+			this.vm = vm;
+			this.vmAllocPolicy = vmAllocPolicy;
+			this.index = vmAllocPolicy.getHostCapacityIndex();
+			index.reset();	// In case the previous iteration stopped in the middle
+		}
+
+		@Override
+		public boolean hasNext() {
+			while(nextHost == null && !finished) {
+				int idx = index.next();
+				if(idx == -1) {
+					finished = true;
+					index.reset();
+					break;
+				}
+				Host host = vmAllocPolicy.getHostList().get(idx);
+				if(vmAllocPolicy.isResourceAllocatable(host, vm))
+					nextHost = host;
+			}
+			return nextHost != null;
+		}
+
+		@Override
+		public Host next() {
+			if(!hasNext())
+				throw new NoSuchElementException();
+			Host host = nextHost;
+			nextHost = null;
+			return host;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
 }
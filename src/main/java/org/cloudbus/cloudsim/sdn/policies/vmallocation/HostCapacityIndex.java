@@ -0,0 +1,133 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn.policies.vmallocation;
+
+/**
+ * Orders hosts by their free resource metric, for the most full first (or least full first) host selection.
+ * Hosts are kept in a tournament tree by index, so the metric of a host is updated in O(log n),
+ * and the next host to try is found in O(log n) instead of scanning all the hosts.
+ *
+ * Hosts are returned in the same order as scanning the metrics for the smallest (largest) value
+ * and marking the found host as visited: the lower index first among equal metrics.
+ * A host with NaN metric, or +Infinity (-Infinity for least full first) is never returned.
+ *
+ * next() marks the returned host as visited, and setTemporarily() overrides a metric, until reset().
+ * update() can be called at any time; the new metric is used after the host is reset.
+ */
+public class HostCapacityIndex {
+	private final int numHosts;
+	private final boolean leastFullFirst;
+
+	private final double[] metrics;	// Free resource metric of each host
+	private final double[] ranks;	// Current rank of each host: smaller one is returned first
+	private final int[] tree;		// Winner host of each node. Leaves start from size.
+	private final int size;
+
+	private int[] changed;			// Hosts visited or overridden since reset()
+	private int numChanged = 0;
+	private final boolean[] isChanged;
+
+	public HostCapacityIndex(int numHosts, boolean leastFullFirst) {
+		this.numHosts = numHosts;
+		this.leastFullFirst = leastFullFirst;
+
+		int s = 1;
+		while(s < numHosts)
+			s <<= 1;
+		size = s;
+
+		metrics = new double[numHosts];
+		ranks = new double[size];
+		tree = new int[size * 2];
+		changed = new int[16];
+		isChanged = new boolean[numHosts];
+
+		for(int i=0; i<size; i++) {
+			ranks[i] = (i < numHosts) ? toRank(0) : Double.POSITIVE_INFINITY;	// No host in the padding
+			tree[size + i] = i;
+		}
+		for(int n=size-1; n>=1; n--)
+			tree[n] = winner(tree[2*n], tree[2*n+1]);
+	}
+
+	public int getNumberOfHosts() {
+		return numHosts;
+	}
+
+	public double getMetric(int hostIdx) {
+		return metrics[hostIdx];
+	}
+
+	/** Sets the free resource metric of the host. */
+	public void update(int hostIdx, double metric) {
+		metrics[hostIdx] = metric;
+		if(!isChanged[hostIdx])
+			setRank(hostIdx, toRank(metric));
+	}
+
+	/** Uses the metric for the host until reset(). */
+	public void setTemporarily(int hostIdx, double metric) {
+		markChanged(hostIdx);
+		setRank(hostIdx, toRank(metric));
+	}
+
+	/**
+	 * Returns the index of the next host to try and marks it visited until reset(),
+	 * or -1 if no host is left.
+	 */
+	public int next() {
+		int idx = tree[1];
+		if(!(ranks[idx] < Double.POSITIVE_INFINITY))
+			return -1;
+
+		markChanged(idx);
+		setRank(idx, Double.POSITIVE_INFINITY);
+		return idx;
+	}
+
+	/** Restores the hosts visited or overridden since the last reset(). */
+	public void reset() {
+		for(int i=0; i<numChanged; i++) {
+			int idx = changed[i];
+			isChanged[idx] = false;
+			setRank(idx, toRank(metrics[idx]));
+		}
+		numChanged = 0;
+	}
+
+	private double toRank(double metric) {
+		double rank = leastFullFirst ? -metric : metric;
+		if(Double.isNaN(rank))
+			return Double.POSITIVE_INFINITY;
+		return rank;
+	}
+
+	private void markChanged(int hostIdx) {
+		if(isChanged[hostIdx])
+			return;
+		isChanged[hostIdx] = true;
+		if(numChanged == changed.length) {
+			int[] newChanged = new int[changed.length * 2];
+			System.arraycopy(changed, 0, newChanged, 0, numChanged);
+			changed = newChanged;
+		}
+		changed[numChanged++] = hostIdx;
+	}
+
+	private void setRank(int hostIdx, double rank) {
+		ranks[hostIdx] = rank;
+		for(int n=(size + hostIdx)>>1; n>=1; n>>=1)
+			tree[n] = winner(tree[2*n], tree[2*n+1]);
+	}
+
+	private int winner(int a, int b) {
+		// a < b always, as a comes from the left
+		return (ranks[b] < ranks[a]) ? b : a;
+	}
+}
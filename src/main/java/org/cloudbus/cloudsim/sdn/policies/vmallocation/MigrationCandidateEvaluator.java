@@ -0,0 +1,142 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn.policies.vmallocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleBiFunction;
+
+import org.cloudbus.cloudsim.sdn.Configuration;
+
+/**
+ * Evaluates migration candidates (hosts, VMs, or pairs of a VM and a target host) in parallel on a fork-join pool.
+ *
+ * Evaluation functions must only read the simulation state, e.g. utilization histories and VM lists of hosts,
+ * and must not log. Results are returned in the order of the candidates, so that migration policies
+ * reserve resources and log in the same order as before, and build the same migration plan as serial evaluation.
+ *
+ * Configuration.MIGRATION_PLANNING_THREADS sets the parallelism: 0 for the number of processors, 1 to evaluate serially.
+ */
+public class MigrationCandidateEvaluator {
+	private static final int MIN_PARALLEL = 8;	// Fewer candidates are evaluated in the calling thread
+	private static final int TASKS_PER_THREAD = 4;
+
+	private static ForkJoinPool pool = null;
+
+	private interface IndexedTask {
+		void run(int i);
+	}
+
+	private static class RangeAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final IndexedTask task;
+		private final int from;
+		private final int to;
+		private final int grain;
+
+		RangeAction(IndexedTask task, int from, int to, int grain) {
+			this.task = task;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from <= grain) {
+				for(int i=from; i<to; i++)
+					task.run(i);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new RangeAction(task, from, mid, grain), new RangeAction(task, mid, to, grain));
+		}
+	}
+
+	/** Applies the function to each candidate, and returns the results in the order of the candidates. */
+	public static <T, R> List<R> evaluate(final List<? extends T> candidates, final Function<? super T, ? extends R> function) {
+		final Object[] results = new Object[candidates.size()];
+		forEachIndex(candidates.size(), new IndexedTask() {
+			public void run(int i) {
+				results[i] = function.apply(candidates.get(i));
+			}
+		});
+
+		@SuppressWarnings("unchecked")
+		List<R> list = (List<R>) Arrays.asList(results);
+		return list;
+	}
+
+	/** Candidates that pass the test, in the same order. */
+	public static <T> List<T> filter(List<T> candidates, final Predicate<? super T> test) {
+		List<Boolean> passed = evaluate(candidates, new Function<T, Boolean>() {
+			public Boolean apply(T c) {
+				return test.test(c);
+			}
+		});
+
+		List<T> filtered = new ArrayList<T>();
+		for(int i=0; i<candidates.size(); i++) {
+			if(passed.get(i))
+				filtered.add(candidates.get(i));
+		}
+		return filtered;
+	}
+
+	/**
+	 * Scores every pair of a row and a column candidate (e.g. a VM to migrate and a target host).
+	 * @return scores[row][column]
+	 */
+	public static <A, B> double[][] evaluatePairs(final List<? extends A> rows, final List<? extends B> columns,
+			final ToDoubleBiFunction<? super A, ? super B> score) {
+		final int numColumns = columns.size();
+		final double[][] scores = new double[rows.size()][numColumns];
+		forEachIndex(rows.size() * numColumns, new IndexedTask() {
+			public void run(int i) {
+				int r = i / numColumns;
+				int c = i % numColumns;
+				scores[r][c] = score.applyAsDouble(rows.get(r), columns.get(c));
+			}
+		});
+		return scores;
+	}
+
+	private static void forEachIndex(int n, IndexedTask task) {
+		int parallelism = getParallelism();
+		if(parallelism <= 1 || n < MIN_PARALLEL) {
+			for(int i=0; i<n; i++)
+				task.run(i);
+			return;
+		}
+
+		int grain = Math.max(1, n / (parallelism * TASKS_PER_THREAD));
+		getPool(parallelism).invoke(new RangeAction(task, 0, n, grain));
+	}
+
+	private static int getParallelism() {
+		int threads = Configuration.MIGRATION_PLANNING_THREADS;
+		if(threads <= 0)
+			threads = Runtime.getRuntime().availableProcessors();
+		return threads;
+	}
+
+	private static synchronized ForkJoinPool getPool(int parallelism) {
+		if(pool == null || pool.getParallelism() != parallelism) {
+			if(pool != null)
+				pool.shutdown();
+			pool = new ForkJoinPool(parallelism);	// Worker threads are daemon threads
+		}
+		return pool;
+	}
+}
@@ -0,0 +1,248 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn.policies.vmallocation;
+
+import java.util.Arrays;
+
+/**
+ * Free resources of each host and resources allocated to each VM, in arrays
+ * indexed by host index (in the host list of the allocation policy) and by VM id.
+ * VM ids must be unique across users and dense, as given by SDNVm.getUniqueVmId().
+ * The owner of each VM is kept to check lookups by (VM id, user id).
+ *
+ * Resources of a migrating VM are reserved in the target host separately,
+ * and become the allocated resources of the VM by finaliseMigration().
+ *
+ * MIPS to allocate are given in double: the VM is given the truncated MIPS,
+ * while the free MIPS of the host are truncated after subtracting the exact MIPS.
+ */
+public class ResourceLedger {
+	private static final int NO_HOST = -1;
+
+	private final int[] freePes;
+	private final long[] freeMips;
+	private final long[] freeBw;
+
+	// Allocated resources of each VM
+	private int[] vmHost;
+	private int[] vmUser;
+	private int[] usedPes;
+	private long[] usedMips;
+	private long[] usedBw;
+
+	// Resources reserved for each migrating VM
+	private int[] migrationHost;
+	private int[] migrationUser;
+	private int[] migrationPes;
+	private long[] migrationMips;
+	private long[] migrationBw;
+
+	public ResourceLedger(int[] pes, long[] mips, long[] bw) {
+		freePes = pes.clone();
+		freeMips = mips.clone();
+		freeBw = bw.clone();
+
+		int capacity = 16;
+		vmHost = newHostArray(capacity);
+		vmUser = new int[capacity];
+		usedPes = new int[capacity];
+		usedMips = new long[capacity];
+		usedBw = new long[capacity];
+		migrationHost = newHostArray(capacity);
+		migrationUser = new int[capacity];
+		migrationPes = new int[capacity];
+		migrationMips = new long[capacity];
+		migrationBw = new long[capacity];
+	}
+
+	private static int[] newHostArray(int capacity) {
+		int[] a = new int[capacity];
+		Arrays.fill(a, NO_HOST);
+		return a;
+	}
+
+	private void ensureVm(int vmId) {
+		if(vmId < 0)
+			throw new IllegalArgumentException("ResourceLedger: invalid VM id:"+vmId);
+		if(vmId < vmHost.length)
+			return;
+
+		int oldCapacity = vmHost.length;
+		int capacity = oldCapacity;
+		while(capacity <= vmId)
+			capacity <<= 1;
+
+		vmHost = Arrays.copyOf(vmHost, capacity);
+		Arrays.fill(vmHost, oldCapacity, capacity, NO_HOST);
+		vmUser = Arrays.copyOf(vmUser, capacity);
+		usedPes = Arrays.copyOf(usedPes, capacity);
+		usedMips = Arrays.copyOf(usedMips, capacity);
+		usedBw = Arrays.copyOf(usedBw, capacity);
+		migrationHost = Arrays.copyOf(migrationHost, capacity);
+		Arrays.fill(migrationHost, oldCapacity, capacity, NO_HOST);
+		migrationUser = Arrays.copyOf(migrationUser, capacity);
+		migrationPes = Arrays.copyOf(migrationPes, capacity);
+		migrationMips = Arrays.copyOf(migrationMips, capacity);
+		migrationBw = Arrays.copyOf(migrationBw, capacity);
+	}
+
+	public int getNumberOfHosts() {
+		return freePes.length;
+	}
+
+	public int getFreePes(int hostIdx) {
+		return freePes[hostIdx];
+	}
+
+	public long getFreeMips(int hostIdx) {
+		return freeMips[hostIdx];
+	}
+
+	public long getFreeBw(int hostIdx) {
+		return freeBw[hostIdx];
+	}
+
+	/** Number of hosts with less free PEs than the given number. */
+	public int countHostsWithFreePesBelow(int pes) {
+		int num = 0;
+		for(int free:freePes) {
+			if(free < pes)
+				num++;
+		}
+		return num;
+	}
+
+	/** Whether resources are allocated to the VM (not counting a reservation for migration). */
+	public boolean isAllocated(int vmId) {
+		return vmId >= 0 && vmId < vmHost.length && vmHost[vmId] != NO_HOST;
+	}
+
+	/** Host index of the VM, or -1 if not allocated. */
+	public int getHostIdx(int vmId) {
+		if(vmId < 0 || vmId >= vmHost.length)
+			return NO_HOST;
+		return vmHost[vmId];
+	}
+
+	/** Host index of the VM owned by the user, or -1 if not allocated. */
+	public int getHostIdx(int vmId, int userId) {
+		int hostIdx = getHostIdx(vmId);
+		if(hostIdx == NO_HOST || vmUser[vmId] != userId)
+			return NO_HOST;
+		return hostIdx;
+	}
+
+	/** PEs allocated to the VM, or 0 if not allocated. */
+	public int getUsedPes(int vmId) {
+		return isAllocated(vmId) ? usedPes[vmId] : 0;
+	}
+
+	/** MIPS allocated to the VM, or 0 if not allocated. */
+	public long getUsedMips(int vmId) {
+		return isAllocated(vmId) ? usedMips[vmId] : 0;
+	}
+
+	/** BW allocated to the VM, or 0 if not allocated. */
+	public long getUsedBw(int vmId) {
+		return isAllocated(vmId) ? usedBw[vmId] : 0;
+	}
+
+	/** Allocates resources in the host to the VM of the user. */
+	public void allocate(int vmId, int userId, int hostIdx, int pes, double mips, long bw) {
+		ensureVm(vmId);
+		if(vmHost[vmId] != NO_HOST)
+			throw new IllegalArgumentException("ResourceLedger: VM "+vmId+" is already allocated in host "+vmHost[vmId]);
+
+		vmHost[vmId] = hostIdx;
+		vmUser[vmId] = userId;
+		usedPes[vmId] = pes;
+		usedMips[vmId] = (long) mips;
+		usedBw[vmId] = bw;
+
+		freePes[hostIdx] -= pes;
+		freeMips[hostIdx] = (long) (freeMips[hostIdx] - mips);
+		freeBw[hostIdx] -= bw;
+	}
+
+	/**
+	 * Releases the resources allocated to the VM.
+	 * @return the host index the VM was in, or -1 if not allocated
+	 */
+	public int release(int vmId) {
+		int hostIdx = getHostIdx(vmId);
+		if(hostIdx == NO_HOST)
+			return NO_HOST;
+
+		freePes[hostIdx] += usedPes[vmId];
+		freeMips[hostIdx] += usedMips[vmId];
+		freeBw[hostIdx] += usedBw[vmId];
+
+		vmHost[vmId] = NO_HOST;
+		vmUser[vmId] = 0;
+		usedPes[vmId] = 0;
+		usedMips[vmId] = 0;
+		usedBw[vmId] = 0;
+		return hostIdx;
+	}
+
+	/** Changes the MIPS and BW allocated to the VM in its host. */
+	public void reallocate(int vmId, double mips, long bw) {
+		int hostIdx = getHostIdx(vmId);
+		if(hostIdx == NO_HOST)
+			throw new IllegalArgumentException("ResourceLedger: VM "+vmId+" is not allocated");
+
+		freeMips[hostIdx] = (long) (freeMips[hostIdx] + usedMips[vmId] - mips);
+		usedMips[vmId] = (long) mips;
+		freeBw[hostIdx] += usedBw[vmId] - bw;
+		usedBw[vmId] = bw;
+	}
+
+	/** Reserves resources in the target host of a migrating VM of the user. */
+	public void reserveForMigration(int vmId, int userId, int hostIdx, int pes, double mips, long bw) {
+		ensureVm(vmId);
+		migrationHost[vmId] = hostIdx;
+		migrationUser[vmId] = userId;
+		migrationPes[vmId] = pes;
+		migrationMips[vmId] = (long) mips;
+		migrationBw[vmId] = bw;
+
+		freePes[hostIdx] -= pes;
+		freeMips[hostIdx] = (long) (freeMips[hostIdx] - mips);
+		freeBw[hostIdx] -= bw;
+	}
+
+	public boolean isMigrating(int vmId) {
+		return vmId >= 0 && vmId < migrationHost.length && migrationHost[vmId] != NO_HOST;
+	}
+
+	/**
+	 * Makes the resources reserved for migration the allocated resources of the VM.
+	 * The previous allocation must be released beforehand.
+	 * @return false if the VM was not migrating
+	 */
+	public boolean finaliseMigration(int vmId) {
+		if(!isMigrating(vmId))
+			return false;
+		if(vmHost[vmId] != NO_HOST)
+			throw new IllegalArgumentException("ResourceLedger: VM "+vmId+" resource reservation is not released yet");
+
+		vmHost[vmId] = migrationHost[vmId];
+		vmUser[vmId] = migrationUser[vmId];
+		usedPes[vmId] = migrationPes[vmId];
+		usedMips[vmId] = migrationMips[vmId];
+		usedBw[vmId] = migrationBw[vmId];
+
+		migrationHost[vmId] = NO_HOST;
+		migrationUser[vmId] = 0;
+		migrationPes[vmId] = 0;
+		migrationMips[vmId] = 0;
+		migrationBw[vmId] = 0;
+		return true;
+	}
+}
@@ -28,6 +28,11 @@ public class VmAllocationPolicyCombinedLeastFullFirst extends VmAllocationPolicy
 	public VmAllocationPolicyCombinedLeastFullFirst(List<? extends Host> list) {
 		super(list);
 	}
+	
+	@Override
+	protected boolean isLeastFullFirst() {
+		return true;
+	}
 
 	/**
 	 * Allocates a host for a given VM.
@@ -52,13 +57,7 @@ public class VmAllocationPolicyCombinedLeastFullFirst extends VmAllocationPolicy
 
 		boolean result = false;
 		
-		double[] freeResources = new double[numHosts];
-		for (int i = 0; i < numHosts; i++) {
-			double mipsFreePercent = (double)getFreeMips().get(i) / hostTotalMips; 
-			double bwFreePercent = (double)getFreeBw().get(i) / hostTotalBw;
-			
-			freeResources[i] = convertWeightedMetric(mipsFreePercent, bwFreePercent);
-		}
+		HostCapacityIndex freeResources = getHostCapacityIndex();
 		
 		if(vm instanceof SDNVm) {
 			SDNVm svm = (SDNVm) vm;
@@ -67,31 +66,22 @@ public class VmAllocationPolicyCombinedLeastFullFirst extends VmAllocationPolicy
 				for (int i = 0; i < numHosts; i++) {
 					SDNHost h = (SDNHost)(getHostList().get(i));
 					if(svm.getHostName().equals(h.getName())) {
-						freeResources[i] = Double.MAX_VALUE;
+						freeResources.setTemporarily(i, Double.MAX_VALUE);
 					}
 				}
 			}
 		}
 
 		for(int tries = 0; tries < numHosts; tries++) {// we still trying until we find a host or until we try all of them
-			double moreFree = Double.NEGATIVE_INFINITY;
-			int idx = -1;
-
 			// Find the least free host, we want the host with less pes in use
-			for (int i = 0; i < numHosts; i++) {
-				if (freeResources[i] > moreFree) {
-					moreFree = freeResources[i];
-					idx = i;
-				}
-			}
+			int idx = freeResources.next();
 			
 			if(idx==-1) {
 				System.err.println("Cannot assign the VM to any host:"+tries+"/"+numHosts);
+				freeResources.reset();
 				return false;
 			}
 			
-			freeResources[idx] = Double.NEGATIVE_INFINITY;
-			
 			Host host = getHostList().get(idx);
 
 			// Check whether the host can hold this VM or not.
@@ -118,9 +108,11 @@ public class VmAllocationPolicyCombinedLeastFullFirst extends VmAllocationPolicy
 
 				getUsedBw().put(vm.getUid(), (long) requiredBw);
 				getFreeBw().set(idx,  (long) (getFreeBw().get(idx) - requiredBw));
+				updateHostCapacity(idx);
 				break;
 			} 
 		}
+		freeResources.reset();
 		if(!result) {
 			System.err.println("Cannot assign this VM("+vm+") to any host. NumHosts="+numHosts);
 			//throw new IllegalArgumentException("Cannot assign this VM("+vm+") to any host. NumHosts="+numHosts);
@@ -46,6 +46,8 @@ public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy
 	private List<Long> freeMips;
 	private Map<String, Long> usedBw;
 	private List<Long> freeBw;
+	
+	private HostCapacityIndex hostCapacityIndex = null;
 
 	/**
 	 * Creates the new VmAllocationPolicySimple object.
@@ -87,6 +89,40 @@ public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy
 		double ret = mipsPercent * bwPercent;
 		return ret;
 	}
+	
+	/**
+	 * Free resource metric of the host to find the most full (or least full) host.
+	 */
+	protected double getFreeResourceMetric(int idx) {
+		double mipsFreePercent = (double)getFreeMips().get(idx) / this.hostTotalMips; 
+		double bwFreePercent = (double)getFreeBw().get(idx) / this.hostTotalBw;
+		
+		return this.convertWeightedMetric(mipsFreePercent, bwFreePercent);
+	}
+	
+	protected boolean isLeastFullFirst() {
+		return false;
+	}
+	
+	/**
+	 * Hosts ordered by getFreeResourceMetric(). Created at the first use, and updated by updateHostCapacity().
+	 */
+	protected HostCapacityIndex getHostCapacityIndex() {
+		if(hostCapacityIndex == null) {
+			hostCapacityIndex = new HostCapacityIndex(getHostList().size(), isLeastFullFirst());
+			for(int i=0; i<getHostList().size(); i++)
+				hostCapacityIndex.update(i, getFreeResourceMetric(i));
+		}
+		return hostCapacityIndex;
+	}
+	
+	/**
+	 * Must be called after the free resources of the host are changed.
+	 */
+	protected void updateHostCapacity(int idx) {
+		if(hostCapacityIndex != null)
+			hostCapacityIndex.update(idx, getFreeResourceMetric(idx));
+	}
 	/**
 	 * Allocates a host for a given VM.
 	 * 
@@ -110,26 +146,13 @@ public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy
 
 		boolean result = false;
 		
-		double[] freeResources = new double[numHosts];
-		for (int i = 0; i < numHosts; i++) {
-			double mipsFreePercent = (double)getFreeMips().get(i) / this.hostTotalMips; 
-			double bwFreePercent = (double)getFreeBw().get(i) / this.hostTotalBw;
-			
-			freeResources[i] = this.convertWeightedMetric(mipsFreePercent, bwFreePercent);
-		}
+		HostCapacityIndex freeResources = getHostCapacityIndex();
 
 		for(int tries = 0; result == false && tries < numHosts; tries++) {// we still trying until we find a host or until we try all of them
-			double lessFree = Double.POSITIVE_INFINITY;
-			int idx = -1;
-
 			// we want the host with less pes in use
-			for (int i = 0; i < numHosts; i++) {
-				if (freeResources[i] < lessFree) {
-					lessFree = freeResources[i];
-					idx = i;
-				}
-			}
-			freeResources[idx] = Double.POSITIVE_INFINITY;
+			int idx = freeResources.next();
+			if(idx == -1)
+				break;
 			Host host = getHostList().get(idx);
 			
 
@@ -157,10 +180,12 @@ public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy
 
 				getUsedBw().put(vm.getUid(), (long) requiredBw);
 				getFreeBw().set(idx,  (long) (getFreeBw().get(idx) - requiredBw));
+				updateHostCapacity(idx);
 
 				break;
 			}
 		}
+		freeResources.reset();
 		
 		if(!result) {
 			System.err.println("VmAllocationPolicy: WARNING:: Cannot create VM!!!!");
@@ -206,6 +231,7 @@ public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy
 			
 			Long bw = getUsedBw().remove(vm.getUid());
 			getFreeBw().set(idx, getFreeBw().get(idx) + bw);
+			updateHostCapacity(idx);
 		}
 	}
 
@@ -350,6 +376,7 @@ public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy
 
 			getUsedBw().put(vm.getUid(), (long) requiredBw);
 			getFreeBw().set(idx, (long) (getFreeBw().get(idx) - requiredBw));
+			updateHostCapacity(idx);
 
 			Log.formatLine(
 					"%.2f: VM #" + vm.getId() + " has been allocated to the host #" + host.getId(),
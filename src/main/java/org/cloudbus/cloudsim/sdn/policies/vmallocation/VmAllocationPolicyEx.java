@@ -8,7 +8,6 @@
 
 package org.cloudbus.cloudsim.sdn.policies.vmallocation;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,22 +35,11 @@ public class VmAllocationPolicyEx extends VmAllocationPolicy implements PowerUti
 	protected final double hostTotalBw;
 	protected final int hostTotalPes;
 	
-	/** The vm table. */
-	private Map<String, Host> vmTable;
-
-	/** The used pes. */
-	private Map<String, Integer> usedPes;
-	private Map<String, Long> usedMips;
-	private Map<String, Long> usedBw;
-
-	private Map<String, Integer> migrationPes;
-	private Map<String, Long> migrationMips;
-	private Map<String, Long> migrationBw;
-
-	/** The free pes. */
-	private List<Integer> freePes;
-	private List<Long> freeMips;
-	private List<Long> freeBw;
+	/** Free resources of the hosts and resources allocated to the VMs. */
+	private ResourceLedger ledger;
+	
+	private Map<Host, Integer> hostIndices;
+	private HostCapacityIndex hostCapacityIndex = null;
 	
 	/**
 	 * Creates the new VmAllocationPolicySimple object.
@@ -75,31 +63,27 @@ public class VmAllocationPolicyEx extends VmAllocationPolicy implements PowerUti
 		if(this.vmMigrationPolicy != null)
 			this.vmMigrationPolicy.setVmAllocationPolicy(this);
 
-		setFreePes(new ArrayList<Integer>());
-		setFreeMips(new ArrayList<Long>());
-		setFreeBw(new ArrayList<Long>());
+		int numHosts = getHostList().size();
+		int[] freePes = new int[numHosts];
+		long[] freeMips = new long[numHosts];
+		long[] freeBw = new long[numHosts];
+		hostIndices = new HashMap<Host, Integer>();
 		
 		for (Host host : getHostList()) {
-			getFreePes().add(host.getNumberOfPes());
-			getFreeMips().add(Long.valueOf(host.getTotalMips()));
-			getFreeBw().add(host.getBw());
+			int idx = hostIndices.size();
+			hostIndices.put(host, idx);
+			freePes[idx] = host.getNumberOfPes();
+			freeMips[idx] = host.getTotalMips();
+			freeBw[idx] = host.getBw();
 			
-//			getFreeMips().add((long) PeProvisionerOverbooking.getOverbookableMips((host.getTotalMips())));
-//			getFreeBw().add((long) BwProvisionerOverbooking.getOverbookableBw(host.getBw()));
+//			freeMips[idx] = (long) PeProvisionerOverbooking.getOverbookableMips((host.getTotalMips()));
+//			freeBw[idx] = (long) BwProvisionerOverbooking.getOverbookableBw(host.getBw());
 		}
+		ledger = new ResourceLedger(freePes, freeMips, freeBw);
+		
 		hostTotalMips = getHostList().get(0).getTotalMips();
 		hostTotalBw =  getHostList().get(0).getBw();
 		hostTotalPes =  getHostList().get(0).getNumberOfPes();
-
-		setVmTable(new HashMap<String, Host>());
-		setUsedPes(new HashMap<String, Integer>());
-		setUsedMips(new HashMap<String, Long>());
-		setUsedBw(new HashMap<String, Long>());
-		
-		migrationPes = new HashMap<String, Integer>();
-		migrationMips = new HashMap<String, Long>();
-		migrationBw = new HashMap<String, Long>();
-
 	}
 	
 	/*
@@ -110,13 +94,7 @@ public class VmAllocationPolicyEx extends VmAllocationPolicy implements PowerUti
 	@Override
 	public boolean allocateHostForVm(Vm vm, Host host) {
 		if (host.vmCreate(vm)) { // if vm has been succesfully created in the host
-			getVmTable().put(vm.getUid(), host);
 			reserveResource(host, (SDNVm) vm);
-			
-//			int requiredPes = vm.getNumberOfPes();
-//			int idx = getHostList().indexOf(host);
-//			getUsedPes().put(vm.getUid(), requiredPes);
-//			getFreePes().set(idx, getFreePes().get(idx) - requiredPes);
 
 			Log.formatLine(
 					"%.2f: VM #" + vm.getId() + " has been allocated to the host #" + host.getId(),
@@ -139,11 +117,11 @@ public class VmAllocationPolicyEx extends VmAllocationPolicy implements PowerUti
 	 */
 	@Override
 	public boolean allocateHostForVm(Vm vm) {
-		return allocateHostForVm(vm, hostSelectionPolicy.selectHostForVm((SDNVm) vm, this.<SDNHost>getHostList()));
+		return allocateHostForVm(vm, hostSelectionPolicy.selectHostForVm((SDNVm) vm));
 	}
 	
-	protected boolean allocateHostForVm(Vm vm, List<Host> candidateHosts) {
-		if (getVmTable().containsKey(vm.getUid())) { // if this vm was not created
+	protected boolean allocateHostForVm(Vm vm, Iterable<Host> candidateHosts) {
+		if (getLedger().isAllocated(vm.getId())) { // if this vm was not created
 			return false;
 		}
 		boolean result = false;
@@ -153,7 +131,6 @@ public class VmAllocationPolicyEx extends VmAllocationPolicy implements PowerUti
 
 			if (result) { 
 				// if vm were succesfully created in the host
-				getVmTable().put(vm.getUid(), host);
 				reserveResource(host, (SDNVm) vm);
 				break;
 			}			
@@ -176,8 +153,8 @@ public class VmAllocationPolicyEx extends VmAllocationPolicy implements PowerUti
 		double mips = vm.getTotalMips(); //getCurrentRequestedTotalMips();
 		long bw = vm.getBw(); //CurrentRequestedBw();
 		
-		long freeMips = (long) getFreeMips().get(idx);
-		long freeBw = (long) getFreeBw().get(idx);
+		long freeMips = getLedger().getFreeMips(idx);
+		long freeBw = getLedger().getFreeBw(idx);
 		
 		double overbookingRatioMips = getOverRatioMips(vm, host);
 		double overbookinRatioBw = getOverRatioBw(vm, host);
@@ -212,17 +189,21 @@ public class VmAllocationPolicyEx extends VmAllocationPolicy implements PowerUti
 		
 		return null;
 	}
+	
+	/**
+	 * Gets the VM migration policy.
+	 * 
+	 * @return the migration policy used by optimizeAllocation(), or null if VMs are not migrated
+	 */
+	public VmMigrationPolicy getVmMigrationPolicy() {
+		return vmMigrationPolicy;
+	}
 
 	
 	protected int maxNumHostsUsed=0;
 	public void logMaxNumHostsUsed() {
 		// Get how many are used
-		int numHostsUsed=0;
-		for(int freePes:getFreePes()) {
-			if(freePes < hostTotalPes) {
-				numHostsUsed++;
-			}
-		}
+		int numHostsUsed = getLedger().countHostsWithFreePesBelow(hostTotalPes);
 		if(maxNumHostsUsed < numHostsUsed)
 			maxNumHostsUsed = numHostsUsed;
 		Log.printLine("Number of online hosts:"+numHostsUsed + ", max was ="+maxNumHostsUsed);
@@ -241,7 +222,7 @@ public class VmAllocationPolicyEx extends VmAllocationPolicy implements PowerUti
 	 */
 	@Override
 	public void deallocateHostForVm(Vm vm) {
-		Host host = getVmTable().remove(vm.getUid());
+		Host host = getHost(vm);
 		if (host != null) {
 			host.vmDestroy(vm);
 			
@@ -259,12 +240,14 @@ public class VmAllocationPolicyEx extends VmAllocationPolicy implements PowerUti
 	 */
 	@Override
 	public Host getHost(Vm vm) {
-		return getVmTable().get(vm.getUid());
+		return getHost(vm.getId(), vm.getUserId());
 	}
 
 	/**
 	 * Gets the host that is executing the given VM belonging to the given user.
-	 * 
+	 * VM ids must be unique across users (SDNVm.getUniqueVmId()); a VM allocated
+	 * with the id for another user is not found.
+	 *
 	 * @param vmId the vm id
 	 * @param userId the user id
 	 * @return the Host with the given vmID and userID; $null if not found
@@ -273,97 +256,54 @@ public class VmAllocationPolicyEx extends VmAllocationPolicy implements PowerUti
 	 */
 	@Override
 	public Host getHost(int vmId, int userId) {
-		return getVmTable().get(Vm.getUid(userId, vmId));
+		int idx = getLedger().getHostIdx(vmId, userId);
+		if(idx == -1)
+			return null;
+		return getHostList().get(idx);
 	}
 
 	/**
-	 * Gets the vm table.
+	 * Gets the resource ledger.
 	 * 
-	 * @return the vm table
+	 * @return free resources of the hosts (by the index in the host list) and resources allocated to the VMs (by VM id)
 	 */
-	public Map<String, Host> getVmTable() {
-		return vmTable;
+	protected ResourceLedger getLedger() {
+		return ledger;
 	}
 
-	/**
-	 * Sets the vm table.
-	 * 
-	 * @param vmTable the vm table
-	 */
-	protected void setVmTable(Map<String, Host> vmTable) {
-		this.vmTable = vmTable;
-	}
-
-	/**
-	 * Gets the used pes.
-	 * 
-	 * @return the used pes
-	 */
-	protected Map<String, Integer> getUsedPes() {
-		return usedPes;
-	}
-
-	/**
-	 * Sets the used pes.
-	 * 
-	 * @param usedPes the used pes
-	 */
-	protected void setUsedPes(Map<String, Integer> usedPes) {
-		this.usedPes = usedPes;
+	protected int findHostIdx(Host h) {
+		Integer idx = hostIndices.get(h);
+		if(idx == null)
+			return -1;
+		return idx;
 	}
-
+	
 	/**
-	 * Gets the free pes.
-	 * 
-	 * @return the free pes
+	 * Hosts ordered by the free resource metric of buildFreeResourceMetric().
+	 * Created at the first use, and updated by updateHostCapacity().
 	 */
-	protected List<Integer> getFreePes() {
-		return freePes;
+	public HostCapacityIndex getHostCapacityIndex() {
+		if(hostCapacityIndex == null) {
+			hostCapacityIndex = new HostCapacityIndex(getHostList().size(), false);
+			for(int i=0; i<getHostList().size(); i++)
+				hostCapacityIndex.update(i, getFreeResourceMetric(i));
+		}
+		return hostCapacityIndex;
 	}
-
+	
 	/**
-	 * Sets the free pes.
-	 * 
-	 * @param freePes the new free pes
+	 * Must be called after the free resources of the host are changed.
 	 */
-	protected void setFreePes(List<Integer> freePes) {
-		this.freePes = freePes;
-	}
-
-	protected Map<String, Long> getUsedMips() {
-		return usedMips;
-	}
-	protected void setUsedMips(Map<String, Long> usedMips) {
-		this.usedMips = usedMips;
-	}
-	protected Map<String, Long> getUsedBw() {
-		return usedBw;
-	}
-	protected void setUsedBw(Map<String, Long> usedBw) {
-		this.usedBw = usedBw;
-	}
-	protected List<Long> getFreeMips() {
-		return this.freeMips;
-	}
-	protected void setFreeMips(List<Long> freeMips) {
-		this.freeMips = freeMips;
-	}
-	
-	protected List<Long> getFreeBw() {
-		return this.freeBw;
-	}
-	protected void setFreeBw(List<Long> freeBw) {
-		this.freeBw = freeBw;
+	protected void updateHostCapacity(int idx) {
+		if(hostCapacityIndex != null)
+			hostCapacityIndex.update(idx, getFreeResourceMetric(idx));
 	}
 	
-
-	protected int findHostIdx(Host h) {
-		for(int i=0; i< getHostList().size(); i++) {
-			if(getHostList().get(i).equals(h)) {
-				return i;
-			}
-		}
-		return -1;
+	private double getFreeResourceMetric(int idx) {
+		double mipsFreePercent = (double)getLedger().getFreeMips(idx) / this.hostTotalMips; 
+		double bwFreePercent = (double)getLedger().getFreeBw(idx) / this.hostTotalBw;
+		
+		return convertWeightedMetric(mipsFreePercent, bwFreePercent);
 	}
 
 
@@ -388,14 +328,14 @@ public class VmAllocationPolicyEx extends VmAllocationPolicy implements PowerUti
 	
 	protected long getAvailableMips(Host host) {
 		int idx = findHostIdx(host);
-		long freeMips = (long) getFreeMips().get(idx);
+		long freeMips = getLedger().getFreeMips(idx);
 		
 		return freeMips;		
 	}
 	
 	protected long getAvailableBw(Host host) {
 		int idx = findHostIdx(host);
-		long freeBw = (long) getFreeBw().get(idx);
+		long freeBw = getLedger().getFreeBw(idx);
 		
 		return freeBw;		
 	}
@@ -425,39 +365,25 @@ public class VmAllocationPolicyEx extends VmAllocationPolicy implements PowerUti
 		double adjustedMips = vm.getTotalMips()*overbookingRatioMips;
 		long adjustedBw = (long) (vm.getBw()*overbookinRatioBw);
 		
-		migrationPes.put(vm.getUid(), pe);
-		getFreePes().set(idx, getFreePes().get(idx) - pe);
-		
-		migrationMips.put(vm.getUid(), (long) adjustedMips);
-		getFreeMips().set(idx,  (long) (getFreeMips().get(idx) - adjustedMips));
-
-		migrationBw.put(vm.getUid(), (long) adjustedBw);
-		getFreeBw().set(idx, (long) (getFreeBw().get(idx) - adjustedBw));
+		getLedger().reserveForMigration(vm.getId(), vm.getUserId(), idx, pe, adjustedMips, adjustedBw);
+		updateHostCapacity(idx);
 
 		Log.printLine(CloudSim.clock() + ": reserveResourceForMigration() " + vm + " MIPS:"+adjustedMips+"(OR:"+overbookingRatioMips+")");
 		Log.printLine(CloudSim.clock() + ": reserveResourceForMigration() " + vm + " BW:"+ adjustedBw+"(OR:"+overbookinRatioBw+")");
 	}
 	
 	private boolean finaliseResourceAfterMigration(SDNVm vm) {
-		Integer pe = migrationPes.remove(vm.getUid());
-		Long mips = migrationMips.remove(vm.getUid());
-		Long bw = migrationBw.remove(vm.getUid());
-		
-		if(pe == null) {
+		if(!getLedger().isMigrating(vm.getId())) {
 			// This VM was not in migration
 			return false;
 		}
 		
-		if(getUsedPes().get(vm.getUid()) != null) {
+		if(getLedger().isAllocated(vm.getId())) {
 			System.out.println(vm+ " VM resource reservation is not released yet! ");
 			System.exit(1);
 		}
 
-		getUsedPes().put(vm.getUid(), pe);
-		getUsedMips().put(vm.getUid(), (long) mips);
-		getUsedBw().put(vm.getUid(), (long) bw);
-
-		return true;
+		return getLedger().finaliseMigration(vm.getId());
 	}
 
 	// Reserve resource in the Host for the VM
@@ -471,7 +397,7 @@ public class VmAllocationPolicyEx extends VmAllocationPolicy implements PowerUti
 		}
 		
 		// Error check
-		if(getUsedPes().get(vm.getUid()) != null) {
+		if(getLedger().isAllocated(vm.getId())) {
 			System.err.println(vm+" is already in the host! "+host);
 			System.exit(1);
 		}
@@ -485,14 +411,8 @@ public class VmAllocationPolicyEx extends VmAllocationPolicy implements PowerUti
 		double adjustedMips = vm.getTotalMips()*overbookingRatioMips;
 		long adjustedBw = (long) (vm.getBw()*overbookinRatioBw);
 		
-		getUsedPes().put(vm.getUid(), pe);
-		getFreePes().set(idx, getFreePes().get(idx) - pe);
-		
-		getUsedMips().put(vm.getUid(), (long) adjustedMips);
-		getFreeMips().set(idx,  (long) (getFreeMips().get(idx) - adjustedMips));
-
-		getUsedBw().put(vm.getUid(), (long) adjustedBw);
-		getFreeBw().set(idx, (long) (getFreeBw().get(idx) - adjustedBw));
+		getLedger().allocate(vm.getId(), vm.getUserId(), idx, pe, adjustedMips, adjustedBw);
+		updateHostCapacity(idx);
 
 		Log.printLine(CloudSim.clock() + ": reserveResource() " + vm + " MIPS:"+adjustedMips+"(OR:"+overbookingRatioMips+")");
 		Log.printLine(CloudSim.clock() + ": reserveResource() " + vm + " BW:"+ adjustedBw+"(OR:"+overbookinRatioBw+")");
@@ -501,16 +421,8 @@ public class VmAllocationPolicyEx extends VmAllocationPolicy implements PowerUti
 
 	protected void removeResource(Host host, Vm vm) {
 		if (host != null) {
-			int idx = getHostList().indexOf(host);
-			
-			Integer pes = getUsedPes().remove(vm.getUid());
-			getFreePes().set(idx, getFreePes().get(idx) + pes);
-			
-			Long mips = getUsedMips().remove(vm.getUid());
-			getFreeMips().set(idx, getFreeMips().get(idx) + mips);
-			
-			Long bw = getUsedBw().remove(vm.getUid());
-			getFreeBw().set(idx, getFreeBw().get(idx) + bw);
+			getLedger().release(vm.getId());
+			updateHostCapacity(findHostIdx(host));
 		}
 	}
 
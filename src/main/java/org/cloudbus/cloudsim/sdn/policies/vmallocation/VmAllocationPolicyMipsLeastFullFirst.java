@@ -26,6 +26,19 @@ public class VmAllocationPolicyMipsLeastFullFirst extends VmAllocationPolicyComb
 	public VmAllocationPolicyMipsLeastFullFirst(List<? extends Host> list) {
 		super(list);
 	}
+	
+	@Override
+	protected double getFreeResourceMetric(int idx) {
+		double mipsFreePercent = (double)getFreeMips().get(idx) / hostTotalMips; 
+		//double bwFreePercent = (double)getFreeBw().get(idx) / hostTotalBw;
+		
+		return mipsFreePercent;
+	}
+	
+	@Override
+	protected boolean isLeastFullFirst() {
+		return true;
+	}
 
 	/**
 	 * Allocates a host for a given VM.
@@ -50,33 +63,18 @@ public class VmAllocationPolicyMipsLeastFullFirst extends VmAllocationPolicyComb
 
 		boolean result = false;
 		
-		double[] freeResources = new double[numHosts];
-		for (int i = 0; i < numHosts; i++) {
-			double mipsFreePercent = (double)getFreeMips().get(i) / hostTotalMips; 
-			//double bwFreePercent = (double)getFreeBw().get(i) / hostTotalBw;
-			
-			freeResources[i] = mipsFreePercent;
-		}
+		HostCapacityIndex freeResources = getHostCapacityIndex();
 
 		for(int tries = 0; tries < numHosts; tries++) {// we still trying until we find a host or until we try all of them
-			double moreFree = Double.NEGATIVE_INFINITY;
-			int idx = -1;
-
 			// we want the host with less pes in use
-			for (int i = 0; i < numHosts; i++) {
-				if (freeResources[i] > moreFree) {
-					moreFree = freeResources[i];
-					idx = i;
-				}
-			}
+			int idx = freeResources.next();
 			
 			if(idx==-1) {
 				System.err.println("Cannot assign the VM to any host:"+tries+"/"+numHosts);
+				freeResources.reset();
 				return false;
 			}
 			
-			freeResources[idx] = Double.NEGATIVE_INFINITY;
-			
 			Host host = getHostList().get(idx);
 			
 			// Check whether the host can hold this VM or not.
@@ -99,9 +97,11 @@ public class VmAllocationPolicyMipsLeastFullFirst extends VmAllocationPolicyComb
 
 				getUsedBw().put(vm.getUid(), (long) requiredBw);
 				getFreeBw().set(idx,  (long) (getFreeBw().get(idx) - requiredBw));
+				updateHostCapacity(idx);
 				break;
 			} 
 		}
+		freeResources.reset();
 		logMaxNumHostsUsed();
 		return result;
 	}
@@ -26,6 +26,13 @@ public class VmAllocationPolicyMipsMostFullFirst extends VmAllocationPolicyCombi
 	public VmAllocationPolicyMipsMostFullFirst(List<? extends Host> list) {
 		super(list);
 	}
+	
+	@Override
+	protected double getFreeResourceMetric(int idx) {
+		double mipsFreePercent = (double)getFreeMips().get(idx) / this.hostTotalMips; 
+		
+		return mipsFreePercent;
+	}
 
 	/**
 	 * Allocates a host for a given VM.
@@ -50,25 +57,13 @@ public class VmAllocationPolicyMipsMostFullFirst extends VmAllocationPolicyCombi
 
 		boolean result = false;
 		
-		double[] freeResources = new double[numHosts];
-		for (int i = 0; i < numHosts; i++) {
-			double mipsFreePercent = (double)getFreeMips().get(i) / this.hostTotalMips; 
-			
-			freeResources[i] = mipsFreePercent;
-		}
+		HostCapacityIndex freeResources = getHostCapacityIndex();
 
 		for(int tries = 0; result == false && tries < numHosts; tries++) {// we still trying until we find a host or until we try all of them
-			double lessFree = Double.POSITIVE_INFINITY;
-			int idx = -1;
-
 			// we want the host with less pes in use
-			for (int i = 0; i < numHosts; i++) {
-				if (freeResources[i] < lessFree) {
-					lessFree = freeResources[i];
-					idx = i;
-				}
-			}
-			freeResources[idx] = Double.POSITIVE_INFINITY;
+			int idx = freeResources.next();
+			if(idx == -1)
+				break;
 			Host host = getHostList().get(idx);
 			
 			// Check whether the host can hold this VM or not.
@@ -91,10 +86,12 @@ public class VmAllocationPolicyMipsMostFullFirst extends VmAllocationPolicyCombi
 
 				getUsedBw().put(vm.getUid(), (long) requiredBw);
 				getFreeBw().set(idx,  (long) (getFreeBw().get(idx) - requiredBw));
+				updateHostCapacity(idx);
 
 				break;
 			}
 		}
+		freeResources.reset();
 		
 		logMaxNumHostsUsed();
 		return result;
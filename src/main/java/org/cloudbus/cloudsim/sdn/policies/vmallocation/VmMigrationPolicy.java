@@ -14,6 +14,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Log;
@@ -102,14 +103,24 @@ public abstract class VmMigrationPolicy {
 		double startTime = endTime - Configuration.migrationTimeInterval;
 		if(startTime <0) startTime = 0;
 		
-		for(SDNHost host:hosts) {
+		// Utilization histories are not changed by updateResourceAllocation(), so evaluate them beforehand in parallel
+		final double windowStart = startTime;
+		final double windowEnd = endTime;
+		List<double[]> overloadMetrics = MigrationCandidateEvaluator.evaluate(hosts, new Function<SDNHost, double[]>() {
+			public double[] apply(SDNHost host) {
+				return getOverloadMetrics(host, windowStart, windowEnd);
+			}
+		});
+		
+		for(int i=0; i<hosts.size(); i++) {
+			SDNHost host = hosts.get(i);
 			// Re-adjust each VM's allocated resource applying historical utilization data 
 			vmAllocationPolicy.updateResourceAllocation(host);
 			
 			// Criteria to decided overloaded hosts
 			// 1. Host's utilization level should be higher than threshold
 			// 2. Each VMs in the Host are also overheaded
-			if(isHostOverloaded(host, startTime, endTime)) {
+			if(isHostOverloaded(host, overloadMetrics.get(i))) {
 				overHosts.add(host);
 			}
 		}
@@ -124,8 +135,12 @@ public abstract class VmMigrationPolicy {
 		
 		// Move the most over-headed VM into migration list
 		if(overHosts != null && overHosts.size() != 0) {
-			for(SDNHost host: overHosts) {
-				SDNVm mostUtilized = getMostUtilizedVm(host);
+			List<SDNVm> mostUtilizedVms = MigrationCandidateEvaluator.evaluate(overHosts, new Function<SDNHost, SDNVm>() {
+				public SDNVm apply(SDNHost host) {
+					return getMostUtilizedVm(host);
+				}
+			});
+			for(SDNVm mostUtilized: mostUtilizedVms) {
 				if(mostUtilized != null)
 					migrationOverVMList.add(mostUtilized);
 			}
@@ -136,13 +151,21 @@ public abstract class VmMigrationPolicy {
 		}
 		
 		// Sort the most utilized VMs
+		final double endTime = CloudSim.clock();
+		final double startTime = endTime - Configuration.migrationTimeInterval;
+		List<Double> utils = MigrationCandidateEvaluator.evaluate(migrationOverVMList, new Function<SDNVm, Double>() {
+			public Double apply(SDNVm vm) {
+				return vm.getMonitoringValuesVmCPUUtilization().getAverageValue(startTime, endTime);
+			}
+		});
+		final Map<SDNVm, Double> vmUtils = new HashMap<SDNVm, Double>();
+		for(int i=0; i<migrationOverVMList.size(); i++)
+			vmUtils.put(migrationOverVMList.get(i), utils.get(i));
+		
 		Collections.sort(migrationOverVMList, new Comparator<SDNVm>() {
 		    public int compare(SDNVm o1, SDNVm o2) {
-				double endTime = CloudSim.clock();
-				double startTime = endTime - Configuration.migrationTimeInterval;
-				
-		    	double o1util = o1.getMonitoringValuesVmCPUUtilization().getAverageValue(startTime, endTime);
-		    	double o2util = o2.getMonitoringValuesVmCPUUtilization().getAverageValue(startTime, endTime);
+		    	double o1util = vmUtils.get(o1);
+		    	double o2util = vmUtils.get(o2);
 		        return (int) (o1util - o2util);
 		    }
 		});
@@ -150,7 +173,14 @@ public abstract class VmMigrationPolicy {
 		return migrationOverVMList;
 	}
 
-	private static boolean isHostOverloaded(SDNHost host, double startTime, double endTime) {
+	// Utilization of the host to decide whether it is overloaded: {CPU overload percentile, BW utilization}
+	private static double[] getOverloadMetrics(SDNHost host, double startTime, double endTime) {
+		double overloadPercentile = host.getMonitoringValuesOverloadMonitor().getOverUtilizedPercentile(startTime, endTime, 1.0);
+		double hostBwUsage = host.getMonitoringValuesHostBwUtilization().getAverageValue(startTime, endTime);
+		return new double[] {overloadPercentile, hostBwUsage};
+	}
+
+	private static boolean isHostOverloaded(SDNHost host, double[] overloadMetrics) {
 
 		/*
 		double hostCPUUtil = host.getMonitoringValuesHostCPUUtilization().getAverageValue(startTime, endTime);
@@ -166,7 +196,7 @@ public abstract class VmMigrationPolicy {
 			return true;
 		}
 		/*/
-		double overloadPercentile = host.getMonitoringValuesOverloadMonitor().getOverUtilizedPercentile(startTime, endTime, 1.0);
+		double overloadPercentile = overloadMetrics[0];
 		if(overloadPercentile > Configuration.OVERLOAD_HOST_PERCENTILE_THRESHOLD) {
 			Log.printLine(CloudSim.clock() + ": isHostOverloaded() CPU "+host+":  " + overloadPercentile);
 			return true;
@@ -174,7 +204,7 @@ public abstract class VmMigrationPolicy {
 		
 		//*/
 		
-		double hostBwUsage = host.getMonitoringValuesHostBwUtilization().getAverageValue(startTime, endTime);
+		double hostBwUsage = overloadMetrics[1];
 		if(hostBwUsage > Configuration.OVERLOAD_THRESHOLD_BW_UTIL) {
 			Log.printLine(CloudSim.clock() + ": isHostOverloaded() "+host+": BW " + hostBwUsage);
 //			System.err.println(host+" BW is overloaded:"+hostBwUsage);
@@ -10,15 +10,18 @@ package org.cloudbus.cloudsim.sdn.policies.vmallocation.overbooking;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 
 import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.sdn.Configuration;
+import org.cloudbus.cloudsim.sdn.monitor.MonitoringValues;
 import org.cloudbus.cloudsim.sdn.monitor.power.PowerUtilizationMaxHostInterface;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.SDNHost;
 import org.cloudbus.cloudsim.sdn.policies.selecthost.HostSelectionPolicy;
+import org.cloudbus.cloudsim.sdn.policies.vmallocation.MigrationCandidateEvaluator;
 import org.cloudbus.cloudsim.sdn.policies.vmallocation.VmAllocationPolicyEx;
 import org.cloudbus.cloudsim.sdn.policies.vmallocation.VmMigrationPolicy;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.SDNVm;
@@ -44,8 +47,7 @@ public class OverbookingVmAllocationPolicy extends VmAllocationPolicyEx implemen
 	}
 	
 	protected double getOverRatioMips(SDNVm vm, Host host) {
-		Long usedMips = getUsedMips().get(vm.getUid());
-		if(usedMips == null) {
+		if(!getLedger().isAllocated(vm.getId())) {
 			// New VM that is not allocated yet
 			return Configuration.OVERBOOKING_RATIO_INIT;
 		}
@@ -56,8 +58,7 @@ public class OverbookingVmAllocationPolicy extends VmAllocationPolicyEx implemen
 	}
 	
 	protected double getOverRatioBw(SDNVm vm, Host host) {
-		Long usedBw = getUsedBw().get(vm.getUid());
-		if(usedBw == null) {
+		if(!getLedger().isAllocated(vm.getId())) {
 			// New VM that is not allocated yet
 			return Configuration.OVERBOOKING_RATIO_INIT;
 		}
@@ -127,12 +128,13 @@ public class OverbookingVmAllocationPolicy extends VmAllocationPolicyEx implemen
 		double startTime = endTime - timeWindow > 0 ? endTime - timeWindow : 0;
 		
 		double sumCoef= 0.0;
-		double [] newVmHistory = newVm.getMonitoringValuesVmBwUtilization().getValuePoints(startTime, endTime, interval);
+		if(!UtilizationCorrelation.hasPoints(startTime, endTime, interval))
+			return -1;
+		MonitoringValues newVmHistory = newVm.getMonitoringValuesVmBwUtilization();
 		
 		for(SDNVm v:host.<SDNVm>getVmList()) {
 			// calculate correlation coefficient between the target VM and existing VMs in the host.
-			double [] vHistory = v.getMonitoringValuesVmBwUtilization().getValuePoints(startTime, endTime, interval);
-			double cc = calculateCorrelationCoefficient(newVmHistory, vHistory);
+			double cc = correlation.getCorrelationCoefficient(newVmHistory, v.getMonitoringValuesVmBwUtilization(), startTime, endTime, interval);
 			if(cc >= -1 && cc <= 1)
 				sumCoef += cc;
 		}
@@ -151,14 +153,13 @@ public class OverbookingVmAllocationPolicy extends VmAllocationPolicyEx implemen
 		double startTime = endTime - timeWindow > 0 ? endTime - timeWindow : 0;
 		
 		double sumCoef= 0.0;
-		double [] newVmHistory = newVm.getMonitoringValuesVmCPUUtilization().getValuePoints(startTime, endTime, interval);
-		if(newVmHistory == null)
+		if(!UtilizationCorrelation.hasPoints(startTime, endTime, interval))
 			return -1;
+		MonitoringValues newVmHistory = newVm.getMonitoringValuesVmCPUUtilization();
 		
 		for(SDNVm v:host.<SDNVm>getVmList()) {
 			// calculate correlation coefficient between the target VM and existing VMs in the host.
-			double [] vHistory = v.getMonitoringValuesVmCPUUtilization().getValuePoints(startTime, endTime, interval);
-			double cc = calculateCorrelationCoefficient(newVmHistory, vHistory);
+			double cc = correlation.getCorrelationCoefficient(newVmHistory, v.getMonitoringValuesVmCPUUtilization(), startTime, endTime, interval);
 			if(cc >= -1 && cc <= 1)
 				sumCoef += cc;
 		}
@@ -166,6 +167,9 @@ public class OverbookingVmAllocationPolicy extends VmAllocationPolicyEx implemen
 		return sumCoef / host.getVmList().size();
 	}
 	
+	// Sampled histories and coefficients of the current time window, shared by the host queries
+	private static UtilizationCorrelation correlation = new UtilizationCorrelation();
+	
 	private static PearsonsCorrelation pearson = new PearsonsCorrelation();
 	public static double calculateCorrelationCoefficient(double [] x, double [] y) {
 		if(x.length > 1)
@@ -175,9 +179,8 @@ public class OverbookingVmAllocationPolicy extends VmAllocationPolicyEx implemen
 	}
 	
 	protected long getVmAllocatedMips(SDNVm vm) {
-		Long mips = getUsedMips().get(vm.getUid());
-		if(mips != null)
-			return (long)mips;
+		if(getLedger().isAllocated(vm.getId()))
+			return getLedger().getUsedMips(vm.getId());
 		return -1;
 	}
 	
@@ -206,14 +209,14 @@ public class OverbookingVmAllocationPolicy extends VmAllocationPolicyEx implemen
 	}
 	
 	public double getCurrentOverbookingRatioMips(SDNVm vm) {
-		Long allocatedMips = getUsedMips().get(vm.getUid());
-		Long requiredMips = vm.getTotalMips();
+		long allocatedMips = getLedger().getUsedMips(vm.getId());
+		long requiredMips = vm.getTotalMips();
 		
 		return (double)allocatedMips/(double)requiredMips;
 	}
 	
 	public double getCurrentOverbookingRatioBw(SDNVm vm) {
-		Long allocatedBw = getUsedBw().get(vm.getUid());
+		long allocatedBw = getLedger().getUsedBw(vm.getId());
 		double requiredBw = (long)vm.getBw();
 		
 		return (double)allocatedBw/requiredBw;
@@ -237,43 +240,36 @@ public class OverbookingVmAllocationPolicy extends VmAllocationPolicyEx implemen
 //		getUsedPes().put(vm.getUid(), pe);
 //		getFreePes().set(idx, getFreePes().get(idx) - pe);
 
-		// Remove previous MIPs and allocated adjusted MIPs
-		Long mips = getUsedMips().remove(vm.getUid());
-		if(mips != null) {
-			getFreeMips().set(idx, getFreeMips().get(idx) + mips);
-			getUsedMips().put(vm.getUid(), (long) adjustedMips);
-			getFreeMips().set(idx,  (long) (getFreeMips().get(idx) - adjustedMips));
+		// Remove previous MIPs and BWs, and allocate adjusted MIPs and BWs
+		if(getLedger().isAllocated(vm.getId())) {
+			long mips = getLedger().getUsedMips(vm.getId());
+			long bw = getLedger().getUsedBw(vm.getId());
+			getLedger().reallocate(vm.getId(), adjustedMips, adjustedBw);
 			
 			Log.printLine(CloudSim.clock() + ": reallocateResource() " + vm + " MIPS:"+ mips+"->"+adjustedMips+"(OR:"+overbookingRatioMips+")");
-		}
-		else
-			System.err.println(vm+" mips is not allocated!");
-
-		// Remove previous BWs and allocate adjusted BWs
-		Long bw = getUsedBw().remove(vm.getUid());
-		if(bw != null) {
-			getFreeBw().set(idx, getFreeBw().get(idx) + bw);
-			getUsedBw().put(vm.getUid(), (long) adjustedBw);
-			getFreeBw().set(idx, (long) (getFreeBw().get(idx) - adjustedBw));
-			
 			Log.printLine(CloudSim.clock() + ": reallocateResource() " + vm + " BW:"+ bw+"->"+adjustedBw+"(OR:"+overbookinRatioBw+")");
 		}
-		else
+		else {
+			System.err.println(vm+" mips is not allocated!");
 			System.err.println(vm+" bw is not allocated!");
+		}
+		
+		updateHostCapacity(idx);
 	}
 
 	protected static List<SDNHost> getUnderutilizedHosts(List<SDNHost> hosts) {
-		List<SDNHost> underHosts = new ArrayList<SDNHost>();
-		double endTime = CloudSim.clock();
-		double startTime = endTime - Configuration.migrationTimeInterval;
-		for(SDNHost host:hosts) {
-			if(host.getMonitoringValuesHostCPUUtilization().getAverageValue(startTime, endTime) < Configuration.UNDERLOAD_THRESHOLD_HOST ){
-				if(host.getMonitoringValuesHostBwUtilization().getAverageValue(startTime, endTime) < Configuration.UNDERLOAD_THRESHOLD_HOST_BW ){
-					underHosts.add(host);
+		final double endTime = CloudSim.clock();
+		final double startTime = endTime - Configuration.migrationTimeInterval;
+		return MigrationCandidateEvaluator.filter(hosts, new Predicate<SDNHost>() {
+			public boolean test(SDNHost host) {
+				if(host.getMonitoringValuesHostCPUUtilization().getAverageValue(startTime, endTime) < Configuration.UNDERLOAD_THRESHOLD_HOST ){
+					if(host.getMonitoringValuesHostBwUtilization().getAverageValue(startTime, endTime) < Configuration.UNDERLOAD_THRESHOLD_HOST_BW ){
+						return true;
+					}
 				}
+				return false;
 			}
-		}
-		return underHosts;
+		});
 	}
 
 	protected List<SDNVm> getUnderUtilizedVmList(SDNHost host) {
@@ -24,8 +24,7 @@ public class OverbookingVmAllocationPolicyStaticRatio extends OverbookingVmAlloc
 	}
 
 	protected double getOverRatioMips(SDNVm vm, Host host) {
-		Long usedMips = getUsedMips().get(vm.getUid());
-		if(usedMips == null) {
+		if(!getLedger().isAllocated(vm.getId())) {
 			// New VM that is not allocated yet
 			return Configuration.OVERBOOKING_RATIO_INIT;
 		}
@@ -36,8 +35,7 @@ public class OverbookingVmAllocationPolicyStaticRatio extends OverbookingVmAlloc
 	}
 	
 	protected double getOverRatioBw(SDNVm vm, Host host) {
-		Long usedBw = getUsedBw().get(vm.getUid());
-		if(usedBw == null) {
+		if(!getLedger().isAllocated(vm.getId())) {
 			// New VM that is not allocated yet
 			return Configuration.OVERBOOKING_RATIO_INIT;
 		}
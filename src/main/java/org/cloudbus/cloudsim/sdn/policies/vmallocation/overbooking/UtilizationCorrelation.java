@@ -0,0 +1,155 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn.policies.vmallocation.overbooking;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cloudbus.cloudsim.sdn.monitor.MonitoringValues;
+
+/**
+ * Pearson correlation coefficients between utilization histories, sampled in a time window
+ * (MonitoringValues.getValuePoints()).
+ *
+ * Each history is sampled once per window: its mean and squared deviations are kept until the window moves
+ * or the history receives new points (MonitoringValues.getVersion()). The coefficient of a pair only needs
+ * the sum of the products of deviations, and is kept as well. So the average correlation of a VM with the VMs
+ * in a host costs one pass over the window per VM, without sampling the histories again.
+ *
+ * The coefficient is calculated in the same steps as PearsonsCorrelation (commons-math),
+ * including NaN for a constant history.
+ *
+ * Can be called from multiple threads while the histories are not changed (MigrationCandidateEvaluator).
+ * A history or a pair evaluated by two threads at once gives the same value, and one of them is kept.
+ */
+public class UtilizationCorrelation {
+	private volatile Window window = new Window(Double.NaN, Double.NaN, Double.NaN);
+
+	// Cached series and coefficients of a time window. Replaced as a whole when the window moves.
+	// MonitoringValues does not override equals(), so histories are kept by identity.
+	private static class Window {
+		final double startTime;
+		final double endTime;
+		final double interval;
+
+		final ConcurrentMap<MonitoringValues, Series> series = new ConcurrentHashMap<MonitoringValues, Series>();
+		final ConcurrentMap<Long, Double> pairs = new ConcurrentHashMap<Long, Double>();
+		final AtomicInteger nextSeriesId = new AtomicInteger();
+
+		Window(double startTime, double endTime, double interval) {
+			this.startTime = startTime;
+			this.endTime = endTime;
+			this.interval = interval;
+		}
+
+		boolean isSame(double startTime, double endTime, double interval) {
+			return startTime == this.startTime && endTime == this.endTime && interval == this.interval;
+		}
+	}
+
+	// Sampled history in the window.
+	// Deviations are taken from the running mean, in the same steps as SimpleRegression.addData().
+	private static class Series {
+		final int id;
+		final long version;
+		final double[] deviations;	// Difference of each point from the mean of the previous points
+		final double sumSquares;	// Sum of squared deviations
+
+		Series(int id, long version, double[] points) {
+			this.id = id;
+			this.version = version;
+
+			deviations = new double[points.length];
+			double mean = points[0];
+			double squares = 0;
+			for(int i=1; i<points.length; i++) {
+				double d = points[i] - mean;
+				deviations[i] = d;
+				squares += d * d * (i / (1.0 + i));
+				mean += d / (1.0 + i);
+			}
+			sumSquares = squares;
+		}
+	}
+
+	/**
+	 * Whether the window has any sampling point. Otherwise getCorrelationCoefficient() cannot be used.
+	 */
+	public static boolean hasPoints(double startTime, double endTime, double interval) {
+		startTime = startTime > 0 ? startTime : 0;
+		return (int) Math.ceil((endTime-startTime)/interval) != 0;
+	}
+
+	/**
+	 * Correlation coefficient between two histories sampled in the window.
+	 * Returns 0 for a window of a single point, and NaN if a history is constant.
+	 */
+	public double getCorrelationCoefficient(MonitoringValues x, MonitoringValues y,
+			double startTime, double endTime, double interval) {
+		Window w = getWindow(startTime, endTime, interval);
+
+		Series sx = getSeries(w, x);
+		Series sy = getSeries(w, y);
+		if(sx.deviations.length <= 1)
+			return 0.0;
+		if(sx.deviations.length != sy.deviations.length)
+			throw new IllegalArgumentException("UtilizationCorrelation: different number of points "
+					+sx.deviations.length+" and "+sy.deviations.length);
+
+		long key = ((long) sx.id << 32) | sy.id;	// Not symmetric in floating point
+		Double cc = w.pairs.get(key);
+		if(cc == null) {
+			cc = correlate(sx, sy);
+			w.pairs.put(key, cc);
+		}
+		return cc;
+	}
+
+	private Window getWindow(double startTime, double endTime, double interval) {
+		Window w = window;
+		if(w.isSame(startTime, endTime, interval))
+			return w;
+
+		synchronized(this) {
+			if(!window.isSame(startTime, endTime, interval))
+				window = new Window(startTime, endTime, interval);
+			return window;
+		}
+	}
+
+	private static Series getSeries(Window w, MonitoringValues mv) {
+		Series s = w.series.get(mv);
+		if(s == null || s.version != mv.getVersion()) {
+			double[] points = mv.getValuePoints(w.startTime, w.endTime, w.interval);
+			if(points == null)
+				throw new IllegalArgumentException("UtilizationCorrelation: no point in the window "+w.startTime+"~"+w.endTime);
+			s = new Series(w.nextSeriesId.getAndIncrement(), mv.getVersion(), points);
+			w.series.put(mv, s);
+		}
+		return s;
+	}
+
+	// Same steps as SimpleRegression.getR(), which PearsonsCorrelation uses
+	private static double correlate(Series x, Series y) {
+		double sumXY = 0;
+		for(int i=1; i<x.deviations.length; i++)
+			sumXY += x.deviations[i] * y.deviations[i] * (i / (1.0 + i));
+
+		if(Math.abs(x.sumSquares) < 10 * Double.MIN_VALUE)
+			return Double.NaN;	// Undefined slope
+
+		double sumSquaredErrors = Math.max(0d, y.sumSquares - sumXY * sumXY / x.sumSquares);
+		double rSquare = (y.sumSquares - sumSquaredErrors) / y.sumSquares;
+		double r = Math.sqrt(rSquare);
+		if(sumXY / x.sumSquares < 0)
+			r = -r;
+		return r;
+	}
+}
@@ -14,6 +14,8 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleBiFunction;
 
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Vm;
@@ -22,6 +24,7 @@ import org.cloudbus.cloudsim.sdn.Configuration;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.SDNHost;
 import org.cloudbus.cloudsim.sdn.policies.selecthost.HostSelectionPolicyFirstFit;
 import org.cloudbus.cloudsim.sdn.policies.selecthost.HostSelectionPolicyMostFull;
+import org.cloudbus.cloudsim.sdn.policies.vmallocation.MigrationCandidateEvaluator;
 import org.cloudbus.cloudsim.sdn.policies.vmallocation.VmMigrationPolicy;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.SDNVm;
 
@@ -37,10 +40,21 @@ public class VmMigrationPolicyLeastCorrelated extends VmMigrationPolicy{
 			return vmToHost;
 		}
 		
-		for(SDNVm vmToMigrate:migrationOverVMList) {
+		// Active hosts and correlations depend only on the utilization histories, not on the resources
+		// reserved for the migrations below. Evaluate them for all the VMs beforehand in parallel.
+		List<SDNHost> activeHosts = getActiveHost(hosts);
+		double[][] correlations = MigrationCandidateEvaluator.evaluatePairs(migrationOverVMList, activeHosts,
+				new ToDoubleBiFunction<SDNVm, SDNHost>() {
+			public double applyAsDouble(SDNVm vm, SDNHost host) {
+				return OverbookingVmAllocationPolicy.getAverageCorrelationCoefficientMips(vm, host);
+			}
+		});
+		
+		for(int i=0; i<migrationOverVMList.size(); i++) {
+			SDNVm vmToMigrate = migrationOverVMList.get(i);
+			
 			// 1. get least correlated hosts among active ones
-			List<SDNHost> activeHosts = getActiveHost(hosts);
-			List<SDNHost> sortedHosts = VmMigrationPolicyLeastCorrelated.<SDNHost>sortLeastCorrelatedHosts(vmToMigrate, activeHosts);
+			List<SDNHost> sortedHosts = VmMigrationPolicyLeastCorrelated.<SDNHost>sortLeastCorrelatedHosts(activeHosts, correlations[i]);
 			List<Host> targetHosts = HostSelectionPolicyFirstFit.getFirstFitHostsForVm(vmToMigrate, sortedHosts, vmAllocationPolicy);
 			
 			Host migratedHost = null;
@@ -68,13 +82,11 @@ public class VmMigrationPolicyLeastCorrelated extends VmMigrationPolicy{
 	}
 	
 	protected static List<SDNHost> getActiveHost(List<SDNHost> hostList) {
-		List<SDNHost> activeHosts = new ArrayList<SDNHost>();
-		for(SDNHost host:hostList) {
-			if(getAverageUtilizationMips(host) > Configuration.HOST_ACTIVE_AVERAGE_UTIL_THRESHOLD) {
-				activeHosts.add(host);
+		return MigrationCandidateEvaluator.filter(hostList, new Predicate<SDNHost>() {
+			public boolean test(SDNHost host) {
+				return getAverageUtilizationMips(host) > Configuration.HOST_ACTIVE_AVERAGE_UTIL_THRESHOLD;
 			}
-		}
-		return activeHosts;
+		});
 	}
 	
 	protected static double getAverageUtilizationMips(SDNHost host) {
@@ -87,14 +99,23 @@ public class VmMigrationPolicyLeastCorrelated extends VmMigrationPolicy{
 
 	@SuppressWarnings("unchecked")
 	protected static <T extends Host> List<T>  sortLeastCorrelatedHosts(SDNVm vm, List<? extends Host> hostList) {
+		// Calculate correlation factors
+		double[] correlations = new double[hostList.size()];
+		for(int i=0; i<hostList.size(); i++) {
+			//correlations[i] = getAverageCorrelationCoefficientMipsHost(vm, (SDNHost)hostList.get(i));
+			correlations[i] = OverbookingVmAllocationPolicy.getAverageCorrelationCoefficientMips(vm, (SDNHost)hostList.get(i));
+		}
+		return (List<T>) sortLeastCorrelatedHosts(hostList, correlations);
+	}
+
+	// Sorts the hosts by the correlation factors calculated beforehand (correlations[i] for hostList.get(i))
+	@SuppressWarnings("unchecked")
+	protected static <T extends Host> List<T>  sortLeastCorrelatedHosts(List<? extends Host> hostList, double[] correlations) {
 		List<? extends Host> hosts = new ArrayList<Host>(hostList);	// for sorting
 
-		// Calculate correlation factors
 		final Map<Host, Double> corr = new HashMap<Host, Double>();
-		for(Host h:hosts) {
-			//double avgCC = getAverageCorrelationCoefficientMipsHost(vm, (SDNHost)h);
-			double avgCC = OverbookingVmAllocationPolicy.getAverageCorrelationCoefficientMips(vm, (SDNHost)h);
-			corr.put(h, avgCC);
+		for(int i=0; i<hostList.size(); i++) {
+			corr.put(hostList.get(i), correlations[i]);
 		}
 		
 		// Sort the most utilized VMs
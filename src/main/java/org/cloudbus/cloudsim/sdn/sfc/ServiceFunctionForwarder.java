@@ -19,6 +19,7 @@ import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.UtilizationModel;
 import org.cloudbus.cloudsim.UtilizationModelFull;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.sdn.LongHashMap;
 import org.cloudbus.cloudsim.sdn.Packet;
 import org.cloudbus.cloudsim.sdn.SDNBroker;
 import org.cloudbus.cloudsim.sdn.nos.NetworkOperatingSystem;
@@ -44,9 +45,9 @@ public class ServiceFunctionForwarder {
 	protected NetworkOperatingSystem nos;
 	
 	/** SFC policies used by the forwarder. Every packet will be investigated if any policy in this table matches. 
-	 *  Key (String): tuple of (src,dst,flowid) in String data
+	 *  Key (long): tuple of (src,dst,flowid) packed by FlowKey
 	 *  Value (SFCPolicy): SFCPolicy object corresponds to the key. */
-	protected HashMap<String, ServiceFunctionChainPolicy> policyTable = new HashMap<String, ServiceFunctionChainPolicy>();	// getKey(srcVM, dstVM, flowID) -> ServiceFunctionChainPolicy
+	protected LongHashMap<ServiceFunctionChainPolicy> policyTable = new LongHashMap<ServiceFunctionChainPolicy>();	// getChannelKey(srcVM, dstVM, flowID) -> ServiceFunctionChainPolicy
 	
 	/** A pool of SFs used for auto-scaling. Once auto-scale policy creates a duplicated SF for the original SF, it will be added here. 
 	 *  Key: original SF
@@ -72,9 +73,9 @@ public class ServiceFunctionForwarder {
 		int flowId = pkt.getFlowId();
 		
 		// Encapsulate a packet, if it needs to go through SFC.
-		if(policyTable.containsKey(ChannelManager.getChannelKey(src,dst,flowId))) {
+		ServiceFunctionChainPolicy policy = policyTable.get(ChannelManager.getChannelKey(src,dst,flowId));
+		if(policy != null) {
 			// SFC Policy should be enforced!
-			ServiceFunctionChainPolicy policy = policyTable.get(ChannelManager.getChannelKey(src,dst,flowId));
 			pkt = encapsulatePacket(orgPkt, policy);
 		}
 		return pkt;
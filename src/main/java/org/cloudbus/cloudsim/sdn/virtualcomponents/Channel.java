@@ -8,11 +8,14 @@
 
 package org.cloudbus.cloudsim.sdn.virtualcomponents;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.cloudbus.cloudsim.sdn.Configuration;
 import org.cloudbus.cloudsim.sdn.PacketScheduler;
+import org.cloudbus.cloudsim.sdn.PacketSchedulerFluidFlow;
 import org.cloudbus.cloudsim.sdn.PacketSchedulerTimeShared;
+import org.cloudbus.cloudsim.sdn.monitor.MonitoringSettings;
 import org.cloudbus.cloudsim.sdn.monitor.MonitoringValues;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.Link;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.Node;
@@ -50,7 +53,8 @@ public class Channel {
 //	private SDNVm dstVm;
 	
 	//	PacketScheduler packetScheduler = new PacketSchedulerSpaceShared(this);
-	PacketScheduler packetScheduler = new PacketSchedulerTimeShared(this);
+	PacketScheduler packetScheduler = Configuration.PACKET_SCHEDULER_FLUID_FLOW ? 
+			new PacketSchedulerFluidFlow(this) : new PacketSchedulerTimeShared(this);
 	
 	public Channel(int chId, int srcId, int dstId, List<Node> nodes, List<Link> links, double bandwidth, SDNVm srcVm, SDNVm dstVm) {
 		this.chId = chId;
@@ -95,11 +99,11 @@ public class Channel {
 		nodes.get(nodes.size()-1).updateNetworkUtilization();
 	}
 	
-	private void updateLinks() {
+	private void updateLinks(double prevAllocatedBw, double prevRequestedBw) {
 		for(int i=0; i<nodes.size()-1; i++) {
 			Node from = nodes.get(i);
 			Link link = links.get(i);
-			link.updateChannel(from, this);
+			link.updateChannel(from, this, prevAllocatedBw, prevRequestedBw);
 		}
 	}
 	
@@ -115,7 +119,7 @@ public class Channel {
 		initialize();
 	}
 	
-	private double getLowestSharedBandwidth() {
+	public double getLowestSharedBandwidth() {
 		// Get the lowest bandwidth along links in the channel
 		double lowestSharedBw = Double.POSITIVE_INFINITY;
 
@@ -215,7 +219,9 @@ public class Channel {
 			return false; //nothing changed
 		
 		boolean isChanged = this.updatePacketProcessing();
+		double prevBandwidth = this.allocatedBandwidth;
 		this.allocatedBandwidth = newBandwidth;
+		updateLinks(prevBandwidth, requestedBandwidth);
 		
 		if(this.allocatedBandwidth == Double.NEGATIVE_INFINITY || this.allocatedBandwidth == Double.POSITIVE_INFINITY)
 		{
@@ -371,6 +377,14 @@ public class Channel {
 				+"): BW:"+allocatedBandwidth+", Transmissions:"+this.getActiveTransmissionNum();
 	}
 
+	public List<Link> getLinks() {
+		return links;
+	}
+
+	public List<Node> getNodes() {
+		return nodes;
+	}
+
 	public Node getLastNode() {
 		Node node = this.nodes.get(this.nodes.size()-1);
 		return node;
@@ -389,8 +403,9 @@ public class Channel {
 	}
 	
 	public void updateRequestedBandwidth(double requestedBandwidth) {
+		double prevRequestedBandwidth = this.requestedBandwidth;
 		this.requestedBandwidth = requestedBandwidth;
-		updateLinks();
+		updateLinks(allocatedBandwidth, prevRequestedBandwidth);
 	}
 	
 	// For monitor
@@ -402,7 +417,8 @@ public class Channel {
 		long processedBytes = monitoringProcessedBytes;
 		
 		double dataRate = (double)monitoringProcessedBytes / timeUnit;
-		mv.add(dataRate, logTime);
+		if(MonitoringSettings.isHistoryEnabled())
+			mv.add(dataRate, logTime);
 		
 		monitoringProcessedBytes = 0;
 		
@@ -459,17 +475,33 @@ public class Channel {
 		return timeout;
 	}
 
+	// Same as getArrivedPackets() / getFailedPackets(), but adds the packets to the given collection instead of a new list.
+	public void drainArrivedPackets(Collection<Transmission> out) {
+		packetScheduler.drainCompletedTransmission(out);
+	}
+
+	public void drainFailedPackets(Collection<Transmission> out) {
+		packetScheduler.drainTimedOutTransmission(out);
+	}
+
 	public double nextFinishTime() {
 		return packetScheduler.nextFinishTime();
 	}
+	
+	// Absolute time when the earliest transmission in this channel times out
+	public double nextTimeoutTime() {
+		return packetScheduler.nextTimeoutTime();
+	}
 
 	public boolean updatePacketProcessing() {
 		long processedBytes = packetScheduler.updatePacketProcessing();
 		this.increaseProcessedBytes(processedBytes); // for monitoring
-		
-		if(packetScheduler.getCompletedTransmission().isEmpty()
-				&& packetScheduler.getTimedOutTransmission().isEmpty())
-			return false;	// Nothing changed
-		return true;
+
+		return hasUndeliveredTransmission();
+	}
+
+	// True if completed or timed out transmissions are waiting to be collected by getArrivedPackets() / getFailedPackets()
+	public boolean hasUndeliveredTransmission() {
+		return packetScheduler.hasCompletedTransmission() || packetScheduler.hasTimedOutTransmission();
 	}
 }
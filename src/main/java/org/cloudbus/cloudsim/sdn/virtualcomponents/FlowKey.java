@@ -0,0 +1,58 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn.virtualcomponents;
+
+/**
+ * Packs a (source VM, destination VM, flow ID) tuple into a single long,
+ * to be used as a key of channel, forwarding and SFC policy tables
+ * without building a String per lookup.
+ *
+ * Layout (from MSB): source 22 bits | destination 22 bits | flow ID + 1 in 20 bits.
+ * Flow ID -1 (default flow) is stored as 0.
+ */
+public final class FlowKey {
+	private static final int VM_BITS = 22;
+	private static final int FLOW_BITS = 20;
+
+	private static final long VM_MASK = (1L << VM_BITS) - 1;
+	private static final long FLOW_MASK = (1L << FLOW_BITS) - 1;
+
+	public static final int MAX_VM_ID = (int) VM_MASK;
+	public static final int MAX_FLOW_ID = (int) FLOW_MASK - 1;
+
+	private FlowKey() {
+		throw new UnsupportedOperationException("FlowKey cannot be instantiated");
+	}
+
+	public static long pack(int src, int dst, int flowId) {
+		if(src < 0 || src > MAX_VM_ID || dst < 0 || dst > MAX_VM_ID || flowId < -1 || flowId > MAX_FLOW_ID) {
+			throw new IllegalArgumentException("FlowKey.pack(): ID out of range! src="+src+", dst="+dst+", flowId="+flowId);
+		}
+
+		return ((long)src << (VM_BITS + FLOW_BITS))
+				| ((long)dst << FLOW_BITS)
+				| (long)(flowId + 1);
+	}
+
+	public static int getSrcId(long key) {
+		return (int) ((key >>> (VM_BITS + FLOW_BITS)) & VM_MASK);
+	}
+
+	public static int getDstId(long key) {
+		return (int) ((key >>> FLOW_BITS) & VM_MASK);
+	}
+
+	public static int getFlowId(long key) {
+		return (int) (key & FLOW_MASK) - 1;
+	}
+
+	public static String toString(long key) {
+		return getSrcId(key)+"-"+getDstId(key)+"-"+getFlowId(key);
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn.virtualcomponents;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.cloudbus.cloudsim.sdn.physicalcomponents.Link;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.Node;
+
+/**
+ * Resolved route of a flow (nodes and links from the source host), as walked through the forwarding tables.
+ * Immutable, to be cached until the forwarding rules of the flow change.
+ */
+public class FlowPath {
+	private final List<Node> nodes;
+	private final List<Link> links;
+	private final double latency;
+
+	public FlowPath(List<Node> nodes, List<Link> links) {
+		this.nodes = Collections.unmodifiableList(Arrays.asList(nodes.toArray(new Node[nodes.size()])));
+		this.links = Collections.unmodifiableList(Arrays.asList(links.toArray(new Link[links.size()])));
+
+		double latency = 0;
+		for(Link l:links) {
+			latency += l.getLatencyInSeconds();
+		}
+		this.latency = latency;
+	}
+
+	public Node getSrcNode() {
+		return nodes.get(0);
+	}
+
+	public List<Node> getNodes() {
+		return nodes;
+	}
+
+	public List<Link> getLinks() {
+		return links;
+	}
+
+	// Sum of the latency of the links in seconds
+	public double getLatency() {
+		return latency;
+	}
+}
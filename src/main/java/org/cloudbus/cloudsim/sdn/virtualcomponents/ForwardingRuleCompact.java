@@ -0,0 +1,53 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn.virtualcomponents;
+
+import java.util.Arrays;
+
+import org.cloudbus.cloudsim.sdn.LongHashMap;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.Node;
+
+/**
+ * Forwarding table stored in a single open addressing hash table keyed by FlowKey(src, dest, flowId).
+ * No boxed keys, nested tables or entry objects are kept per rule,
+ * which reduces the memory of switches holding rules for many VM pairs.
+ */
+public class ForwardingRuleCompact extends ForwardingRule {
+	
+	private LongHashMap<Node> table = new LongHashMap<Node>();
+	
+	@Override
+	public void clear() {
+		table.clear();
+	}
+	
+	@Override
+	public void addRule(int src, int dest, int flowId, Node to) {
+		table.put(FlowKey.pack(src, dest, flowId), to);
+	}
+	
+	@Override
+	public void removeRule(int src, int dest, int flowId) {
+		table.remove(FlowKey.pack(src, dest, flowId));
+	}
+	
+	@Override
+	public Node getRoute(int src, int dest, int flowId) {
+		return table.get(FlowKey.pack(src, dest, flowId));
+	}
+	
+	@Override
+	public void printForwardingTable(String thisNode) {
+		long[] keys = table.keys();
+		Arrays.sort(keys);
+		for(long key:keys) {
+			printRule(thisNode, FlowKey.getSrcId(key), FlowKey.getDstId(key), FlowKey.getFlowId(key), table.get(key));
+		}
+	}
+}
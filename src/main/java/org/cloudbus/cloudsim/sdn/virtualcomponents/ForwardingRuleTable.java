@@ -0,0 +1,84 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2015, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn.virtualcomponents;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.sdn.physicalcomponents.Node;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+
+
+/**
+ * Forwarding table in each switch, stored in nested hash tables (src, dest) -> flow ID -> next hop.
+ *  
+ * @author Jungmin Son
+ * @author Rodrigo N. Calheiros
+ * @since CloudSimSDN 1.0
+ */
+public class ForwardingRuleTable extends ForwardingRule {
+	
+	Table<Integer, Integer, Map<Integer,Node>> table;
+
+	public ForwardingRuleTable(){
+		this.table = HashBasedTable.create();
+	}
+	
+	@Override
+	public void clear(){
+		table.clear();
+	}
+	
+	@Override
+	public void addRule(int src, int dest, int flowId, Node to){
+		Map<Integer, Node> map = table.get(src, dest);
+		if(map == null)
+			map = new HashMap<Integer, Node>();
+		map.put(flowId, to);
+		table.put(src, dest, map);
+	}
+	
+	@Override
+	public void removeRule(int src, int dest, int flowId){
+		Map<Integer, Node> map = table.get(src, dest);
+		
+		if(map != null) {
+			map.remove(flowId);
+			if(map.isEmpty())
+				table.remove(src, dest);
+			else
+				table.put(src, dest, map);
+		}
+	}
+
+	@Override
+	public Node getRoute(int src, int dest, int flowId) {
+		Map<Integer, Node> map = table.get(src, dest);
+		if(map==null)
+			return null;
+		
+		return map.get(flowId);
+	}
+	
+	@Override
+	public void printForwardingTable(String thisNode) {
+		for(Integer rowK:table.rowKeySet()) {
+			Map<Integer, Map<Integer,Node>> row = table.row(rowK);
+			for(Integer colK: row.keySet()) {
+				Map<Integer, Node> nodes = row.get(colK);
+				
+				for(Integer flowId:nodes.keySet()) {
+					printRule(thisNode, rowK, colK, flowId, nodes.get(flowId));
+				}
+			}
+		}
+	}
+}
@@ -15,7 +15,9 @@ import org.cloudbus.cloudsim.Consts;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.sdn.CloudletSchedulerMonitor;
+import org.cloudbus.cloudsim.sdn.Configuration;
 import org.cloudbus.cloudsim.sdn.LogWriter;
+import org.cloudbus.cloudsim.sdn.monitor.MonitoringSettings;
 import org.cloudbus.cloudsim.sdn.monitor.MonitoringValues;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.SDNHost;
 
@@ -162,12 +164,15 @@ public class SDNVm extends Vm {
 		if(capacity != 0 ) 
 			utilization = (double)monitoringProcessedMIsPerUnit / capacity / Consts.MILLION;
 		
-		mvCPU.add(utilization, logTime);
+		if(MonitoringSettings.isHistoryEnabled())
+			mvCPU.add(utilization, logTime);
 		monitoringProcessedMIsPerUnit = 0;
 		monitoringGivenMIsPerUnit = 0;
 		
-		LogWriter log = LogWriter.getLogger("vm_utilization.csv");
-		log.printLine(this.getName()+","+logTime+","+utilization);
+		if(MonitoringSettings.isLogged(Configuration.MONITOR_LOG_VM, this.getId())) {
+			LogWriter log = LogWriter.getLogger("vm_utilization.csv");
+			log.log(this.getName(), logTime, utilization);
+		}
 	}
 	public MonitoringValues getMonitoringValuesVmCPUUtilization() { 
 		return mvCPU;
@@ -192,11 +197,14 @@ public class SDNVm extends Vm {
 //		if(capacity != 0 ) 
 //			utilization = (double)monitoringProcessedBytesPerUnit / capacity;
 		
-		mvBW.add(dataRate, logTime);
+		if(MonitoringSettings.isHistoryEnabled())
+			mvBW.add(dataRate, logTime);
 		monitoringProcessedBytesPerUnit = 0;
 		
-		LogWriter log = LogWriter.getLogger("vm_bw_utilization.csv");
-		log.printLine(this.getName()+","+logTime+","+dataRate);
+		if(MonitoringSettings.isLogged(Configuration.MONITOR_LOG_VM, this.getId())) {
+			LogWriter log = LogWriter.getLogger("vm_bw_utilization.csv");
+			log.log(this.getName(), logTime, dataRate);
+		}
 	}
 	
 	public MonitoringValues getMonitoringValuesVmBwUtilization() { 
@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.sdn.LongHashMap;
 import org.cloudbus.cloudsim.sdn.nos.NetworkOperatingSystem;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.Link;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.Node;
@@ -16,6 +17,9 @@ public class VirtualNetworkMapper {
 	protected NetworkOperatingSystem nos;
 	protected LinkSelectionPolicy linkSelector;
 	
+	// FlowKey(src, dst, flowId) -> resolved route. Invalidated whenever forwarding rules of the flow change.
+	protected LongHashMap<FlowPath> pathCache = new LongHashMap<FlowPath>();
+	
 	public VirtualNetworkMapper(NetworkOperatingSystem nos) {
 		this.nos = nos;
 	}
@@ -25,6 +29,8 @@ public class VirtualNetworkMapper {
 	}
 
 	public boolean buildForwardingTable(int srcVm, int dstVm, int flowId) {
+		invalidatePath(srcVm, dstVm, flowId);
+		
 		SDNHost srchost = (SDNHost)nos.findHost(srcVm);
 		SDNHost dsthost = (SDNHost)nos.findHost(dstVm);
 		if(srchost == null || dsthost == null) {
@@ -95,6 +101,7 @@ public class VirtualNetworkMapper {
 			// Create a new route
 			//node.removeVMRoute(srcVm, dstVm, flowId);
 			node.addVMRoute(srcVm, dstVm, flowId, nextHop);
+			invalidatePath(srcVm, dstVm, flowId);
 			//Log.printLine(CloudSim.clock() + ": " + getName() + ": Updating VM route for flow:"+srcVm+"->"+dstVm+"("+flowId+") From="+node+", Old="+oldNextHop+", New="+nextHop);
 			
 			updateDynamicForwardingTableRec(nextHop, srcVm, dstVm, flowId, true);
@@ -122,14 +129,55 @@ public class VirtualNetworkMapper {
 	 */
 	public void buildNodesLinks(int src, int dst, int flowId, Node srcNode,
 			List<Node> nodes, List<Link> links) {
+		FlowPath path = getPath(src, dst, flowId, srcNode);
+		if(path == null) {
+			System.err.println("buildNodesLinks() Cannot find dest!");
+			return;	
+		}
+		
+		nodes.addAll(path.getNodes());
+		links.addAll(path.getLinks());
+	}
+	
+	/**
+	 * Gets the route of the flow from the source node, walking the forwarding tables only
+	 * if the route is not cached yet.
+	 * 
+	 * @return the route, or null if the source node has no forwarding rule for the flow
+	 */
+	public FlowPath getPath(int src, int dst, int flowId, Node srcNode) {
+		long key = FlowKey.pack(src, dst, flowId);
+		FlowPath path = pathCache.get(key);
+		if(path != null && path.getSrcNode() == srcNode)
+			return path;
+		
+		List<Node> nodes = new ArrayList<Node>();
+		List<Link> links = new ArrayList<Link>();
+		if(!walkNodesLinks(src, dst, flowId, srcNode, nodes, links))
+			return null;
+		
+		path = new FlowPath(nodes, links);
+		pathCache.put(key, path);
+		return path;
+	}
+	
+	public void invalidatePath(int src, int dst, int flowId) {
+		pathCache.remove(FlowKey.pack(src, dst, flowId));
+	}
+	
+	public void invalidateAllPaths() {
+		pathCache.clear();
+	}
+	
+	private boolean walkNodesLinks(int src, int dst, int flowId, Node srcNode,
+			List<Node> nodes, List<Link> links) {
 		
 		// Build the list of nodes and links that this channel passes through
 		Node origin = srcNode;
 		Node dest = origin.getVMRoute(src, dst, flowId);
 		
 		if(dest==null) {
-			System.err.println("buildNodesLinks() Cannot find dest!");
-			return;	
+			return false;
 		}
 	
 		nodes.add(origin);
@@ -148,6 +196,7 @@ public class VirtualNetworkMapper {
 			origin = dest;
 			dest = origin.getVMRoute(src, dst, flowId);
 		}
+		return true;
 	}
 
 	// This function rebuilds the forwarding table only for the specific VM
@@ -161,6 +210,7 @@ public class VirtualNetworkMapper {
 			//System.err.println("Removing routes for: "+node + "("+arc+")");
 			node.removeVMRoute(srcVmId, dstVmId, flowId);
 		}
+		invalidatePath(srcVmId, dstVmId, flowId);
 		
 		// Build a forwarding table for the new route.
 		if(buildForwardingTable(srcVmId, dstVmId, flowId) == false) {
@@ -0,0 +1,60 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.workload;
+
+import java.util.Arrays;
+
+/**
+ * Result values of one finished workload, copied out of the Workload in the simulation thread
+ * so that it can be written in another thread (see WorkloadResultWriterThread).
+ * Activities are listed in the order of the result file: depth-first, each transmission followed by its payload.
+ */
+public class WorkloadResult {
+	public static final byte PROCESSING = 0;
+	public static final byte TRANSMISSION = 1;
+
+	public int workloadId;
+	public int appId;
+	public double time;
+	public boolean failed;
+	public double responseTime;	// Not set if failed
+
+	public int numActivities = 0;
+	public byte[] types = new byte[4];
+	public double[] startTimes = new double[4];
+	public double[] finishTimes = new double[4];
+	public double[] serveTimes = new double[4];
+	public long[] sizes = new long[4];	// Packet size or cloudlet length
+	public int[] flowIds = new int[4];	// -1 for processing
+
+	public WorkloadResult(int workloadId, int appId, double time, boolean failed) {
+		this.workloadId = workloadId;
+		this.appId = appId;
+		this.time = time;
+		this.failed = failed;
+	}
+
+	public void addActivity(byte type, double startTime, double finishTime, double serveTime, long size, int flowId) {
+		if(numActivities == types.length) {
+			int capacity = numActivities * 2;
+			types = Arrays.copyOf(types, capacity);
+			startTimes = Arrays.copyOf(startTimes, capacity);
+			finishTimes = Arrays.copyOf(finishTimes, capacity);
+			serveTimes = Arrays.copyOf(serveTimes, capacity);
+			sizes = Arrays.copyOf(sizes, capacity);
+			flowIds = Arrays.copyOf(flowIds, capacity);
+		}
+		types[numActivities] = type;
+		startTimes[numActivities] = startTime;
+		finishTimes[numActivities] = finishTime;
+		serveTimes[numActivities] = serveTime;
+		sizes[numActivities] = size;
+		flowIds[numActivities] = flowId;
+		numActivities++;
+	}
+}
@@ -0,0 +1,25 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.workload;
+
+import java.io.IOException;
+
+/**
+ * Output of WorkloadResultWriter. Statistics are computed by WorkloadResultWriter regardless of the sink.
+ * Called from one thread at a time, in the order of the finished workloads.
+ */
+public interface WorkloadResultSink {
+	public void write(WorkloadResult result) throws IOException;
+
+	/** Writes a line of statistics. */
+	public void writeComment(String line) throws IOException;
+
+	public void flush() throws IOException;
+
+	public void close() throws IOException;
+}
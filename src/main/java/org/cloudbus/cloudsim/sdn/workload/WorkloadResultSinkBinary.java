@@ -0,0 +1,144 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.workload;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.cloudbus.cloudsim.sdn.BufferedChannelWriter;
+
+/**
+ * Writes workload results in a compact binary columnar format (big-endian).
+ *
+ * File format : int MAGIC, int VERSION, then blocks until the end of file.
+ *   Result block  : int numResults (> 0),
+ *                   int[] workloadId, int[] appId, double[] time, byte[] failed, double[] responseTime, int[] numActivities,
+ *                   int totalActivities,
+ *                   byte[] type, double[] startTime, double[] finishTime, double[] serveTime, long[] size, int[] flowId
+ *   Comment block : int COMMENT_BLOCK, int length, byte[] UTF-8 text of a statistics line
+ *
+ * Activities of all results in a block are concatenated in the order of the results.
+ */
+public class WorkloadResultSinkBinary implements WorkloadResultSink {
+	public static final String FILE_EXTENSION = ".wrb";
+	public static final int MAGIC = 0x43535752;	// "CSWR"
+	public static final int VERSION = 1;
+	public static final int COMMENT_BLOCK = -1;
+
+	private static final int BLOCK_SIZE = 4096;
+
+	private final BufferedChannelWriter out;
+
+	private int num = 0;
+	private int[] workloadIds = new int[BLOCK_SIZE];
+	private int[] appIds = new int[BLOCK_SIZE];
+	private double[] times = new double[BLOCK_SIZE];
+	private boolean[] failed = new boolean[BLOCK_SIZE];
+	private double[] responseTimes = new double[BLOCK_SIZE];
+	private int[] numActivities = new int[BLOCK_SIZE];
+
+	private int numAct = 0;
+	private byte[] types = new byte[BLOCK_SIZE];
+	private double[] startTimes = new double[BLOCK_SIZE];
+	private double[] finishTimes = new double[BLOCK_SIZE];
+	private double[] serveTimes = new double[BLOCK_SIZE];
+	private long[] sizes = new long[BLOCK_SIZE];
+	private int[] flowIds = new int[BLOCK_SIZE];
+
+	public WorkloadResultSinkBinary(String fileName) throws IOException {
+		System.out.println("Creating logger..:" +fileName);
+		out = new BufferedChannelWriter(fileName);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+	}
+
+	/** Replaces the extension of a result file name (result_*.csv) with FILE_EXTENSION. */
+	public static String getBinaryFileName(String fileName) {
+		int indexDot = fileName.lastIndexOf('.');
+		if(indexDot > fileName.lastIndexOf('/'))
+			fileName = fileName.substring(0, indexDot);
+		return fileName + FILE_EXTENSION;
+	}
+
+	@Override
+	public void write(WorkloadResult r) throws IOException {
+		workloadIds[num] = r.workloadId;
+		appIds[num] = r.appId;
+		times[num] = r.time;
+		failed[num] = r.failed;
+		responseTimes[num] = r.responseTime;
+		numActivities[num] = r.numActivities;
+		num++;
+
+		if(numAct + r.numActivities > types.length) {
+			int capacity = Math.max(numAct + r.numActivities, types.length * 2);
+			types = Arrays.copyOf(types, capacity);
+			startTimes = Arrays.copyOf(startTimes, capacity);
+			finishTimes = Arrays.copyOf(finishTimes, capacity);
+			serveTimes = Arrays.copyOf(serveTimes, capacity);
+			sizes = Arrays.copyOf(sizes, capacity);
+			flowIds = Arrays.copyOf(flowIds, capacity);
+		}
+		System.arraycopy(r.types, 0, types, numAct, r.numActivities);
+		System.arraycopy(r.startTimes, 0, startTimes, numAct, r.numActivities);
+		System.arraycopy(r.finishTimes, 0, finishTimes, numAct, r.numActivities);
+		System.arraycopy(r.serveTimes, 0, serveTimes, numAct, r.numActivities);
+		System.arraycopy(r.sizes, 0, sizes, numAct, r.numActivities);
+		System.arraycopy(r.flowIds, 0, flowIds, numAct, r.numActivities);
+		numAct += r.numActivities;
+
+		if(num == BLOCK_SIZE)
+			writeBlock();
+	}
+
+	private void writeBlock() throws IOException {
+		if(num == 0)
+			return;
+
+		out.writeInt(num);
+		for(int i=0; i<num; i++) out.writeInt(workloadIds[i]);
+		for(int i=0; i<num; i++) out.writeInt(appIds[i]);
+		for(int i=0; i<num; i++) out.writeDouble(times[i]);
+		for(int i=0; i<num; i++) out.writeByte(failed[i] ? 1 : 0);
+		for(int i=0; i<num; i++) out.writeDouble(responseTimes[i]);
+		for(int i=0; i<num; i++) out.writeInt(numActivities[i]);
+
+		out.writeInt(numAct);
+		out.write(types, 0, numAct);
+		for(int i=0; i<numAct; i++) out.writeDouble(startTimes[i]);
+		for(int i=0; i<numAct; i++) out.writeDouble(finishTimes[i]);
+		for(int i=0; i<numAct; i++) out.writeDouble(serveTimes[i]);
+		for(int i=0; i<numAct; i++) out.writeLong(sizes[i]);
+		for(int i=0; i<numAct; i++) out.writeInt(flowIds[i]);
+
+		num = 0;
+		numAct = 0;
+	}
+
+	@Override
+	public void writeComment(String line) throws IOException {
+		writeBlock();
+		byte[] text = line.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(COMMENT_BLOCK);
+		out.writeInt(text.length);
+		out.write(text);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writeBlock();
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		writeBlock();
+		out.close();
+	}
+}
@@ -0,0 +1,217 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.workload;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+import org.cloudbus.cloudsim.sdn.BufferedChannelWriter;
+import org.cloudbus.cloudsim.sdn.Configuration;
+import org.cloudbus.cloudsim.sdn.example.LogPrinter;
+
+/**
+ * Writes workload results as text, the same format as the former WorkloadResultWriter output.
+ * Times are formatted by hand into a reused StringBuilder. Values close to a rounding tie
+ * (or too large to scale exactly) are formatted by DecimalFormat / String.format as before,
+ * so the text is identical.
+ */
+public class WorkloadResultSinkCsv implements WorkloadResultSink {
+	private static final double FAST_FORMAT_MAX = 1e6;	// |value| * 1000 stays far more precise than the tie margin
+	private static final double TIE_MARGIN = 1e-6;
+	private static final int RESPONSE_TIME_WIDTH = 10;	// LogPrinter.fFloat
+
+	private final BufferedChannelWriter out;
+	private final StringBuilder sb = new StringBuilder(256);
+	private boolean headPrinted = false;
+
+	private final DecimalFormat df = new DecimalFormat();
+	private final boolean fastFormat;
+	private final char decimalSeparator;
+
+	public WorkloadResultSinkCsv(String fileName) throws IOException {
+		df.setMaximumFractionDigits(3);
+		df.setGroupingUsed(false);
+
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+		decimalSeparator = symbols.getDecimalSeparator();
+		fastFormat = (symbols.getZeroDigit() == '0' && symbols.getMinusSign() == '-');
+
+		System.out.println("Creating logger..:" +fileName);
+		out = new BufferedChannelWriter(fileName);
+	}
+
+	@Override
+	public void write(WorkloadResult r) throws IOException {
+		if(!headPrinted) {
+			printHead(r);
+			headPrinted = true;
+		}
+
+		if(!Configuration.DEBUG_RESULT_WRITE_DETAIL)
+			return;
+
+		sb.setLength(0);
+		appendInt(r.workloadId);
+		appendInt(r.appId);
+		appendFloat(r.time);
+
+		for(int i=0; i<r.numActivities; i++) {
+			if(Configuration.DEBUG_PRINT_DETAIL_SIZE_TIME) {
+				appendFloat(r.startTimes[i]);
+				appendFloat(r.finishTimes[i]);
+			}
+			appendFloat(r.serveTimes[i]);
+			if(Configuration.DEBUG_PRINT_DETAIL_SIZE_TIME) {
+				appendInt(r.sizes[i]);
+				if(r.types[i] == WorkloadResult.TRANSMISSION)
+					appendInt(r.flowIds[i]);
+			}
+		}
+
+		if(r.failed)
+			sb.append("TimeOut");
+		else
+			appendResponseTime(r.responseTime);
+		sb.append('\n');
+		out.write(sb);
+	}
+
+	private void printHead(WorkloadResult sample) throws IOException {
+		sb.setLength(0);
+		appendTitle("Workload_ID");
+		appendTitle("App_ID");
+		appendTitle("SubmitTime");
+		for(int i=0; i<sample.numActivities; i++) {
+			if(sample.types[i] == WorkloadResult.TRANSMISSION) {
+				if(Configuration.DEBUG_PRINT_DETAIL_SIZE_TIME) {
+					appendTitle("Tr:StartTime");
+					appendTitle("Tr:EndTime");
+				}
+				appendTitle("Tr:NetworkTime");
+				if(Configuration.DEBUG_PRINT_DETAIL_SIZE_TIME) {
+					appendTitle("Tr:Size");
+					appendTitle("Tr:Channel");
+				}
+			}
+			else {
+				if(Configuration.DEBUG_PRINT_DETAIL_SIZE_TIME) {
+					appendTitle("Pr:StartTime");
+					appendTitle("Pr:EndTime");
+				}
+				appendTitle("Pr:CPUTime");
+				if(Configuration.DEBUG_PRINT_DETAIL_SIZE_TIME) {
+					appendTitle("Pr:Size");
+				}
+			}
+		}
+		appendTitle("ResponseTime");
+		out.write(sb);
+		out.newLine();
+	}
+
+	private void appendTitle(String title) {
+		sb.append(String.format(LogPrinter.fString, title));
+	}
+
+	private void appendInt(long l) {
+		sb.append(' ').append(l).append(',');
+	}
+
+	// Same as " "+df.format(f)+","
+	private void appendFloat(double f) {
+		sb.append(' ');
+		long scaled = scale(f);
+		if(scaled < 0) {
+			sb.append(df.format(f));
+		}
+		else {
+			if(isNegative(f))
+				sb.append('-');
+			sb.append(scaled / 1000);
+			int fraction = (int) (scaled % 1000);
+			if(fraction != 0) {
+				int digits = 3;
+				while(fraction % 10 == 0) {
+					fraction /= 10;
+					digits--;
+				}
+				sb.append(decimalSeparator);
+				appendPadded(fraction, digits);
+			}
+		}
+		sb.append(',');
+	}
+
+	// Same as String.format(LogPrinter.fFloat, f)
+	private void appendResponseTime(double f) {
+		long scaled = scale(f);
+		if(scaled < 0) {
+			sb.append(String.format(LogPrinter.fFloat, f));
+			return;
+		}
+
+		int start = sb.length();
+		if(isNegative(f))
+			sb.append('-');
+		sb.append(scaled / 1000);
+		sb.append(decimalSeparator);
+		appendPadded((int) (scaled % 1000), 3);
+		for(int len = sb.length() - start; len < RESPONSE_TIME_WIDTH; len++)
+			sb.insert(start, ' ');
+		sb.append(',');
+	}
+
+	private void appendPadded(int value, int digits) {
+		if(digits >= 3 && value < 100)
+			sb.append('0');
+		if(digits >= 2 && value < 10)
+			sb.append('0');
+		sb.append(value);
+	}
+
+	private static boolean isNegative(double f) {
+		return (Double.doubleToRawLongBits(f) < 0);
+	}
+
+	/**
+	 * Returns |f| * 1000 rounded to the nearest integer,
+	 * or -1 if the result may differ from the JDK formatters (not fast-formattable, near a tie, too large, NaN).
+	 */
+	private long scale(double f) {
+		if(!fastFormat)
+			return -1;
+
+		double a = Math.abs(f);
+		if(!(a < FAST_FORMAT_MAX))
+			return -1;
+
+		double s = a * 1000;
+		double floor = Math.floor(s);
+		if(Math.abs(s - floor - 0.5) < TIE_MARGIN)
+			return -1;
+		return (long) Math.floor(s + 0.5);
+	}
+
+	@Override
+	public void writeComment(String line) throws IOException {
+		out.write(line);
+		out.newLine();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,29 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim.sdn.workload;
+
+/**
+ * Writes nothing. Only the statistics of WorkloadResultWriter are kept in memory.
+ */
+public class WorkloadResultSinkNone implements WorkloadResultSink {
+	@Override
+	public void write(WorkloadResult result) {
+	}
+
+	@Override
+	public void writeComment(String line) {
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+	}
+}
@@ -8,19 +8,29 @@
 
 package org.cloudbus.cloudsim.sdn.workload;
 
-import java.text.DecimalFormat;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.sdn.Configuration;
 import org.cloudbus.cloudsim.sdn.LogWriter;
-import org.cloudbus.cloudsim.sdn.example.LogPrinter;
 
+/**
+ * Computes statistics of finished workloads and writes their results to a WorkloadResultSink,
+ * selected by Configuration.WORKLOAD_RESULT_FORMAT.
+ * Statistics are computed in the simulation thread. With Configuration.WORKLOAD_RESULT_ASYNC,
+ * the results are copied into WorkloadResult and written in a background thread (WorkloadResultWriterThread).
+ */
 public class WorkloadResultWriter {
-	private boolean headPrinted=false;
+	public static final String FORMAT_CSV = "csv";
+	public static final String FORMAT_BINARY = "binary";
+	public static final String FORMAT_NONE = "none";
+	
 	private String filename;
-	private LogWriter out = null;
+	private WorkloadResultSink sink;
+	private WorkloadResultWriterThread thread = null;
+	private boolean closed = false;
 	
 	// For statistics
 	private double totalServeTime;	// All serve time
@@ -35,101 +45,63 @@ public class WorkloadResultWriter {
 	private int cloudletOverNum;	// Number of Cloudlets exceeds estimated finish time
 	private int transmissionNum;	// Number of transmissions
 	private int transmissionOverNum;	// Number of transmissions exceeds estimated transmission time
-	private DecimalFormat df = new DecimalFormat();
-	
-	//private PriorityQueue<Workload> workloadToPrint;
-	//private int nextId = 0;
-
-	//WorkloadResultWriterThread thread;
 	
 	public WorkloadResultWriter(String file) {
-		df.setMaximumFractionDigits(3);
-		df.setGroupingUsed(false);
-
-		this.filename = file;
-		out = LogWriter.getLogger(filename);
-		
-		//workloadToPrint = new PriorityQueue<Workload>();
-		//thread = new WorkloadResultWriterThread(this);
-		//new Thread(thread).start();
-	}
-	
-	public void writeResult(Workload wl) {
-		printWorkloadBuffer(wl);
-		//printWorkload(wl);
-		//threadPrintWorkload(wl);
+		this(file, createSink(file));
 	}
 	
-	// Multi-thread Version
-	/*
-	private void threadPrintWorkload(Workload wl) {
-		thread.enqueue(wl);
+	public WorkloadResultWriter(String file, WorkloadResultSink sink) {
+		this.filename = file;
+		this.sink = sink;
+		
+		if(Configuration.WORKLOAD_RESULT_ASYNC) {
+			thread = new WorkloadResultWriterThread(sink, file);
+			thread.start();
+		}
 	}
 	
-	private void threadExit() {
-		thread.setExit();
+	private static WorkloadResultSink createSink(String file) {
+		String format = Configuration.WORKLOAD_RESULT_FORMAT;
 		try {
-			Thread.sleep(1);
-		} catch (InterruptedException e) {
+			if(FORMAT_CSV.equalsIgnoreCase(format))
+				return new WorkloadResultSinkCsv(LogWriter.getFileName(file));
+			if(FORMAT_BINARY.equalsIgnoreCase(format))
+				return new WorkloadResultSinkBinary(LogWriter.getFileName(WorkloadResultSinkBinary.getBinaryFileName(file)));
+			if(FORMAT_NONE.equalsIgnoreCase(format))
+				return new WorkloadResultSinkNone();
+		} catch (IOException e) {
 			e.printStackTrace();
+			return new WorkloadResultSinkNone();
 		}
-	}
-	*/
-
-	private static final int workloadBufferSize = 1000;
-	private List<Workload> workloadBuffer = new ArrayList<Workload>(workloadBufferSize);
-
-	private void printWorkloadBuffer(Workload wl) {
-		workloadBuffer.add(wl);
-		if(workloadBuffer.size() >= workloadBufferSize)
-			flushWorkloadBuffer();
+		throw new IllegalArgumentException("Unknown workload result format:"+format);
 	}
 	
-	private void flushWorkloadBuffer() {
-		for(Workload wl:workloadBuffer) {
-			printWorkload(wl);
-		}
-		workloadBuffer = new ArrayList<Workload>(workloadBufferSize);
+	public void writeResult(Workload wl) {
+		WorkloadResult result = toResult(wl);
+		if(thread != null)
+			thread.enqueue(result);
+		else
+			write(result);
 	}
 	
-
-//	
-//	private void flushWorkloads() {
-//		Workload wl;
-//		while((wl = workloadToPrint.peek()) != null && wl.workloadId == nextId) {
-//			wl = workloadToPrint.poll();
-//			printWorkload(wl);
-//			nextId++;
-//		}
-//	}
-//	
 	public void printWorkload(Workload wl) {
-		if(!headPrinted) {
-			this.printHead(wl);
-			headPrinted = true;
-		}
-		
-		double serveTime;
-		
-		printDetailInt(wl.workloadId);
-		printDetailInt(wl.appId);
-		printDetailFloat(wl.time);
+		writeResult(wl);
+	}
+	
+	// Computes the statistics and copies the values to write.
+	private WorkloadResult toResult(Workload wl) {
+		WorkloadResult result = new WorkloadResult(wl.workloadId, wl.appId, wl.time, wl.failed);
 		
 		if(wl.failed) {
-			printRequest(wl.request, false);
-			
-			printDetail("TimeOut");
-			printDetail("\n");
+			addRequest(wl.request, false, result);
 			
 			this.timeoutNum++;
 		}
 		else {
-			printRequest(wl.request, true);
+			addRequest(wl.request, true, result);
 			
-			serveTime= getWorkloadFinishTime(wl) - getWorkloadStartTime(wl);
-			
-			printDetail(String.format(LogPrinter.fFloat, serveTime));
-			printDetail("\n");
+			double serveTime= getWorkloadFinishTime(wl) - getWorkloadStartTime(wl);
+			result.responseTime = serveTime;
 			
 			this.totalServeTime += serveTime;
 			
@@ -138,46 +110,10 @@ public class WorkloadResultWriter {
 			}
 			printedWorkloadNum++;
 		}
+		return result;
 	}
 	
-	
-	private void printRequestTitle(Request req) {
-		List<Activity> acts = req.getRemovedActivities();
-		for(Activity act:acts) {
-			if(act instanceof Transmission) {
-				Transmission tr=(Transmission)act;
-				
-				if(Configuration.DEBUG_PRINT_DETAIL_SIZE_TIME) {
-					print(String.format(LogPrinter.fString, "Tr:StartTime"));
-					print(String.format(LogPrinter.fString, "Tr:EndTime"));
-				}
-				
-				print(String.format(LogPrinter.fString, "Tr:NetworkTime"));
-				
-				if(Configuration.DEBUG_PRINT_DETAIL_SIZE_TIME) {
-					print(String.format(LogPrinter.fString, "Tr:Size"));
-					print(String.format(LogPrinter.fString, "Tr:Channel"));
-				}
-				
-				printRequestTitle(tr.getPacket().getPayload());
-			}
-			else {
-				if(Configuration.DEBUG_PRINT_DETAIL_SIZE_TIME) {
-					print(String.format(LogPrinter.fString, "Pr:StartTime"));
-					print(String.format(LogPrinter.fString, "Pr:EndTime"));
-				}	
-				
-				print(String.format(LogPrinter.fString, "Pr:CPUTime"));
-				
-				if(Configuration.DEBUG_PRINT_DETAIL_SIZE_TIME) {
-					print(String.format(LogPrinter.fString, "Pr:Size"));
-				}
-				
-			}
-		}
-	}
-
-	private void printRequest(Request req, boolean includeStatistics) {
+	private void addRequest(Request req, boolean includeStatistics, WorkloadResult result) {
 		
 		List<Activity> acts = req.getRemovedActivities();
 		for(Activity act:acts) {
@@ -192,19 +128,10 @@ public class WorkloadResultWriter {
 					if(isOverTime(tr))
 						transmissionOverNum++;
 				}
-
-				if(Configuration.DEBUG_PRINT_DETAIL_SIZE_TIME) {
-					printDetailFloat(tr.getStartTime());	 // Start time
-					printDetailFloat(tr.getFinishTime());	 // Start time
-				}
 				
-				printDetailFloat(serveTime); // Network processing time
-				
-				if(Configuration.DEBUG_PRINT_DETAIL_SIZE_TIME) {
-					printDetailInt(tr.getPacket().getSize()); // Size
-					printDetailInt( tr.getPacket().getFlowId()); // Channel #
-				}
-				printRequest(tr.getPacket().getPayload(), includeStatistics);
+				result.addActivity(WorkloadResult.TRANSMISSION, tr.getStartTime(), tr.getFinishTime(), serveTime, 
+						tr.getPacket().getSize(), tr.getPacket().getFlowId());
+				addRequest(tr.getPacket().getPayload(), includeStatistics, result);
 			}
 			else {
 				Processing pr=(Processing)act;
@@ -217,38 +144,24 @@ public class WorkloadResultWriter {
 						cloudletOverNum++;
 				}
 				
-				if(Configuration.DEBUG_PRINT_DETAIL_SIZE_TIME) {
-					//printDetailFloat(pr.getCloudlet().getSubmissionTime());	// Start time
-					printDetailFloat(pr.getStartTime());	// Start time
-					printDetailFloat(pr.getFinishTime());	// Start time
-				}
-				printDetailFloat(serveTime); // Processing time
-				if(Configuration.DEBUG_PRINT_DETAIL_SIZE_TIME) {
-					//printDetailInt(pr.getCloudlet().getCloudletLength()); // Size
-					printDetailInt(pr.cloudletTotalLength); // Size
-				}
+				result.addActivity(WorkloadResult.PROCESSING, pr.getStartTime(), pr.getFinishTime(), serveTime, 
+						pr.cloudletTotalLength, -1);
 			}
 		}
 	}
 	
-	private void printHead(Workload sample) {
-		print(String.format(LogPrinter.fString, "Workload_ID"));
-		print(String.format(LogPrinter.fString, "App_ID"));
-		print(String.format(LogPrinter.fString, "SubmitTime"));
-		printRequestTitle(sample.request);
-		print(String.format(LogPrinter.fString, "ResponseTime"));
-		printLine();
-	}
-	
 	public void printWorkloadList(List<Workload> wls) {
 		for(Workload wl:wls) {
 			printWorkload(wl);
 		}
 	}
 	
+	/**
+	 * Writes all the results in order, followed by the statistics.
+	 */
 	public void printStatistics() {
-		//threadExit();
-		flushWorkloadBuffer();
+		if(thread != null)
+			thread.flush();	// The sink is not used by the writer thread until the next result
 		
 		printLine("#======================================");
 		printLine("#Number of workloads:" + printedWorkloadNum);
@@ -281,6 +194,29 @@ public class WorkloadResultWriter {
 			printLine("#Average CPU serve time per Cloudlet:" + cpuServeTime/cloudletNum);
 		if(transmissionNum != 0)
 			printLine("#Average network serve time per transmission:" + networkServeTime/transmissionNum);
+		flush();
+	}
+	
+	/**
+	 * Writes the remaining results, stops the writer thread and closes the sink.
+	 * Called when the results are finished, after printStatistics().
+	 */
+	public void close() {
+		if(closed)
+			return;
+		closed = true;
+		
+		try {
+			if(thread != null)
+				thread.close();
+		} finally {
+			thread = null;
+			try {
+				sink.close();
+			} catch (IOException e) {
+				throw new RuntimeException("WorkloadResultWriter: failed to close "+filename, e);
+			}
+		}
 	}
 	
 	public int getWorklaodNum() {
@@ -391,31 +327,28 @@ public class WorkloadResultWriter {
 	}
 	
 
-	protected void printLine() {
-		out.printLine();
-	}
-	
-	protected void print(String s) {
-		out.print(s);
+	private void write(WorkloadResult result) {
+		try {
+			sink.write(result);
+		} catch (IOException e) {
+			throw new RuntimeException("WorkloadResultWriter: failed to write "+filename, e);
+		}
 	}
 	
 	protected void printLine(String s) {
-		out.printLine(s);
-	}
-	
-	protected void printDetail(String s) {
-		if(Configuration.DEBUG_RESULT_WRITE_DETAIL)
-			out.print(s);
-	}
-	
-	protected void printDetailInt(long l) {
-		//printDetail(String.format(LogPrinter.fInt, l));
-		printDetail(" "+l+","); // "%"+tabSize+"d"+indent;
+		try {
+			sink.writeComment(s);
+		} catch (IOException e) {
+			throw new RuntimeException("WorkloadResultWriter: failed to write "+filename, e);
+		}
 	}
 	
-	protected void printDetailFloat(double f) {
-		//printDetail(String.format(LogPrinter.fFloat, f));
-		printDetail(" "+df.format(f)+","); // "%"+tabSize+".3f"+indent;
+	protected void flush() {
+		try {
+			sink.flush();
+		} catch (IOException e) {
+			throw new RuntimeException("WorkloadResultWriter: failed to write "+filename, e);
+		}
 	}
 
 	private static List<Activity> getAllActivities(Request req) {
@@ -1,43 +1,112 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
 package org.cloudbus.cloudsim.sdn.workload;
 
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 
+/**
+ * Writes workload results to a sink in a background thread.
+ * Results are handed over through a bounded queue, which blocks the simulation thread only when the writer falls behind.
+ * Results are written in the order they are enqueued.
+ */
 public class WorkloadResultWriterThread implements Runnable {
-	private BlockingQueue<Workload> toWrite = new LinkedBlockingQueue<Workload>();
-	private WorkloadResultWriter wrw;
-	
-	public WorkloadResultWriterThread(WorkloadResultWriter wrw) {
-		this.wrw = wrw;
+	private static final int QUEUE_CAPACITY = 4096;
+	private static final WorkloadResult FLUSH = new WorkloadResult(-999, -1, 0, false);	// Marks a flush request
+	private static final WorkloadResult STOP = new WorkloadResult(-998, -1, 0, false);	// Marks the end of results
+
+	private final BlockingQueue<WorkloadResult> toWrite = new ArrayBlockingQueue<WorkloadResult>(QUEUE_CAPACITY);
+	private final Semaphore flushed = new Semaphore(0);
+	private final WorkloadResultSink sink;
+	private final String name;
+	private volatile Throwable error = null;
+	private Thread thread = null;
+
+	public WorkloadResultWriterThread(WorkloadResultSink sink, String name) {
+		this.sink = sink;
+		this.name = name;
+	}
+
+	public void start() {
+		thread = new Thread(this, "WorkloadResultWriter-"+name);
+		thread.setDaemon(true);
+		thread.start();
 	}
-	
-	public void setExit() {
-		enqueue(new Workload(-999, null));
+
+	public void enqueue(WorkloadResult result) {
+		try {
+			toWrite.put(result);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("WorkloadResultWriterThread: interrupted while writing "+name, e);
+		}
 	}
-	
-	public void enqueue(Workload wl) {
-		toWrite.add(wl);
+
+	/**
+	 * Waits until all the enqueued results are written and flushed to the sink.
+	 * The sink can be used by the caller afterwards, until the next enqueue().
+	 */
+	public void flush() {
+		enqueue(FLUSH);
+		try {
+			flushed.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("WorkloadResultWriterThread: interrupted while flushing "+name, e);
+		}
+
+		if(error instanceof RuntimeException)
+			throw (RuntimeException) error;
+		else if(error != null)
+			throw new RuntimeException("WorkloadResultWriterThread: failed to write "+name, error);
 	}
-	
+
+	/**
+	 * Writes all the enqueued results, and stops the thread. The sink can be closed afterwards.
+	 */
+	public void close() {
+		try {
+			flush();
+		} finally {
+			enqueue(STOP);
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
 	@Override
 	public void run() {
-		Workload wl;
-		
-		while(true)
-		{
+		while(true) {
+			WorkloadResult result;
 			try {
-				wl = toWrite.take();
-				if(wl.workloadId == -999)
-					return;
-				
-				wrw.printWorkload(wl);
-				
+				result = toWrite.take();
 			} catch (InterruptedException e) {
-				System.err.println("Intruptted");
-				e.printStackTrace();
-			} 
+				return;
+			}
+			if(result == STOP)
+				return;
+
+			try {
+				if(result == FLUSH)
+					sink.flush();
+				else if(error == null)
+					sink.write(result);
+			} catch (Throwable e) {
+				error = e;	// Thrown in the simulation thread at the next flush
+			}
+
+			if(result == FLUSH)
+				flushed.release();
 		}
-		
-		
 	}
 }
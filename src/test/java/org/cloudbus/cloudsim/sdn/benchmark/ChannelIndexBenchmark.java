@@ -0,0 +1,94 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.sdn.nos.ChannelFinishTimeIndex;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.Link;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.Node;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
+
+/**
+ * Compares finding the next channel to process by scanning every channel (as ChannelManager did before
+ * ChannelFinishTimeIndex) with the finish time index. Each event processes the earliest channel
+ * and schedules it again at a random later time.
+ * The scan is a lower bound of the old cost, which also walked all channels in updatePacketProcessing().
+ *
+ * Usage: ChannelIndexBenchmark [numChannels ...]   (default: 1000 10000 50000)
+ */
+public class ChannelIndexBenchmark {
+	private static final int ROUNDS = 3;
+	private static final long SCAN_BUDGET = 200000000L;	// Channels visited by the scan per round
+
+	public static void main(String[] args) {
+		int[] sizes = {1000, 10000, 50000};
+		if(args.length > 0) {
+			sizes = new int[args.length];
+			for(int i=0; i<args.length; i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+
+		System.out.println("channels,round,scan_ns_per_event,index_ns_per_event");
+		for(int n:sizes)
+			run(n);
+	}
+
+	private static void run(int numChannels) {
+		Random rand = new Random(numChannels);
+		Map<String, Channel> channelTable = new HashMap<String, Channel>();
+		Map<Channel, double[]> finishTimes = new IdentityHashMap<Channel, double[]>();
+		ChannelFinishTimeIndex index = new ChannelFinishTimeIndex();
+
+		for(int i=0; i<numChannels; i++) {
+			Channel ch = new Channel(i, i, i+1, new ArrayList<Node>(), new ArrayList<Link>(), 1e9, null, null);
+			double time = rand.nextDouble() * 100;
+			channelTable.put(i+"-"+(i+1)+"-"+i, ch);
+			finishTimes.put(ch, new double[]{time});
+			index.update(ch, time);
+		}
+
+		int events = (int) Math.max(1000, Math.min(100000, SCAN_BUDGET / numChannels));
+		List<Channel> due = new ArrayList<Channel>();
+
+		for(int round=1; round<=ROUNDS; round++) {
+			long start = System.nanoTime();
+			for(int e=0; e<events; e++) {
+				double earliest = Double.POSITIVE_INFINITY;
+				double[] next = null;
+				for(Channel ch:channelTable.values()) {
+					double[] time = finishTimes.get(ch);
+					if(time[0] < earliest) {
+						earliest = time[0];
+						next = time;
+					}
+				}
+				next[0] = earliest + rand.nextDouble() * 100;
+			}
+			long scanTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for(int e=0; e<events; e++) {
+				double now = index.peekTime();
+				due.clear();
+				index.pollDue(now, due);
+				for(Channel ch:due)
+					index.update(ch, now + rand.nextDouble() * 100);
+			}
+			long indexTime = System.nanoTime() - start;
+
+			System.out.println(numChannels+","+round+","+(scanTime/events)+","+(indexTime/events));
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2017, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn.benchmark;
+
+import java.util.List;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.sdn.physicalcomponents.Link;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.Node;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.RoutingTable;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.ForwardingRule;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.ForwardingRuleCompact;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.ForwardingRuleTable;
+
+/**
+ * Memory per rule and lookup latency of the ForwardingRule backends ("table" and "compact").
+ * A switch table is filled with a full mesh of rules between numVms VMs (flowId -1) over 48 next hops.
+ * Heap is the used memory difference after System.gc(), so run with enough heap (e.g. -Xmx4g) and nothing else.
+ * Lookup is the best of 5 passes of random getRoute() calls.
+ *
+ * Usage: ForwardingRuleBenchmark [numVms ...]   (default: 300 1000)
+ */
+public class ForwardingRuleBenchmark {
+	private static final int NUM_NEXT_HOPS = 48;
+	private static final int NUM_LOOKUPS = 1 << 21;
+	private static final int LOOKUP_PASSES = 5;
+
+	// Next hop node. Only the identity and the address are used by the forwarding tables.
+	private static class NextHop implements Node {
+		private final int address;
+		NextHop(int address) { this.address = address; }
+		public int getAddress() { return address; }
+		public long getBandwidth() { return 0; }
+		public void setRank(int rank) {}
+		public int getRank() { return 0; }
+		public void clearVMRoutingTable() {}
+		public void setVMRoutingTable(ForwardingRule forwardingTable) {}
+		public void addVMRoute(int srcVM, int destVM, int flowId, Node to) {}
+		public Node getVMRoute(int srcVM, int destVM, int flowId) { return null; }
+		public void removeVMRoute(int srcVM, int destVM, int flowId) {}
+		public void printVMRoute() {}
+		public void addRoute(Node destHost, Link to) {}
+		public List<Link> getRoute(Node destHost) { return null; }
+		public RoutingTable getRoutingTable() { return null; }
+		public void setRoutingTable(RoutingTable routingTable) {}
+		public void addLink(Link l) {}
+		public Link getLinkTo(Node nextHop) { return null; }
+		public void updateNetworkUtilization() {}
+	}
+
+	public static void main(String[] args) {
+		int[] sizes = {300, 1000};
+		if(args.length > 0) {
+			sizes = new int[args.length];
+			for(int i=0; i<args.length; i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+
+		Node[] nextHops = new Node[NUM_NEXT_HOPS];
+		for(int i=0; i<nextHops.length; i++)
+			nextHops[i] = new NextHop(i);
+
+		System.out.println("backend,rules,heap_bytes,bytes_per_rule,build_ms,lookup_ns");
+		for(int numVms:sizes) {
+			run("table", new ForwardingRuleTable(), numVms, nextHops);
+			run("compact", new ForwardingRuleCompact(), numVms, nextHops);
+		}
+	}
+
+	private static void run(String backend, ForwardingRule rules, int numVms, Node[] nextHops) {
+		long numRules = (long) numVms * numVms;
+		long before = usedMemory();
+
+		long start = System.nanoTime();
+		for(int src=0; src<numVms; src++) {
+			for(int dst=0; dst<numVms; dst++)
+				rules.addRule(src, dst, -1, nextHops[(src * 31 + dst) % nextHops.length]);
+		}
+		long buildTime = System.nanoTime() - start;
+		long heap = usedMemory() - before;
+
+		Random rand = new Random(numVms);
+		int[] srcs = new int[NUM_LOOKUPS];
+		int[] dsts = new int[NUM_LOOKUPS];
+		for(int i=0; i<NUM_LOOKUPS; i++) {
+			srcs[i] = rand.nextInt(numVms);
+			dsts[i] = rand.nextInt(numVms);
+		}
+
+		long best = Long.MAX_VALUE;
+		long check = 0;
+		for(int pass=0; pass<LOOKUP_PASSES; pass++) {
+			start = System.nanoTime();
+			for(int i=0; i<NUM_LOOKUPS; i++)
+				check += rules.getRoute(srcs[i], dsts[i], -1).getAddress();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		if(check < 0)
+			System.err.println(check);	// Keeps the lookups from being optimised away
+
+		System.out.println(backend+","+numRules+","+heap+","+(heap/numRules)+","+(buildTime/1000000)+","+(best/NUM_LOOKUPS));
+		rules.clear();
+	}
+
+	private static long usedMemory() {
+		Runtime rt = Runtime.getRuntime();
+		for(int i=0; i<4; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+}